@@ -0,0 +1,440 @@
+package controller;
+
+import model.Computer;
+import util.IntIntMap;
+import util.TrigramIndex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Classe ComputerIndex - Lista de computadores em memória do controlador com
+ * um índice ID -> posição na lista ({@link IntIntMap}). Encontrar, substituir
+ * e remover um computador pelo ID custa O(1), sem percorrer a lista.
+ *
+ * A remoção leva o último elemento para a posição liberada: a ordem da lista
+ * não é preservada (a tabela da tela tem ordenação própria).
+ *
+ * Na gravação adiada, um computador novo só recebe o ID quando a fila grava a
+ * inserção: até lá ele fica fora do índice de IDs, em um índice pela
+ * identidade do objeto. A fila avisa a atribuição ({@link #assigned}) e o
+ * computador passa para o índice de IDs na próxima consulta, sem refazer o
+ * índice: uma consulta por um ID ausente continua custando O(1).
+ *
+ * Também mantém, a cada inclusão, substituição e remoção, os computadores
+ * agrupados por localização e por setor (sem diferenciar maiúsculas e sem
+ * espaços nas pontas): as consultas por localização ou setor custam o tamanho
+ * do resultado, não o do inventário.
+ *
+ * A busca de texto da tela usa um {@link TrigramIndex} sobre os campos
+ * pesquisáveis, montado na primeira busca e depois mantido a cada alteração.
+ */
+final class ComputerIndex {
+
+    private static final int MISSING = -1;
+
+    private final List<Computer> computers = new ArrayList<>();
+    private final IntIntMap positions = new IntIntMap();
+    /** Computadores na lista ainda sem ID (fora do índice de IDs) -> posição. */
+    private final IdentityHashMap<Computer, Integer> unindexed = new IdentityHashMap<>();
+    /** IDs atribuídos pela fila (em outra thread), ainda não levados ao índice. */
+    private final Queue<Computer> assigned = new ConcurrentLinkedQueue<>();
+    private final GroupIndex byLocation = new GroupIndex(Computer::getLocation);
+    private final GroupIndex bySector = new GroupIndex(Computer::getSector);
+    private final TextIndex text = new TextIndex();
+
+    /**
+     * @return A lista (viva) de computadores; alterações devem passar por este
+     *         índice.
+     */
+    List<Computer> list() {
+        return computers;
+    }
+
+    int size() {
+        return computers.size();
+    }
+
+    /**
+     * Substitui todo o conteúdo (carga inicial ou recarga).
+     */
+    void reset(List<Computer> loaded) {
+        computers.clear();
+        computers.addAll(loaded);
+        reindex();
+        byLocation.clear();
+        bySector.clear();
+        for (Computer computer : computers) {
+            byLocation.add(computer);
+            bySector.add(computer);
+        }
+        text.clear();
+    }
+
+    /**
+     * Avisa que o computador recebeu o ID da fila de gravação adiada. Pode ser
+     * chamado de qualquer thread; o índice é atualizado na próxima consulta.
+     */
+    void assigned(Computer computer) {
+        assigned.add(computer);
+    }
+
+    /**
+     * @return Computador com o ID, ou null.
+     */
+    Computer get(int id) {
+        int position = positionOf(id);
+        return position >= 0 ? computers.get(position) : null;
+    }
+
+    /**
+     * @return Computadores da localização (nova lista).
+     */
+    List<Computer> getByLocation(String location) {
+        return byLocation.get(location);
+    }
+
+    /**
+     * @return Computadores do setor (nova lista).
+     */
+    List<Computer> getBySector(String sector) {
+        return bySector.get(sector);
+    }
+
+    /**
+     * @return Computadores com o texto em algum campo pesquisável (sem
+     *         diferenciar maiúsculas), na ordem em que entraram no índice.
+     */
+    List<Computer> search(String query) {
+        if (!text.isBuilt()) {
+            text.build(computers);
+        }
+        return text.search(query);
+    }
+
+    /**
+     * Inclui o computador ou, se já houver um com o mesmo ID, substitui-o. Para
+     * um objeto que já está na lista e foi alterado no lugar, atualiza a
+     * localização e o setor indexados.
+     */
+    void put(Computer computer) {
+        int position = indexOf(computer);
+        if (position >= 0) {
+            set(position, computer);
+        } else {
+            append(computer);
+        }
+    }
+
+    /**
+     * Substitui o registro representado por previous pelo objeto atualizado
+     * (incluído, se previous não estiver na lista).
+     */
+    void replace(Computer previous, Computer updated) {
+        int position = indexOf(previous);
+        if (position >= 0) {
+            set(position, updated);
+        } else {
+            put(updated);
+        }
+    }
+
+    /**
+     * @return true se o computador estava na lista.
+     */
+    boolean remove(Computer computer) {
+        int position = indexOf(computer);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    void removeAll(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            int position = positionOf(id);
+            if (position >= 0) {
+                removeAt(position);
+            }
+        }
+    }
+
+    private int indexOf(Computer computer) {
+        if (computer.getId() > 0) {
+            int position = positionOf(computer.getId());
+            if (position >= 0) {
+                return position;
+            }
+        }
+        // Sem ID, ou com o ID recém-atribuído e o aviso da fila ainda a caminho
+        Integer position = unindexed.get(computer);
+        return position != null ? position : MISSING;
+    }
+
+    private int positionOf(int id) {
+        linkAssigned();
+        return positions.get(id, MISSING);
+    }
+
+    /**
+     * Leva ao índice de IDs os computadores que receberam o ID da fila.
+     */
+    private void linkAssigned() {
+        Computer computer;
+        while ((computer = assigned.poll()) != null) {
+            Integer position = unindexed.remove(computer);
+            if (position != null) {
+                positions.put(computer.getId(), position);
+            }
+        }
+    }
+
+    private void set(int position, Computer computer) {
+        Computer previous = computers.set(position, computer);
+        if (previous != computer) {
+            // Mesmo com o ID igual: um computador ainda sem ID é indexado pela
+            // identidade do objeto, que passa a ser a do novo
+            unlink(previous);
+            link(computer, position);
+            byLocation.remove(previous);
+            bySector.remove(previous);
+            text.remove(previous);
+            byLocation.add(computer);
+            bySector.add(computer);
+            text.add(computer);
+        } else {
+            byLocation.update(computer);
+            bySector.update(computer);
+            text.update(computer);
+        }
+    }
+
+    private void append(Computer computer) {
+        computers.add(computer);
+        link(computer, computers.size() - 1);
+        byLocation.add(computer);
+        bySector.add(computer);
+        text.add(computer);
+    }
+
+    private void removeAt(int position) {
+        int last = computers.size() - 1;
+        Computer removed = computers.get(position);
+        Computer moved = computers.remove(last);
+        unlink(removed);
+        byLocation.remove(removed);
+        bySector.remove(removed);
+        text.remove(removed);
+        if (position != last) {
+            computers.set(position, moved);
+            if (unindexed.containsKey(moved)) {
+                unindexed.put(moved, position);
+            } else if (moved.getId() > 0) {
+                positions.put(moved.getId(), position);
+            }
+        }
+    }
+
+    private void link(Computer computer, int position) {
+        if (computer.getId() > 0) {
+            positions.put(computer.getId(), position);
+        } else {
+            unindexed.put(computer, position);
+        }
+    }
+
+    private void unlink(Computer computer) {
+        // Pode ter recebido o ID da fila depois de entrar na lista
+        if (unindexed.remove(computer) == null) {
+            positions.remove(computer.getId(), MISSING);
+        }
+    }
+
+    private void reindex() {
+        positions.clear();
+        unindexed.clear();
+        for (int i = 0; i < computers.size(); i++) {
+            link(computers.get(i), i);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Computadores agrupados pelo valor normalizado de um campo. Cada objeto é
+     * lembrado com a chave em que foi incluído, para ser removido (ou mudado de
+     * grupo) mesmo que o campo já tenha sido alterado. Os objetos são
+     * identificados pela identidade, que não muda quando a fila atribui o ID.
+     */
+    private static final class GroupIndex {
+        private final Function<Computer, String> field;
+        private final Map<String, Group> groups = new HashMap<>();
+        private final IdentityHashMap<Computer, String> keys = new IdentityHashMap<>();
+
+        GroupIndex(Function<Computer, String> field) {
+            this.field = field;
+        }
+
+        void add(Computer computer) {
+            String key = normalize(field.apply(computer));
+            keys.put(computer, key);
+            groups.computeIfAbsent(key, k -> new Group()).add(computer);
+        }
+
+        void remove(Computer computer) {
+            String key = keys.remove(computer);
+            if (key == null) {
+                return;
+            }
+            Group group = groups.get(key);
+            group.remove(computer);
+            if (group.members.isEmpty()) {
+                groups.remove(key);
+            }
+        }
+
+        /**
+         * Muda o computador de grupo se o campo foi alterado no próprio objeto.
+         */
+        void update(Computer computer) {
+            if (!normalize(field.apply(computer)).equals(keys.get(computer))) {
+                remove(computer);
+                add(computer);
+            }
+        }
+
+        List<Computer> get(String value) {
+            Group group = groups.get(normalize(value));
+            return group != null ? new ArrayList<>(group.members) : new ArrayList<>();
+        }
+
+        void clear() {
+            groups.clear();
+            keys.clear();
+        }
+    }
+
+    /**
+     * Membros de um grupo, com a posição de cada um para remoção em O(1) (o
+     * último membro ocupa a posição liberada).
+     */
+    private static final class Group {
+        final List<Computer> members = new ArrayList<>();
+        final IdentityHashMap<Computer, Integer> positions = new IdentityHashMap<>();
+
+        void add(Computer computer) {
+            positions.put(computer, members.size());
+            members.add(computer);
+        }
+
+        void remove(Computer computer) {
+            Integer position = positions.remove(computer);
+            if (position == null) {
+                return;
+            }
+            Computer moved = members.remove(members.size() - 1);
+            if (moved != computer) {
+                members.set(position, moved);
+                positions.put(moved, position);
+            }
+        }
+    }
+
+    /**
+     * Campos pesquisáveis do computador (os mesmos da busca da tela). Uma
+     * observação longa não carregada fica de fora (é null); o controlador a
+     * pesquisa no banco.
+     */
+    private static String[] searchFields(Computer c) {
+        return new String[] { c.getTag(), c.getModel(), c.getBrand(), c.getUserName(), c.getHostname(),
+                c.getLocation(), c.getSector(), c.getWindowsVersion(), c.getOfficeVersion(),
+                c.getSerialNumber(), c.getPurchaseDate(), c.getPatrimony(), c.getObservation() };
+    }
+
+    /**
+     * Índice de texto dos computadores. Cada objeto recebe um número de
+     * documento (reaproveitado depois da remoção) pela identidade, como nos
+     * grupos. Só é montado na primeira busca: até lá as alterações não custam
+     * nada.
+     */
+    private static final class TextIndex {
+        private final TrigramIndex trigrams = new TrigramIndex();
+        private final IdentityHashMap<Computer, Integer> docs = new IdentityHashMap<>();
+        private final List<Computer> byDoc = new ArrayList<>();
+        private final Deque<Integer> freeDocs = new ArrayDeque<>();
+        private boolean built;
+
+        boolean isBuilt() {
+            return built;
+        }
+
+        void build(List<Computer> computers) {
+            built = true;
+            for (Computer computer : computers) {
+                add(computer);
+            }
+        }
+
+        void add(Computer computer) {
+            if (!built) {
+                return;
+            }
+            Integer doc = freeDocs.poll();
+            if (doc == null) {
+                doc = byDoc.size();
+                byDoc.add(computer);
+            } else {
+                byDoc.set(doc, computer);
+            }
+            docs.put(computer, doc);
+            trigrams.put(doc, searchFields(computer));
+        }
+
+        void remove(Computer computer) {
+            Integer doc = docs.remove(computer);
+            if (doc == null) {
+                return;
+            }
+            trigrams.remove(doc);
+            byDoc.set(doc, null);
+            freeDocs.push(doc);
+        }
+
+        void update(Computer computer) {
+            Integer doc = docs.get(computer);
+            if (doc != null) {
+                trigrams.put(doc, searchFields(computer));
+            }
+        }
+
+        List<Computer> search(String query) {
+            int[] found = trigrams.search(query);
+            List<Computer> result = new ArrayList<>(found.length);
+            for (int doc : found) {
+                result.add(byDoc.get(doc));
+            }
+            return result;
+        }
+
+        void clear() {
+            trigrams.clear();
+            docs.clear();
+            byDoc.clear();
+            freeDocs.clear();
+            built = false;
+        }
+    }
+}
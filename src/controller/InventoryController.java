@@ -1,56 +1,127 @@
 package controller;
 
+import model.BackupProgress;
+import model.BatchResult;
 import model.Computer;
+import model.ComputerFilter;
+import model.DatabaseConfig;
 import model.HistoryEntry;
 import model.HistoryEntry.ActionType;
+import model.HistoryPage;
+import model.InventoryStats;
+import model.UnitOfWork;
+import model.UpdateResult;
 import model.User;
 import model.DatabaseHelper;
+import model.InventoryRepository;
+import model.WriteBehindQueue;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 public class InventoryController {
 
-    private final List<Computer> computerList;
+    private final ComputerIndex computers; // Lista em memória com índice por ID
     private final List<HistoryEntry> historyList;
+    private boolean historyLoaded; // O histórico completo só é carregado quando pedido
     private final List<User> users;
-    private final DatabaseHelper dbHelper;
+    private final InventoryRepository repository;
+    private final WriteBehindQueue writeQueue; // null no modo síncrono
+    // Alterações descartadas pela fila, aplicadas na thread da interface
+    private final Queue<WriteBehindQueue.DroppedWrite> droppedWrites = new ConcurrentLinkedQueue<>();
+    private volatile Runnable droppedWriteListener;
+    private final StatsService statsService;
     private static final String ADMIN_USERNAME = "admin";
     private static final String ADMIN_PASSWORD = "admin";
+    private static final int SEARCH_LIMIT = 500;
     private String currentUser;
+    // Posição da lista em memória em relação ao banco (ver refreshComputers)
+    private long lastDataVersion;
+    private long lastRowVersion;
+    private long lastRestoreEpoch;
 
     public InventoryController() {
-        this.dbHelper = new DatabaseHelper();
-        this.dbHelper.createTable();
-        // Carrega os computadores persistidos
-        this.computerList = new ArrayList<>(dbHelper.loadComputers());
-        // Carrega o histórico persistido
-        this.historyList = new ArrayList<>(dbHelper.loadHistory());
+        this(new DatabaseHelper());
+    }
+
+    /**
+     * @param repository Armazenamento do inventário (SQLite, memória etc.).
+     */
+    public InventoryController(InventoryRepository repository) {
+        this.repository = repository;
+        this.repository.createTable();
+        // Modo write.mode=behind: as alterações são gravadas em segundo plano. A
+        // fila grava direto no SQLite, então só vale para o DatabaseHelper
+        DatabaseConfig config = DatabaseConfig.get();
+        this.writeQueue = config.isWriteBehind() && repository instanceof DatabaseHelper
+                ? WriteBehindQueue.getInstance(config)
+                : null;
+        if (writeQueue != null) {
+            writeQueue.setDropListener(this::writeDropped);
+        }
+        // Carrega os computadores persistidos. As versões são lidas antes, para que
+        // alterações feitas durante a carga apareçam no próximo refresh
+        this.lastDataVersion = repository.getDataVersion();
+        this.lastRowVersion = repository.getMaxRowVersion();
+        this.lastRestoreEpoch = repository.getRestoreEpoch();
+        this.computers = new ComputerIndex();
+        this.computers.reset(repository.loadComputers());
+        if (writeQueue != null) {
+            // Computadores novos entram no índice de IDs quando a fila grava a inserção
+            writeQueue.setIdListener(computers::assigned);
+        }
+        // O histórico cresce sempre; é carregado sob demanda (getHistoryList) ou
+        // consultado por páginas (loadHistoryPage)
+        this.historyList = new ArrayList<>();
         // Carrega os usuários persistidos
-        this.users = new ArrayList<>(dbHelper.loadUsers());
+        this.users = new ArrayList<>(repository.loadUsers());
+        this.statsService = new StatsService(repository);
         initializeAdminUser();
     }
 
     private void initializeAdminUser() {
         if (users.stream().noneMatch(user -> "admin".equals(user.getUsername()))) {
-            dbHelper.insertUser(ADMIN_USERNAME, ADMIN_PASSWORD);
+            repository.insertUser(ADMIN_USERNAME, ADMIN_PASSWORD);
             users.add(new User(ADMIN_USERNAME, ADMIN_PASSWORD));
         }
     }
 
     public List<Computer> getComputerList() {
-        return computerList;
+        return computers.list();
     }
 
     public List<HistoryEntry> getHistoryList() {
+        if (!historyLoaded) {
+            refreshHistory();
+        }
         return historyList;
     }
 
+    /**
+     * Carrega uma página do histórico direto do armazenamento, do mais recente para o
+     * mais antigo. Parâmetros nulos não filtram.
+     */
+    public HistoryPage loadHistoryPage(LocalDateTime from, LocalDateTime to, String user, ActionType action,
+            int limit, HistoryPage.Cursor cursor) {
+        flushWrites();
+        return repository.loadHistory(from, to, user, action, limit, cursor);
+    }
+
     public List<User> getUsers() {
         return users;
     }
@@ -73,8 +144,8 @@ public class InventoryController {
     }
 
     public void addUser(String username, String password) {
-        if (!dbHelper.isUserExists(username)) {
-            dbHelper.insertUser(username, password);
+        if (!repository.isUserExists(username)) {
+            repository.insertUser(username, password);
             users.add(new User(username, password));
         } else {
             throw new IllegalArgumentException("Usuário já cadastrado.");
@@ -82,7 +153,7 @@ public class InventoryController {
     }
 
     public void editUserPassword(String username, String newPassword) {
-        if (dbHelper.editUserPassword(username, newPassword)) {
+        if (repository.editUserPassword(username, newPassword)) {
             users.stream()
                     .filter(user -> user.getUsername().equals(username))
                     .findFirst()
@@ -93,7 +164,7 @@ public class InventoryController {
     }
 
     public void deleteUser(String username) {
-        if (dbHelper.deleteUser(username)) {
+        if (repository.deleteUser(username)) {
             users.removeIf(user -> user.getUsername().equals(username));
         } else {
             throw new IllegalArgumentException("Erro ao excluir o usuário: " + username);
@@ -109,64 +180,223 @@ public class InventoryController {
     }
 
     public int getComputerCount() {
-        return computerList.size();
+        return computers.size();
     }
 
     /**
-     * Adiciona um computador, persistindo-o no banco.
+     * Contagem de computadores ativos e inativos por localização, para a barra
+     * superior. Fica em cache até a próxima alteração do inventário (desta ou de
+     * outra estação, ver refreshComputers). Sem cache, as contagens vêm de uma
+     * consulta agrupada no banco; com gravações adiadas pendentes, da lista em
+     * memória, que já tem as alterações que o banco ainda não recebeu.
+     */
+    public InventoryStats getStats() {
+        if (!statsService.isCached() && writeQueue != null && writeQueue.hasPending()) {
+            return statsService.count(computers.list());
+        }
+        return statsService.get();
+    }
+
+    /**
+     * Adiciona um computador, persistindo-o no banco junto com o histórico (uma
+     * única transação).
      */
     public void addComputer(Computer computer, String user) {
         if (isValidUser(user)) {
-            computerList.add(computer);
-            dbHelper.insertComputer(computer);
-            addHistory(ActionType.ADICIONAR, user, "Adicionado computador: " + computer.getTag());
+            HistoryEntry entry = newHistory(ActionType.ADICIONAR, user, "Adicionado computador: " + computer.getTag());
+            if (writeQueue != null) {
+                writeQueue.enqueueInsert(computer, entry);
+            } else if (!writeWithHistory(work -> {
+                work.insertComputer(computer);
+                return true;
+            }, entry, "Erro ao adicionar computador")) {
+                return;
+            }
+            computers.put(computer);
+            statsService.invalidate();
+            appendHistory(entry);
+        }
+    }
+
+    /**
+     * Adiciona vários computadores de uma vez (importação), em uma única
+     * transação no banco. Apenas os registros inseridos com sucesso entram na
+     * lista em memória.
+     *
+     * @return Resultado do lote, com as falhas por linha.
+     */
+    public BatchResult addComputers(List<Computer> computers, String user) {
+        if (!isValidUser(user)) {
+            return new BatchResult();
         }
+        // A importação já é gravada em lote; só precisa vir depois do que está na fila
+        flushWrites();
+        HistoryEntry[] entry = new HistoryEntry[1];
+        BatchResult result;
+        try {
+            result = repository.inTransaction(work -> {
+                BatchResult inserted = work.insertComputers(computers);
+                entry[0] = null;
+                if (inserted.getSuccessCount() > 0) {
+                    entry[0] = newHistory(ActionType.ADICIONAR, user,
+                            "Importados " + inserted.getSuccessCount() + " computadores");
+                    work.insertHistory(entry[0]);
+                }
+                return inserted;
+            });
+        } catch (SQLException e) {
+            System.err.println("Erro ao importar computadores: " + e.getMessage());
+            return BatchResult.failed(computers.size(), e.getMessage());
+        }
+        for (int i = 0; i < computers.size(); i++) {
+            if (!result.getFailures().containsKey(i)) {
+                this.computers.put(computers.get(i));
+            }
+        }
+        if (entry[0] != null) {
+            statsService.invalidate();
+            appendHistory(entry[0]);
+        }
+        return result;
     }
 
+    /**
+     * Substitui um computador pelos dados editados. A gravação só acontece se
+     * ninguém alterou o registro desde que ele foi carregado.
+     *
+     * @throws IllegalStateException se outra estação alterou ou removeu o
+     *                               registro nesse meio tempo; a lista é
+     *                               atualizada com a versão do banco.
+     */
     public void editComputer(Computer oldComputer, Computer updatedComputer, String user) {
         if (isValidUser(user)) {
-            // Preserva o ID do computador original
+            // Preserva o ID e a versão do computador original
             updatedComputer.setId(oldComputer.getId());
+            updatedComputer.setRowVersion(oldComputer.getRowVersion());
+            // Observação longa ainda não carregada: continua sob demanda (o UPDATE
+            // mantém o texto gravado)
+            if (!oldComputer.isObservationLoaded() && updatedComputer.getObservation() == null) {
+                updatedComputer.setObservationLoaded(false);
+            }
 
-            if (dbHelper.updateComputer(updatedComputer)) {
-                // Atualiza a lista em memória
-                int index = computerList.indexOf(oldComputer);
-                if (index >= 0) {
-                    computerList.set(index, updatedComputer);
-                    addHistory(ActionType.EDITAR, user, "Editado computador: " + oldComputer.getTag());
-                } else {
-                    // Se não achar na lista (estranho, mas possível), recarrega tudo
-                    refreshComputers();
-                }
+            HistoryEntry entry = newHistory(ActionType.EDITAR, user, "Editado computador: " + oldComputer.getTag());
+            UpdateResult result = save(updatedComputer, oldComputer, entry);
+            if (result == UpdateResult.UPDATED) {
+                appendHistory(entry);
+                // Atualiza a lista em memória pelo ID (se o registro não estiver na
+                // lista, ele é incluído)
+                computers.replace(oldComputer, updatedComputer);
             } else {
-                System.err.println("Erro ao atualizar computador no banco de dados.");
+                reportUpdateFailure(result, oldComputer);
             }
         }
     }
 
+    /**
+     * Grava a observação (ou outro campo) alterada diretamente no objeto da
+     * lista.
+     *
+     * @return true se gravado.
+     * @throws IllegalStateException se outra estação alterou ou removeu o
+     *                               registro desde que ele foi carregado.
+     */
     public boolean updateComputer(Computer computer, String user) {
         if (isValidUser(user)) {
-            if (dbHelper.updateComputer(computer)) {
+            HistoryEntry entry = newHistory(ActionType.EDITAR, user, "Atualizado observação: " + computer.getTag());
+            UpdateResult result = save(computer, computer, entry);
+            if (result == UpdateResult.UPDATED) {
                 // A lista em memória já tem o objeto atualizado (pois é passado por
-                // referência),
-                // mas precisamos registrar o histórico.
-                addHistory(ActionType.EDITAR, user, "Atualizado observação: " + computer.getTag());
+                // referência); só os índices por localização e setor são conferidos.
+                // O histórico foi gravado junto
+                computers.put(computer);
+                appendHistory(entry);
                 return true;
             } else {
-                System.err.println("Erro ao atualizar computador no banco de dados.");
+                reportUpdateFailure(result, computer);
                 return false;
             }
         }
         return false;
     }
 
+    /**
+     * Grava a alteração e, se ela for aceita, o histórico, na mesma transação.
+     */
+    private UpdateResult save(Computer computer, Computer previous, HistoryEntry entry) {
+        // A localização ou o status podem ter mudado
+        statsService.invalidate();
+        if (writeQueue != null) {
+            // A versão é verificada quando a fila grava; um conflito é avisado
+            // depois (ver takeDroppedWrites)
+            return writeQueue.enqueueUpdate(computer, previous, entry) ? UpdateResult.UPDATED : UpdateResult.ERROR;
+        }
+        try {
+            return repository.inTransaction(work -> {
+                UpdateResult result = work.updateComputer(computer);
+                if (result == UpdateResult.UPDATED) {
+                    work.insertHistory(entry);
+                }
+                return result;
+            });
+        } catch (SQLException e) {
+            System.err.println("Erro ao atualizar computador: " + e.getMessage());
+            return UpdateResult.ERROR;
+        }
+    }
+
+    /**
+     * Executa a alteração e, se ela tiver efeito, grava o histórico na mesma
+     * transação (modo síncrono): os dois são gravados juntos ou nenhum é.
+     *
+     * @return true se a alteração foi gravada.
+     */
+    private boolean writeWithHistory(UnitOfWork.Work<Boolean> change, HistoryEntry entry, String error) {
+        try {
+            return repository.inTransaction(work -> {
+                boolean changed = change.run(work);
+                if (changed) {
+                    work.insertHistory(entry);
+                }
+                return changed;
+            });
+        } catch (SQLException e) {
+            System.err.println(error + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void reportUpdateFailure(UpdateResult result, Computer computer) {
+        switch (result) {
+            case CONFLICT:
+                refreshComputers();
+                throw new IllegalStateException("O computador " + computer.getTag()
+                        + " foi alterado por outra estação enquanto você editava. A lista foi atualizada;"
+                        + " abra o registro novamente e refaça a alteração.");
+            case NOT_FOUND:
+                refreshComputers();
+                throw new IllegalStateException("O computador " + computer.getTag()
+                        + " não existe mais no banco de dados.");
+            default:
+                System.err.println("Erro ao atualizar computador no banco de dados.");
+        }
+    }
+
     public void deleteComputer(Computer computer, String user) {
         if (isValidUser(user)) {
+            HistoryEntry entry = newHistory(ActionType.EXCLUIR, user, "Movido para a lixeira: " + computer.getTag());
             // Tenta remover do banco de dados (soft delete)
-            if (dbHelper.deleteComputer(computer)) {
+            boolean deleted;
+            if (writeQueue != null) {
+                deleted = writeQueue.enqueueDelete(computer, entry);
+            } else {
+                deleted = writeWithHistory(work -> work.deleteComputer(computer), entry,
+                        "Erro ao mover o computador para a lixeira");
+            }
+            if (deleted) {
                 // Remove da lista principal
-                computerList.remove(computer);
-                addHistory(ActionType.EXCLUIR, user, "Movido para a lixeira: " + computer.getTag());
+                computers.remove(computer);
+                statsService.invalidate();
+                appendHistory(entry);
             } else {
                 System.err.println("Erro ao mover o computador para a lixeira.");
             }
@@ -175,53 +405,263 @@ public class InventoryController {
 
     public void restoreComputer(Computer computer, String user) {
         if (isValidUser(user)) {
-            if (dbHelper.restoreComputer(computer)) {
+            HistoryEntry entry = newHistory(ActionType.EDITAR, user, "Restaurado da lixeira: " + computer.getTag());
+            boolean restored;
+            if (writeQueue != null) {
+                restored = writeQueue.enqueueRestore(computer, entry);
+            } else {
+                restored = writeWithHistory(work -> work.restoreComputer(computer), entry,
+                        "Erro ao restaurar o computador");
+            }
+            if (restored) {
                 computer.setDeleted(false);
-                computerList.add(computer);
-                addHistory(ActionType.EDITAR, user, "Restaurado da lixeira: " + computer.getTag());
+                computers.put(computer);
+                statsService.invalidate();
+                appendHistory(entry);
             } else {
                 System.err.println("Erro ao restaurar o computador.");
             }
         }
     }
 
+    /**
+     * Move vários computadores para a lixeira de uma vez (uma transação no
+     * banco) e registra um único histórico com as etiquetas.
+     *
+     * @return Quantidade de computadores movidos.
+     */
+    public int deleteComputers(List<Computer> computers, String user) {
+        if (!isValidUser(user) || computers.isEmpty()) {
+            return 0;
+        }
+        flushWrites();
+        HistoryEntry[] entry = new HistoryEntry[1];
+        Map<Integer, Long> versions;
+        try {
+            versions = repository.inTransaction(work -> {
+                Map<Integer, Long> deleted = work.deleteComputers(idsOf(computers));
+                entry[0] = deleted.isEmpty() ? null
+                        : newHistory(ActionType.EXCLUIR, user,
+                                describeBulk("Movidos para a lixeira", changedOf(computers, deleted)));
+                if (entry[0] != null) {
+                    work.insertHistory(entry[0]);
+                }
+                return deleted;
+            });
+        } catch (SQLException e) {
+            System.err.println("Erro ao mover computadores para a lixeira: " + e.getMessage());
+            return 0;
+        }
+        List<Computer> changed = applyVersions(computers, versions, true);
+        if (!changed.isEmpty()) {
+            this.computers.removeAll(idsOf(changed));
+            statsService.invalidate();
+            appendHistory(entry[0]);
+        }
+        return changed.size();
+    }
+
+    /**
+     * Restaura vários computadores da lixeira de uma vez (uma transação no banco)
+     * e registra um único histórico com as etiquetas.
+     *
+     * @return Quantidade de computadores restaurados.
+     */
+    public int restoreComputers(List<Computer> computers, String user) {
+        if (!isValidUser(user) || computers.isEmpty()) {
+            return 0;
+        }
+        flushWrites();
+        HistoryEntry[] entry = new HistoryEntry[1];
+        Map<Integer, Long> versions;
+        try {
+            versions = repository.inTransaction(work -> {
+                Map<Integer, Long> restored = work.restoreComputers(idsOf(computers));
+                entry[0] = restored.isEmpty() ? null
+                        : newHistory(ActionType.EDITAR, user,
+                                describeBulk("Restaurados da lixeira", changedOf(computers, restored)));
+                if (entry[0] != null) {
+                    work.insertHistory(entry[0]);
+                }
+                return restored;
+            });
+        } catch (SQLException e) {
+            System.err.println("Erro ao restaurar computadores: " + e.getMessage());
+            return 0;
+        }
+        List<Computer> changed = applyVersions(computers, versions, false);
+        if (!changed.isEmpty()) {
+            for (Computer computer : changed) {
+                this.computers.put(computer);
+            }
+            statsService.invalidate();
+            appendHistory(entry[0]);
+        }
+        return changed.size();
+    }
+
+    private static List<Integer> idsOf(List<Computer> computers) {
+        List<Integer> ids = new ArrayList<>(computers.size());
+        for (Computer computer : computers) {
+            ids.add(computer.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Atribui aos objetos o novo estado e a versão gravados no banco.
+     *
+     * @return Computadores que foram de fato alterados.
+     */
+    private static List<Computer> applyVersions(List<Computer> computers, Map<Integer, Long> versions,
+            boolean deleted) {
+        List<Computer> changed = changedOf(computers, versions);
+        for (Computer computer : changed) {
+            computer.setDeleted(deleted);
+            computer.setRowVersion(versions.get(computer.getId()));
+        }
+        return changed;
+    }
+
+    private static List<Computer> changedOf(List<Computer> computers, Map<Integer, Long> versions) {
+        List<Computer> changed = new ArrayList<>();
+        for (Computer computer : computers) {
+            if (versions.containsKey(computer.getId())) {
+                changed.add(computer);
+            }
+        }
+        return changed;
+    }
+
+    private static String describeBulk(String action, List<Computer> computers) {
+        int shown = Math.min(computers.size(), 20);
+        StringBuilder description = new StringBuilder(action).append(' ').append(computers.size())
+                .append(computers.size() == 1 ? " computador: " : " computadores: ");
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(computers.get(i).getTag());
+        }
+        if (computers.size() > shown) {
+            description.append(" e mais ").append(computers.size() - shown);
+        }
+        return description.toString();
+    }
+
     public List<Computer> getDeletedComputers() {
-        return dbHelper.loadDeletedComputers();
+        flushWrites();
+        return repository.loadDeletedComputers();
     }
 
+    /**
+     * Carrega uma página de computadores direto do banco (paginação por chave).
+     */
+    public List<Computer> loadComputerPage(int afterId, int pageSize, ComputerFilter filter) {
+        flushWrites();
+        return repository.loadComputers(afterId, pageSize, filter);
+    }
+
+    public int countComputers(ComputerFilter filter) {
+        flushWrites();
+        return repository.countComputers(filter);
+    }
+
+    public int findComputerIdAt(ComputerFilter filter, int position) {
+        flushWrites();
+        return repository.findComputerIdAt(filter, position);
+    }
+
+    /**
+     * Pesquisa computadores pelo índice de texto completo do banco (etiqueta,
+     * nome do PC, usuário, modelo, marca, série, setor, localização, patrimônio e
+     * observação), em ordem de relevância.
+     */
     public List<Computer> searchComputers(String query) {
         if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>(computerList);
+            return new ArrayList<>(computers.list());
+        }
+        flushWrites();
+        List<Integer> ids = repository.searchComputerIds(query, SEARCH_LIMIT);
+        List<Computer> result = new ArrayList<>();
+        for (Integer id : ids) {
+            Computer computer = computers.get(id);
+            if (computer != null) {
+                result.add(computer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Filtra a lista em memória pelo texto contido em algum campo (etiqueta,
+     * modelo, marca, usuário, nome do PC, localização, setor, versões do Windows
+     * e do Office, série, data de compra, patrimônio e observação), sem
+     * diferenciar maiúsculas. Usa o índice de trigramas (ver ComputerIndex).
+     * Observações longas não ficam em memória: para elas, valem as palavras
+     * encontradas pelo índice de texto completo do banco.
+     *
+     * @return Computadores encontrados, ou todos se o texto for vazio.
+     */
+    public List<Computer> findComputersContaining(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new ArrayList<>(computers.list());
+        }
+        List<Computer> found = computers.search(text.trim());
+        List<Integer> deferred = repository.searchDeferredObservationIds(text);
+        if (!deferred.isEmpty()) {
+            Set<Computer> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            seen.addAll(found);
+            for (Integer id : deferred) {
+                Computer computer = computers.get(id);
+                if (computer != null && !computer.isObservationLoaded() && seen.add(computer)) {
+                    found.add(computer);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Retorna a observação do computador, lendo-a do banco (com cache) se ela
+     * não veio com a lista.
+     */
+    public String loadObservation(Computer computer) {
+        if (computer.isObservationLoaded()) {
+            return computer.getObservation();
         }
-        String lowerQuery = query.toLowerCase();
-        return computerList.stream().filter(computer -> computer.getTag().toLowerCase().contains(lowerQuery) ||
-                computer.getModel().toLowerCase().contains(lowerQuery) ||
-                computer.getBrand().toLowerCase().contains(lowerQuery) ||
-                computer.getUserName().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        return repository.loadObservation(computer.getId(), computer.getRowVersion());
     }
 
     public List<Computer> getComputersByLocation(String location) {
         if (location == null || location.trim().isEmpty()) {
-            return new ArrayList<>(computerList);
+            return new ArrayList<>(computers.list());
+        }
+        // Índice por localização mantido a cada alteração (ver ComputerIndex)
+        return computers.getByLocation(location);
+    }
+
+    /**
+     * @return Computadores do setor (sem diferenciar maiúsculas), ou todos se o
+     *         setor for vazio.
+     */
+    public List<Computer> getComputersBySector(String sector) {
+        if (sector == null || sector.trim().isEmpty()) {
+            return new ArrayList<>(computers.list());
         }
-        String loc = location.trim();
-        return computerList.stream()
-                .filter(computer -> computer.getLocation() != null
-                        && computer.getLocation().trim().equalsIgnoreCase(loc))
-                .collect(Collectors.toList());
+        return computers.getBySector(sector);
     }
 
     public List<String> getCompanies() {
-        return dbHelper.getCompanies();
+        return repository.getCompanies();
     }
 
     public boolean addCompany(String name) {
-        return dbHelper.addCompany(name);
+        return repository.addCompany(name);
     }
 
     public boolean deleteCompany(String name) {
-        return dbHelper.deleteCompany(name);
+        return repository.deleteCompany(name);
     }
 
     public void exportToCSV(List<Computer> computersToExport, String filePath) throws IOException {
@@ -236,76 +676,217 @@ public class InventoryController {
 
     }
 
-    public void backupData(String filePath) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("INVENTARIO\n");
-        sb.append(
-                "ETIQUETA TI;NOME DO PC;USUÁRIO;LOCALIZAÇÃO;SETOR;VERSÃO DO WINDOWS;VERSÃO DO OFFICE;MODELO;NÚMERO DE SÉRIE;DATA DE COMPRA;TEMPO DE USO;PATRIMÔNIO;OBSERVAÇÕES\n");
-        for (Computer computer : computerList) {
-            sb.append(formatCSV(computer)).append("\n");
+    /**
+     * Exporta para CSV os computadores que atendem ao filtro, lendo-os direto do
+     * banco (conexão de leitura) e gravando linha a linha. Não usa a lista em
+     * memória, então pode rodar em segundo plano enquanto o inventário é editado.
+     *
+     * @return Quantidade de computadores exportados.
+     */
+    public int exportToCSV(ComputerFilter filter, String filePath) throws IOException {
+        flushWrites();
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            writer.write('\uFEFF'); // BOM para Excel abrir UTF-8 corretamente
+            writer.write(
+                    "ETIQUETA TI;NOME DO PC;USUÁRIO;LOCALIZAÇÃO;SETOR;VERSÃO DO WINDOWS;VERSÃO DO OFFICE;MODELO;NÚMERO DE SÉRIE;DATA DE COMPRA;TEMPO DE USO;PATRIMÔNIO;OBSERVAÇÕES;STATUS\n");
+            return repository.forEachComputer(filter, computer -> {
+                try {
+                    writer.write(formatCSV(computer));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SQLException e) {
+            throw new IOException("Erro ao ler o banco de dados: " + e.getMessage(), e);
         }
+    }
 
-        sb.append("\nHISTORICO\n");
-        sb.append("Action;User;Timestamp;Description\n");
-        for (HistoryEntry history : historyList) {
-            sb.append(formatCSV(history)).append("\n");
+    /**
+     * Grava um backup completo do banco (todos os campos dos computadores,
+     * lixeira, histórico, usuários e empresas) pela API de backup online do
+     * SQLite. As edições continuam sendo aceitas durante a cópia, então pode
+     * rodar em segundo plano.
+     *
+     * @param progress Andamento da cópia (pode ser null).
+     */
+    public void backupDatabase(String filePath, BackupProgress progress) throws IOException {
+        flushWrites();
+        try {
+            repository.backup(Paths.get(filePath), progress);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
         }
+    }
 
-        Files.write(Paths.get(filePath), sb.toString().getBytes("UTF-8"));
+    /**
+     * Substitui o banco pelo conteúdo de um backup, depois de verificá-lo, e
+     * registra a restauração no histórico. Pode rodar em segundo plano; em
+     * seguida chame {@link #reload()} na thread da interface.
+     *
+     * @param progress Andamento da cópia (pode ser null).
+     */
+    public void restoreDatabase(String filePath, BackupProgress progress, String user) throws IOException {
+        if (!isValidUser(user)) {
+            return;
+        }
+        flushWrites();
+        try {
+            repository.restoreBackup(Paths.get(filePath), progress);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        statsService.invalidate();
+        addHistory(ActionType.EDITAR, user,
+                "Banco restaurado a partir do backup " + Paths.get(filePath).getFileName());
+    }
 
+    /**
+     * Recarrega do armazenamento a lista de computadores e os usuários, e
+     * descarta o histórico em memória (após uma restauração, por exemplo).
+     */
+    public void reload() {
+        lastDataVersion = repository.getDataVersion();
+        lastRowVersion = repository.getMaxRowVersion();
+        lastRestoreEpoch = repository.getRestoreEpoch();
+        computers.reset(repository.loadComputers());
+        historyList.clear();
+        historyLoaded = false;
+        users.clear();
+        users.addAll(repository.loadUsers());
+        statsService.invalidate();
     }
 
-    public void restoreData(String filePath) throws IOException {
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        boolean isInventory = false, isHistory = false;
+    /**
+     * Adiciona um registro de histórico, persistindo-o no banco.
+     */
+    public void addHistory(ActionType action, String user, String description) {
+        HistoryEntry entry = newHistory(action, user, description);
+        appendHistory(entry);
+        if (writeQueue != null) {
+            writeQueue.enqueueHistory(entry);
+        } else {
+            repository.insertHistory(entry);
+        }
+    }
 
-        computerList.clear();
-        historyList.clear();
+    private static HistoryEntry newHistory(ActionType action, String user, String description) {
+        return new HistoryEntry(action, user, LocalDateTime.now(), description);
+    }
 
-        for (String line : lines) {
-            if ("INVENTARIO".equalsIgnoreCase(line)) {
-                isInventory = true;
-                isHistory = false;
-            } else if ("HISTORICO".equalsIgnoreCase(line)) {
-                isInventory = false;
-                isHistory = true;
-            } else if (!line.isBlank() && !line.startsWith("Etiqueta") && !line.startsWith("Action")) {
-                if (isInventory) {
-                    computerList.add(parseComputer(line));
-                } else if (isHistory) {
-                    historyList.add(parseHistory(line));
-                }
-            }
+    /**
+     * Acrescenta à lista em memória um histórico já gravado (ou na fila).
+     */
+    private void appendHistory(HistoryEntry entry) {
+        if (historyLoaded) {
+            historyList.add(entry);
         }
+    }
 
+    /**
+     * Atualiza a lista de computadores com o que mudou no banco desde a última
+     * atualização (por esta ou outra estação). Se o data_version do banco não
+     * mudou, nenhuma consulta é feita; caso contrário, apenas os registros com
+     * row_version maior que a última vista são carregados e mesclados na lista.
+     * Se o banco foi restaurado de um backup desde então (época de restauração
+     * diferente), a lista é recarregada por inteiro: registros que não estão no
+     * backup não aparecem como alterados e ficariam na lista. No modo de gravação adiada, enquanto houver alterações na fila a lista em
+     * memória é a versão mais recente e não é atualizada.
+     */
+    public void refreshComputers() {
+        if (writeQueue != null && writeQueue.hasPending()) {
+            return;
+        }
+        long dataVersion = repository.getDataVersion();
+        if (dataVersion >= 0 && dataVersion == lastDataVersion) {
+            return;
+        }
+        long restoreEpoch = repository.getRestoreEpoch();
+        if (restoreEpoch >= 0 && restoreEpoch != lastRestoreEpoch) {
+            reload();
+            return;
+        }
+        mergeChanges(repository.loadComputersChangedSince(lastRowVersion));
+        lastDataVersion = dataVersion;
     }
 
     /**
-     * Adiciona um registro de histórico, persistindo-o no banco.
+     * Aplica à lista em memória os registros alterados: substitui os existentes,
+     * acrescenta os novos e remove os que foram para a lixeira.
      */
-    public void addHistory(ActionType action, String user, String description) {
-        HistoryEntry entry = new HistoryEntry(action, user, LocalDateTime.now(), description);
-        historyList.add(entry);
-        dbHelper.insertHistory(entry);
+    private void mergeChanges(List<Computer> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        statsService.invalidate();
+        for (Computer computer : changed) {
+            lastRowVersion = Math.max(lastRowVersion, computer.getRowVersion());
+            if (computer.isDeleted()) {
+                computers.remove(computer);
+            } else {
+                computers.put(computer);
+            }
+        }
+    }
+
+    /**
+     * Define quem é avisado quando a fila de gravação adiada descarta uma
+     * alteração já aceita. O aviso chega em outra thread: a interface deve
+     * chamar {@link #takeDroppedWrites()} na sua própria thread.
+     */
+    public void setDroppedWriteListener(Runnable listener) {
+        this.droppedWriteListener = listener;
+    }
 
+    private void writeDropped(WriteBehindQueue.DroppedWrite drop) {
+        droppedWrites.add(drop);
+        Runnable listener = droppedWriteListener;
+        if (listener != null) {
+            listener.run();
+        }
     }
 
     /**
-     * Atualiza a lista de computadores carregando-os novamente do banco de dados.
+     * Aplica à lista as alterações descartadas pela fila (conflito com outra
+     * estação ou erro ao gravar): cada registro volta a ser o que está no banco
+     * e o histórico não gravado sai da lista. Deve ser chamado na thread da
+     * interface.
+     *
+     * @return Mensagens para o usuário, uma por alteração descartada.
      */
-    public void refreshComputers() {
-        List<Computer> loaded = dbHelper.loadComputers();
-        computerList.clear();
-        computerList.addAll(loaded);
+    public List<String> takeDroppedWrites() {
+        List<String> messages = new ArrayList<>();
+        WriteBehindQueue.DroppedWrite drop;
+        while ((drop = droppedWrites.poll()) != null) {
+            Computer current = drop.getCurrent();
+            if (current != null && !current.isDeleted()) {
+                computers.replace(drop.getComputer(), current);
+            } else {
+                computers.remove(drop.getComputer());
+            }
+            if (drop.getHistory() != null) {
+                historyList.remove(drop.getHistory());
+            }
+            statsService.invalidate();
+            messages.add(drop.isConflict()
+                    ? drop.getMessage() + " A lista foi atualizada com a versão do banco; refaça a alteração."
+                    : drop.getMessage());
+        }
+        return messages;
     }
 
     public void refreshHistory() {
-        List<HistoryEntry> loaded = dbHelper.loadHistory();
+        flushWrites();
+        List<HistoryEntry> loaded = repository.loadHistory();
         historyList.clear();
         historyList.addAll(loaded);
+        historyLoaded = true;
     }
 
     private String formatCSV(Computer computer) {
+        String observation = loadObservation(computer);
         return String.format(
                 "\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\";\"%s\"",
                 computer.getTag(),
@@ -320,87 +901,18 @@ public class InventoryController {
                 computer.getPurchaseDate(),
                 computer.getDetailedUsageTime(),
                 computer.getPatrimony() != null ? computer.getPatrimony() : "",
-                computer.getObservation() != null ? computer.getObservation() : "",
+                observation != null ? observation : "",
                 computer.getActivityStatus() != null ? computer.getActivityStatus() : "Ativo");
     }
 
-    private String formatCSV(HistoryEntry history) {
-        return String.format("\"%s\";\"%s\";\"%s\";\"%s\"",
-                history.getAction(), history.getUser(), history.getTimestamp(), history.getDescription());
-    }
-
-    private Computer parseComputer(String line) {
-        String[] data = line.split(";", -1);
-        // Remove aspas
-        for (int i = 0; i < data.length; i++) {
-            data[i] = data[i].replace("\"", "");
-        }
-
-        // Verifica se é o novo formato com Tempo de Uso (13 colunas)
-        if (data.length >= 13) {
-            return new Computer(
-                    data[0], // etiqueta
-                    data[7], // modelo
-                    "", // marca
-                    "", // estado
-                    data[2], // usuario
-                    data[8], // serie
-                    data[5], // win
-                    data[6], // office
-                    data[9], // compra
-                    data[3], // localizacao
-                    data[12], // observacao (index 12)
-                    data[1], // hostname
-                    data[4], // setor
-                    data[11], // patrimonio (index 11)
-                    "Ativo" // Default status for existing backup
-            );
-        } else if (data.length >= 12) {
-            // Formato anterior (sem Tempo de Uso, mas com Patrimonio)
-            return new Computer(
-                    data[0], // etiqueta
-                    data[7], // modelo
-                    "", // marca
-                    "", // estado
-                    data[2], // usuario
-                    data[8], // serie
-                    data[5], // win
-                    data[6], // office
-                    data[9], // compra
-                    data[3], // localizacao
-                    data[11], // observacao
-                    data[1], // hostname
-                    data[4], // setor
-                    data[10], // patrimonio
-                    "Ativo");
-        } else {
-            // Formato antigo (compatibilidade)
-            String observation = "";
-            if (data.length > 10) {
-                observation = data[10];
-            }
-            return new Computer(
-                    data[0], // etiqueta
-                    data[1], // modelo
-                    data[2], // marca
-                    data[3], // estado
-                    data[4], // usuario
-                    data[5], // serie
-                    data[6], // win
-                    data[7], // office
-                    data[9], // compra
-                    data[8], // localizacao
-                    observation,
-                    "", "", "", // Novos campos vazios
-                    "Ativo");
-        }
-    }
-
-    private HistoryEntry parseHistory(String line) {
-        String[] data = line.split(";", -1);
-        return new HistoryEntry(ActionType.valueOf(data[0].replace("\"", "").toUpperCase()),
-                data[1].replace("\"", ""), LocalDateTime.parse(data[2].replace("\"", "")),
-                data[3].replace("\"", ""));
+    /**
+     * No modo de gravação adiada, espera a fila ser gravada antes de consultas
+     * que leem direto do banco.
+     */
+    private void flushWrites() {
+        if (writeQueue != null) {
+            writeQueue.flush();
+        }
     }
 
     private boolean isValidUser(String user) {
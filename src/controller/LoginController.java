@@ -4,21 +4,27 @@ import javax.swing.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import model.DatabaseHelper;
+import model.InventoryRepository;
 import model.User;
 
 public class LoginController {
 
-    private final DatabaseHelper dbHelper = new DatabaseHelper();
+    private final InventoryRepository repository;
     private String loggedInUser; // Armazena o usuário logado
 
     public LoginController() {
+        this(new DatabaseHelper());
+    }
+
+    public LoginController(InventoryRepository repository) {
+        this.repository = repository;
         // Garantir que a tabela de usuários está criada
-        dbHelper.createTable();
+        repository.createTable();
     }
 
     // Método para validar login
     public boolean login(String userName, String password) {
-        if (dbHelper.validateLogin(userName, password)) {
+        if (repository.validateLogin(userName, password)) {
             loggedInUser = userName; // Armazena o nome do usuário logado
             return true;
         }
@@ -32,10 +38,10 @@ public class LoginController {
 
     // Método para cadastrar novo usuário
     public String registerUser(String userName, String password) {
-        if (dbHelper.isUserExists(userName)) {
+        if (repository.isUserExists(userName)) {
             return "EXISTS";
         }
-        if (dbHelper.insertUser(userName, password)) {
+        if (repository.insertUser(userName, password)) {
             return "SUCCESS";
         } else {
             return "DB_ERROR";
@@ -44,8 +50,8 @@ public class LoginController {
 
     // Método para listar todos os usuários cadastrados
     public java.util.List<User> getUsers() {
-        // Supondo que o método dbHelper.getUsers() retorne um List<User>
-        return dbHelper.getUsers();
+        // Supondo que o método repository.getUsers() retorne um List<User>
+        return repository.getUsers();
     }
 
     // Método para excluir um usuário
@@ -53,14 +59,14 @@ public class LoginController {
         if ("admin".equals(userName)) {
             throw new IllegalArgumentException("O administrador não pode ser excluído.");
         }
-        if (!dbHelper.deleteUser(userName)) {
+        if (!repository.deleteUser(userName)) {
             System.err.println("Erro ao excluir usuário: " + userName);
         }
     }
 
     // Método para editar a senha de um usuário
     public void editUserPassword(String userName, String newPassword) {
-        if (!dbHelper.editUserPassword(userName, newPassword)) {
+        if (!repository.editUserPassword(userName, newPassword)) {
             System.err.println("Erro ao alterar senha para o usuário: " + userName);
         }
     }
@@ -106,6 +112,11 @@ public class LoginController {
         });
     }
 
+    // Método para obter informações de diagnóstico do banco (tela do administrador)
+    public java.util.Map<String, String> getDatabaseDiagnostics() {
+        return repository.getDiagnostics();
+    }
+
     // Método para obter o nome do usuário logado
     public String getLoggedInUser() {
         return loggedInUser;
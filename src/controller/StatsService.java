@@ -0,0 +1,76 @@
+package controller;
+
+import model.Computer;
+import model.InventoryRepository;
+import model.InventoryStats;
+
+import java.util.Collection;
+
+/**
+ * Classe StatsService - Mantém em cache as contagens da barra superior
+ * (total/ativos/inativos por localização), calculadas pelo armazenamento em
+ * uma única consulta agrupada. O cache só é descartado quando o inventário
+ * muda ({@link #invalidate()}); enquanto isso, exibir as contagens não custa
+ * nada, qualquer que seja o tamanho do inventário.
+ */
+final class StatsService {
+
+    private final InventoryRepository repository;
+    private InventoryStats cached;
+    /** Incrementado a cada invalidação, para descartar cálculos concorrentes. */
+    private long generation;
+
+    StatsService(InventoryRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return true se as contagens estão em cache (get() não consulta o banco).
+     */
+    synchronized boolean isCached() {
+        return cached != null;
+    }
+
+    /**
+     * @return Contagens atuais, do cache ou recalculadas.
+     */
+    InventoryStats get() {
+        long loadedGeneration;
+        synchronized (this) {
+            if (cached != null) {
+                return cached;
+            }
+            loadedGeneration = generation;
+        }
+        InventoryStats stats = repository.loadStats();
+        synchronized (this) {
+            // Uma alteração durante o cálculo torna o resultado suspeito: não fica
+            // em cache
+            if (generation == loadedGeneration) {
+                cached = stats;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Conta a lista em memória e guarda o resultado no cache. Usado enquanto a
+     * fila de gravação adiada tem alterações pendentes: o banco ainda não as
+     * tem, e esperar a fila gravar travaria a tela.
+     *
+     * @return Contagens da lista.
+     */
+    synchronized InventoryStats count(Collection<Computer> computers) {
+        cached = InventoryStats.count(computers);
+        generation++; // uma consulta ao banco em andamento não substitui estas contagens
+        return cached;
+    }
+
+    /**
+     * Descarta as contagens em cache (chamado a cada alteração do inventário).
+     */
+    synchronized void invalidate() {
+        cached = null;
+        generation++;
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Recebe o andamento de um backup ou restauração (ver
+ * {@link InventoryRepository#backup}). Chamado na thread que executa a cópia,
+ * após cada bloco de páginas.
+ */
+public interface BackupProgress {
+
+    /**
+     * @param copiedPages Páginas já copiadas.
+     * @param totalPages  Total de páginas do banco de origem.
+     */
+    void progress(int copiedPages, int totalPages);
+}
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de uma operação em lote: o ID de cada linha, na ordem de entrada,
+ * e as falhas individuais indexadas pela posição da linha.
+ */
+public class BatchResult {
+
+    private final List<Integer> ids = new ArrayList<>();
+    private final Map<Integer, String> failures = new TreeMap<>();
+
+    /**
+     * @return Resultado em que todas as linhas falharam com a mesma mensagem
+     *         (lote desfeito por inteiro).
+     */
+    public static BatchResult failed(int size, String message) {
+        BatchResult result = new BatchResult();
+        for (int i = 0; i < size; i++) {
+            result.addFailure(message);
+        }
+        return result;
+    }
+
+    void addSuccess(int id) {
+        ids.add(id);
+    }
+
+    void addFailure(String message) {
+        failures.put(ids.size(), message);
+        ids.add(0);
+    }
+
+    /**
+     * @return IDs das linhas na ordem de entrada; linhas com falha têm ID 0.
+     */
+    public List<Integer> getIds() {
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * @return Mensagens de erro indexadas pela posição da linha na entrada.
+     */
+    public Map<Integer, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public int getSuccessCount() {
+        return ids.size() - failures.size();
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -27,6 +27,8 @@ public class Computer {
     private String activityStatus = "Ativo"; // Padrão: Ativo
 
     private int id; // ID único do banco de dados
+    private long rowVersion; // Versão da linha no banco (row_version)
+    private boolean observationLoaded = true; // false: observação longa não carregada (ver DatabaseHelper)
 
     /**
      * Construtor vazio para Computer.
@@ -107,6 +109,18 @@ public class Computer {
         this.id = id;
     }
 
+    /**
+     * @return Versão do registro no banco quando foi carregado (0 se não veio do
+     *         banco).
+     */
+    public long getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     public String getTag() {
         return tag;
     }
@@ -193,6 +207,20 @@ public class Computer {
 
     public void setObservation(String observation) {
         this.observation = observation;
+        this.observationLoaded = true;
+    }
+
+    /**
+     * @return false se o computador foi carregado sem o texto da observação
+     *         (observações longas são lidas sob demanda); nesse caso
+     *         getObservation() retorna null.
+     */
+    public boolean isObservationLoaded() {
+        return observationLoaded;
+    }
+
+    public void setObservationLoaded(boolean observationLoaded) {
+        this.observationLoaded = observationLoaded;
     }
 
     public String getHostname() {
@@ -303,6 +331,28 @@ public class Computer {
         }
     }
 
+    /**
+     * Dois computadores são iguais quando representam o mesmo registro do banco
+     * (mesmo ID). Um computador ainda sem ID (não gravado) só é igual a si
+     * mesmo; por isso o hashCode muda quando o ID é atribuído, e coleções com
+     * hash devem receber o computador depois de gravado.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Computer)) {
+            return false;
+        }
+        return id > 0 && id == ((Computer) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id > 0 ? Integer.hashCode(id) : System.identityHashCode(this);
+    }
+
     @Override
     public String toString() {
         return "Computer{" +
@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Critérios de filtro para as consultas paginadas de computadores. Campos nulos
+ * ou vazios não filtram.
+ */
+public class ComputerFilter {
+
+    private boolean deleted; // false: inventário; true: lixeira
+    private String location;
+    private String activityStatus;
+
+    public ComputerFilter() {
+    }
+
+    public ComputerFilter(boolean deleted, String location, String activityStatus) {
+        this.deleted = deleted;
+        setLocation(location);
+        setActivityStatus(activityStatus);
+    }
+
+    /**
+     * @return Filtro que retorna os computadores da lixeira.
+     */
+    public static ComputerFilter recycleBin() {
+        return new ComputerFilter(true, null, null);
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = (location != null && !location.trim().isEmpty()) ? location.trim() : null;
+    }
+
+    public String getActivityStatus() {
+        return activityStatus;
+    }
+
+    public void setActivityStatus(String activityStatus) {
+        this.activityStatus = (activityStatus != null && !activityStatus.trim().isEmpty()) ? activityStatus.trim()
+                : null;
+    }
+
+    public boolean hasLocation() {
+        return location != null;
+    }
+
+    public boolean hasActivityStatus() {
+        return activityStatus != null;
+    }
+}
@@ -0,0 +1,98 @@
+package model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Filtros e pesquisa de computadores feitos em Java, para os armazenamentos
+ * sem SQL ({@link InMemoryInventoryRepository}, {@link LogInventoryRepository}).
+ * Reproduzem as regras das consultas do {@link DatabaseHelper}.
+ */
+final class ComputerQueries {
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private ComputerQueries() {
+    }
+
+    /**
+     * Equivalente à cláusula WHERE de DatabaseHelper.filterClause.
+     */
+    static boolean matches(Computer computer, ComputerFilter filter) {
+        if (computer.isDeleted() != filter.isDeleted()) {
+            return false;
+        }
+        if (filter.hasLocation()
+                && !filter.getLocation().equalsIgnoreCase(nullToEmpty(computer.getLocation()).trim())) {
+            return false;
+        }
+        return !filter.hasActivityStatus() || filter.getActivityStatus().equals(computer.getActivityStatus());
+    }
+
+    /**
+     * @return true se cada palavra pesquisada for prefixo de alguma palavra dos
+     *         campos indexados pelo FTS5 (computers_fts).
+     */
+    static boolean containsAllPrefixes(Computer computer, List<String> tokens) {
+        List<String> words = words(String.join(" ", nullToEmpty(computer.getTag()),
+                nullToEmpty(computer.getHostname()), nullToEmpty(computer.getUserName()),
+                nullToEmpty(computer.getModel()), nullToEmpty(computer.getBrand()),
+                nullToEmpty(computer.getSerialNumber()), nullToEmpty(computer.getSector()),
+                nullToEmpty(computer.getLocation()), nullToEmpty(computer.getPatrimony()),
+                nullToEmpty(computer.getObservation())));
+        for (String token : tokens) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Separa o texto em palavras minúsculas e sem acentos (como o tokenizador
+     * unicode61 remove_diacritics do FTS5).
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase();
+        for (String word : WORD_SEPARATOR.split(normalized)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    static Computer copy(Computer computer) {
+        Computer copy = new Computer(computer.getId(), computer.getTag(), computer.getModel(), computer.getBrand(),
+                computer.getState(), computer.getUserName(), computer.getSerialNumber(),
+                computer.getWindowsVersion(), computer.getOfficeVersion(), computer.getPurchaseDate(),
+                computer.getLocation(), computer.getObservation(), computer.getHostname(), computer.getSector(),
+                computer.getPatrimony(), computer.getActivityStatus());
+        copy.setDeleted(computer.isDeleted());
+        copy.setRowVersion(computer.getRowVersion());
+        return copy;
+    }
+
+    static HistoryEntry copy(HistoryEntry entry) {
+        return new HistoryEntry(entry.getAction(), entry.getUser(), entry.getTimestamp(), entry.getDescription());
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
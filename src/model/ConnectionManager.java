@@ -0,0 +1,428 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classe ConnectionManager - Mantém conexões SQLite de longa duração: uma
+ * conexão de escrita (serializada por um lock) e um pequeno pool de conexões de
+ * leitura.
+ *
+ * As conexões de leitura são abertas com PRAGMA query_only: qualquer tentativa
+ * de gravação por elas falha, garantindo que todas as escritas passem pela
+ * conexão única de escrita. Em modo WAL cada leitura enxerga um instantâneo
+ * (snapshot) do banco e não bloqueia a conexão de escrita, nem a de outras
+ * estações, mesmo que dure minutos (por exemplo, uma exportação grande). No
+ * perfil shared (journal_mode=DELETE, para unidades de rede) uma leitura em
+ * andamento faz as gravações aguardarem (busy_timeout).
+ *
+ * As conexões entregues aos chamadores são "empréstimos": chamar close() apenas
+ * devolve a conexão ao gerenciador, sem fechar o arquivo do banco. Assim o
+ * código existente que usa try-with-resources continua funcionando sem
+ * alterações. Com query.profiling ativo, os statements dos empréstimos e o
+ * tempo de espera por uma conexão são medidos ({@link QueryProfiler}).
+ */
+public class ConnectionManager {
+
+    /** Tempo máximo de espera por uma conexão de leitura livre. */
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+
+    /** Conexões ociosas por mais tempo que isso são validadas antes do uso. */
+    private static final long VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private static ConnectionManager instance;
+
+    private final String url;
+    private final int readerPoolSize;
+    private final StorageProfile profile;
+    private final int statementCacheSize;
+    private final int busyTimeoutMillis;
+    private final boolean profiling;
+
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private final PhysicalConnection writer;
+    /** Conexão dedicada a PRAGMA data_version, cujo valor é relativo à conexão. */
+    private final PhysicalConnection monitor;
+
+    private final LinkedBlockingQueue<PhysicalConnection> idleReaders = new LinkedBlockingQueue<>();
+    private final List<PhysicalConnection> allReaders = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    private ConnectionManager(String url, DatabaseConfig config) {
+        this.url = url;
+        this.readerPoolSize = Math.max(1, config.getReaderPoolSize());
+        this.profile = config.getStorageProfile();
+        this.statementCacheSize = config.getStatementCacheSize();
+        this.busyTimeoutMillis = config.getBusyTimeoutMillis();
+        this.profiling = config.isQueryProfiling();
+        QueryProfiler.setLargeTableRows(config.getLargeTableRows());
+        this.writer = new PhysicalConnection(false);
+        this.monitor = new PhysicalConnection(true);
+    }
+
+    /**
+     * Retorna o gerenciador compartilhado, criando-o na primeira chamada (ou
+     * após um shutdown).
+     *
+     * @param url    URL JDBC do banco.
+     * @param config Configuração (tamanho do pool, perfil de armazenamento e
+     *               tamanho do cache de statements).
+     * @return Gerenciador de conexões ativo.
+     */
+    public static synchronized ConnectionManager getInstance(String url, DatabaseConfig config) {
+        if (instance == null || instance.closed) {
+            instance = new ConnectionManager(url, config);
+        }
+        return instance;
+    }
+
+    /**
+     * Encerra o gerenciador compartilhado, se existir.
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Obtém a conexão de escrita. Apenas uma thread por vez pode usá-la; a mesma
+     * thread pode obtê-la novamente de forma reentrante.
+     *
+     * @return Empréstimo da conexão de escrita (close() a libera).
+     * @throws SQLException se o gerenciador estiver encerrado ou a conexão não
+     *                      puder ser aberta.
+     */
+    public Connection acquireWriter() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        writerLock.lock();
+        // Só a primeira aquisição espera; as reentrantes não contam
+        if (profiling && writerLock.getHoldCount() == 1) {
+            QueryProfiler.recordWait(true, System.nanoTime() - start);
+        }
+        try {
+            ensureOpen();
+            Connection physical = writer.ensureHealthy();
+            return lease(writer, () -> releaseWriter(physical));
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtém uma conexão de leitura do pool. Se a thread atual já detém a conexão
+     * de escrita, ela própria é devolvida, para que a leitura enxergue as
+     * alterações ainda não confirmadas da transação em andamento.
+     *
+     * @return Empréstimo de uma conexão de leitura (close() a devolve ao pool).
+     * @throws SQLException se não houver conexão disponível dentro do tempo
+     *                      limite.
+     */
+    public Connection acquireReader() throws SQLException {
+        ensureOpen();
+        if (writerLock.isHeldByCurrentThread()) {
+            return acquireWriter();
+        }
+
+        long start = System.nanoTime();
+        PhysicalConnection reader = idleReaders.poll();
+        if (reader == null) {
+            reader = createReaderIfAllowed();
+        }
+        if (reader == null) {
+            try {
+                reader = idleReaders.poll(ACQUIRE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrompido aguardando conexão de leitura.", e);
+            }
+            if (reader == null) {
+                throw new SQLException("Tempo esgotado aguardando conexão de leitura.");
+            }
+        }
+        if (profiling) {
+            QueryProfiler.recordWait(false, System.nanoTime() - start);
+        }
+
+        PhysicalConnection borrowed = reader;
+        try {
+            ensureOpen();
+            borrowed.ensureHealthy();
+            return lease(borrowed, () -> releaseReader(borrowed));
+        } catch (SQLException | RuntimeException e) {
+            releaseReader(borrowed);
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna o PRAGMA data_version da conexão de monitoramento. O valor muda
+     * sempre que outra conexão (deste ou de outro processo) confirma uma
+     * alteração no banco; comparar com a leitura anterior indica, sem consultar
+     * as tabelas, se há algo novo.
+     *
+     * @return Valor atual de data_version.
+     * @throws SQLException se o gerenciador estiver encerrado ou a leitura falhar.
+     */
+    public synchronized long dataVersion() throws SQLException {
+        ensureOpen();
+        Connection conn = monitor.ensureHealthy();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Fecha todas as conexões. Empréstimos em andamento são encerrados quando
+     * devolvidos.
+     */
+    public void shutdown() {
+        closed = true;
+        writerLock.lock();
+        try {
+            writer.closeQuietly();
+        } finally {
+            writerLock.unlock();
+        }
+        synchronized (allReaders) {
+            for (PhysicalConnection reader : allReaders) {
+                reader.closeQuietly();
+            }
+            allReaders.clear();
+        }
+        idleReaders.clear();
+        synchronized (this) {
+            monitor.closeQuietly();
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getReaderPoolSize() {
+        return readerPoolSize;
+    }
+
+    public StorageProfile getProfile() {
+        return profile;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private PhysicalConnection createReaderIfAllowed() {
+        synchronized (allReaders) {
+            if (allReaders.size() >= readerPoolSize) {
+                return null;
+            }
+            PhysicalConnection reader = new PhysicalConnection(true);
+            allReaders.add(reader);
+            return reader;
+        }
+    }
+
+    private void releaseWriter(Connection physical) {
+        try {
+            // Em empréstimos reentrantes, só o mais externo encerra a transação
+            if (writerLock.getHoldCount() == 1) {
+                resetState(physical);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void releaseReader(PhysicalConnection reader) {
+        Connection physical = reader.connection;
+        if (physical != null) {
+            resetState(physical);
+        }
+        if (closed) {
+            reader.closeQuietly();
+        } else {
+            idleReaders.offer(reader);
+        }
+    }
+
+    /**
+     * Desfaz transações deixadas abertas por um chamador (por exemplo, após uma
+     * exceção) antes de a conexão voltar a ser usada.
+     */
+    private void resetState(Connection physical) {
+        try {
+            if (!physical.isClosed() && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao restaurar estado da conexão: " + e.getMessage());
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Gerenciador de conexões encerrado.");
+        }
+    }
+
+    private Connection lease(PhysicalConnection physical, Runnable onClose) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler(physical.connection, physical.statements, profiling, onClose));
+    }
+
+    /**
+     * Conexão física mantida pelo gerenciador, reaberta automaticamente quando
+     * falha na verificação de saúde.
+     */
+    private class PhysicalConnection {
+        private final boolean readOnly;
+        private Connection connection;
+        private StatementCache statements;
+        private long lastUsed;
+
+        PhysicalConnection(boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+
+        Connection ensureHealthy() throws SQLException {
+            long now = System.currentTimeMillis();
+            if (connection == null || connection.isClosed()) {
+                open();
+            } else if (now - lastUsed > VALIDATION_INTERVAL_MILLIS && !isHealthy()) {
+                closeQuietly();
+                open();
+            }
+            lastUsed = now;
+            return connection;
+        }
+
+        private void open() throws SQLException {
+            Connection conn = DriverManager.getConnection(url);
+            try {
+                // Os PRAGMAs do perfil valem por conexão: aplicados uma vez, na abertura
+                profile.apply(conn);
+                // Espera pelo lock de outras estações em vez de falhar de imediato
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+                    if (readOnly) {
+                        stmt.execute("PRAGMA query_only = ON");
+                    }
+                }
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            connection = conn;
+            statements = new StatementCache(conn, statementCacheSize);
+        }
+
+        private boolean isHealthy() {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SELECT 1");
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Conexão inválida, reabrindo: " + e.getMessage());
+                return false;
+            }
+        }
+
+        void closeQuietly() {
+            if (statements != null) {
+                statements.closeAll();
+                statements = null;
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Erro ao fechar conexão: " + e.getMessage());
+                }
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Encaminha todas as chamadas para a conexão física, exceto close(), que
+     * devolve a conexão ao gerenciador, e prepareStatement(String), atendido
+     * pelo cache de statements da conexão. Com a medição ativa, os statements
+     * entregues são envolvidos pelo {@link QueryProfiler}.
+     */
+    private static class LeaseHandler implements InvocationHandler {
+        private final Connection physical;
+        private final StatementCache statements;
+        private final boolean profiling;
+        private final Runnable onClose;
+        private boolean released;
+
+        LeaseHandler(Connection physical, StatementCache statements, boolean profiling, Runnable onClose) {
+            this.physical = physical;
+            this.statements = statements;
+            this.profiling = profiling;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        onClose.run();
+                    }
+                    return null;
+                case "isClosed":
+                    return released || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Lease[" + physical + "]";
+                default:
+                    if (released) {
+                        throw new SQLException("Conexão já devolvida ao gerenciador.");
+                    }
+                    Object result;
+                    if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                        result = statements.prepare((String) args[0]);
+                    } else {
+                        try {
+                            result = method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    if (profiling && result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+                        return QueryProfiler.wrap((PreparedStatement) result, (String) args[0], physical);
+                    }
+                    if (profiling && result instanceof Statement && "createStatement".equals(method.getName())) {
+                        return QueryProfiler.wrap((Statement) result, physical);
+                    }
+                    return result;
+            }
+        }
+    }
+}
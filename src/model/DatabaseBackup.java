@@ -0,0 +1,237 @@
+package model;
+
+import org.sqlite.SQLiteConnection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Classe DatabaseBackup - Backup e restauração do banco inteiro pela API de
+ * backup online do SQLite (sqlite3_backup_*), exposta pelo sqlite-jdbc.
+ *
+ * O backup copia as páginas do banco em blocos (PAGES_PER_STEP) a partir de
+ * uma conexão de leitura, dentro de uma transação de leitura: em modo WAL
+ * todos os blocos vêm do mesmo instantâneo, enquanto a conexão de escrita
+ * continua atendendo as alterações. A cópia é feita em um arquivo temporário,
+ * que só substitui o destino depois de passar no PRAGMA integrity_check.
+ *
+ * A restauração valida o arquivo (integrity_check e tabelas esperadas) antes
+ * de tocar no banco em uso, copia-o pela conexão de escrita e aplica as
+ * migrações pendentes, caso o backup seja de uma versão anterior do esquema.
+ * Em seguida incrementa a época de restauração (metadata.restore_epoch): os
+ * registros que existiam só no banco substituído somem sem deixar versão nova,
+ * e é a mudança da época que avisa as outras estações para recarregar tudo.
+ */
+final class DatabaseBackup {
+
+    /** Páginas copiadas por passo (4 MB com páginas de 4 KB). */
+    private static final int PAGES_PER_STEP = 1024;
+    /** Espera entre tentativas quando o banco está bloqueado. */
+    private static final int BUSY_SLEEP_MILLIS = 100;
+    /** Tentativas seguidas com o banco bloqueado antes de desistir. */
+    private static final int BUSY_ATTEMPTS = 100;
+
+    private static final String[] REQUIRED_TABLES = { "computers", "history", "users" };
+
+    private static final String RESTORE_EPOCH = "restore_epoch";
+
+    private DatabaseBackup() {
+    }
+
+    /**
+     * Copia o banco para o arquivo de destino (substituindo-o, se existir).
+     *
+     * @param target   Arquivo de backup.
+     * @param progress Andamento da cópia (pode ser null).
+     * @throws SQLException se a cópia ou a verificação falhar; nesse caso o
+     *                      destino não é alterado.
+     */
+    static void backup(Path target, BackupProgress progress) throws SQLException {
+        Path absolute = target.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(temp);
+            Connection conn = DatabaseHelper.connectReader();
+            if (conn == null) {
+                throw new SQLException("Conexão de leitura indisponível.");
+            }
+            try (conn) {
+                // Transação de leitura aberta durante toda a cópia: os passos leem o
+                // mesmo instantâneo (WAL) e a cópia não recomeça a cada gravação
+                // feita pela conexão de escrita ou por outras estações
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement();
+                        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                    rs.next();
+                }
+                int result = conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", temp.toString(),
+                        observer(progress), BUSY_SLEEP_MILLIS, BUSY_ATTEMPTS, PAGES_PER_STEP);
+                conn.rollback();
+                checkResult(result, "Falha no backup do banco");
+            }
+            // O cabeçalho copiado mantém o modo do banco (WAL, se for o caso); o
+            // backup vira um arquivo único
+            try (Connection copy = open(temp);
+                    Statement stmt = copy.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = DELETE");
+            }
+            verify(temp);
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new SQLException("Erro ao gravar o backup: " + e.getMessage(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                System.err.println("Erro ao apagar " + temp + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Substitui o conteúdo do banco pelo do arquivo de backup, depois de
+     * validá-lo. As versões de linha restauradas são deslocadas para depois da
+     * última versão atribuída (contador de metadata), para que as outras estações (e
+     * {@code loadComputersChangedSince}) as vejam como alteradas, e a época de
+     * restauração passa a ser maior que a do banco substituído e a do backup.
+     *
+     * @param source   Arquivo de backup.
+     * @param progress Andamento da cópia (pode ser null).
+     * @throws SQLException se o arquivo for inválido ou a cópia falhar.
+     */
+    static void restore(Path source, BackupProgress progress) throws SQLException {
+        if (!Files.isRegularFile(source)) {
+            throw new SQLException("Arquivo de backup não encontrado: " + source);
+        }
+        verify(source);
+        // Versão e época do banco substituído, lidas uma única vez: se a tentativa
+        // for repetida (banco ocupado), o banco já pode ser o restaurado
+        long[] previous = { -1, -1 };
+        DatabaseHelper.withBusyRetry(conn -> {
+            if (previous[0] < 0) {
+                previous[0] = DatabaseHelper.readRowVersionCounter(conn);
+                previous[1] = readRestoreEpoch(conn);
+            }
+            int result = conn.unwrap(SQLiteConnection.class).getDatabase().restore("main",
+                    source.toAbsolutePath().toString(), observer(progress), BUSY_SLEEP_MILLIS, BUSY_ATTEMPTS,
+                    PAGES_PER_STEP);
+            checkResult(result, "Falha na restauração do banco");
+            // Migrações, deslocamento das versões e época juntos: ou o banco
+            // restaurado fica completo, ou a tentativa seguinte refaz tudo
+            conn.setAutoCommit(false);
+            try {
+                SchemaMigrator.migrateInTransaction(conn);
+                long restoredCounter = DatabaseHelper.readRowVersionCounter(conn);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE computers SET row_version = row_version + ?")) {
+                    stmt.setLong(1, previous[0]);
+                    stmt.executeUpdate();
+                }
+                writeRowVersionCounter(conn, restoredCounter + previous[0]);
+                writeRestoreEpoch(conn, Math.max(previous[1], readRestoreEpoch(conn)) + 1);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("PRAGMA quick_check")) {
+                String check = rs.next() ? rs.getString(1) : "";
+                if (!"ok".equalsIgnoreCase(check)) {
+                    throw new SQLException("Banco inconsistente após a restauração: " + check);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Confere um arquivo de backup: PRAGMA integrity_check e presença das
+     * tabelas principais.
+     */
+    static void verify(Path file) throws SQLException {
+        try (Connection conn = open(file);
+                Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                String check = rs.next() ? rs.getString(1) : "";
+                if (!"ok".equalsIgnoreCase(check)) {
+                    throw new SQLException("Backup corrompido (" + file.getFileName() + "): " + check);
+                }
+            }
+            for (String table : REQUIRED_TABLES) {
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+                    if (!rs.next()) {
+                        throw new SQLException("O arquivo " + file.getFileName()
+                                + " não é um backup do inventário (tabela " + table + " ausente).");
+                    }
+                }
+            }
+            int version = SchemaMigrator.readVersion(conn);
+            if (version > SchemaMigrator.latestVersion()) {
+                throw new SQLException("O backup é de uma versão mais nova do programa (esquema " + version + ").");
+            }
+        }
+    }
+
+    private static Connection open(Path file) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+    }
+
+    /**
+     * @return Época de restauração do banco (0 se nunca foi restaurado).
+     */
+    static long readRestoreEpoch(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT value FROM metadata WHERE name = ?")) {
+            stmt.setString(1, RESTORE_EPOCH);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void writeRestoreEpoch(Connection conn, long epoch) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT OR REPLACE INTO metadata(name, value) VALUES(?, ?)")) {
+            stmt.setString(1, RESTORE_EPOCH);
+            stmt.setLong(2, epoch);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void writeRowVersionCounter(Connection conn, long version) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT OR REPLACE INTO metadata(name, value) VALUES(?, ?)")) {
+            stmt.setString(1, DatabaseHelper.ROW_VERSION_KEY);
+            stmt.setLong(2, version);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * O sqlite-jdbc informa páginas restantes e total; BackupProgress recebe
+     * páginas copiadas e total.
+     */
+    private static org.sqlite.core.DB.ProgressObserver observer(BackupProgress progress) {
+        if (progress == null) {
+            return null;
+        }
+        return (remaining, total) -> progress.progress(total - remaining, total);
+    }
+
+    private static void checkResult(int result, String message) throws SQLException {
+        if (result != 0) { // SQLITE_OK
+            throw new SQLException(message + " (código SQLite " + result + ").", null, result);
+        }
+    }
+}
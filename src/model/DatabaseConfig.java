@@ -0,0 +1,374 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Classe DatabaseConfig - Lê as configurações do banco de dados a partir do
+ * arquivo database.properties (no diretório de trabalho, ao lado de
+ * computers.db). Chaves ausentes ou inválidas usam os valores padrão.
+ *
+ * Exemplo:
+ *
+ * <pre>
+ * storage.engine=sqlite
+ * storage.profile=balanced
+ * pool.readers=2
+ * statement.cache.size=64
+ * batch.chunkSize=500
+ * write.mode=behind
+ * write.queue.capacity=1000
+ * write.group.size=100
+ * write.group.maxDelayMillis=200
+ * write.journal=computers.writes.journal
+ * busy.timeoutMillis=5000
+ * busy.retries=5
+ * log.file=computers.log
+ * log.compaction.percent=50
+ * recycleBin.retentionDays=90
+ * maintenance.intervalMinutes=60
+ * maintenance.vacuumPages=2000
+ * maintenance.convertAutoVacuum=false
+ * query.profiling=true
+ * query.profiling.largeTableRows=10000
+ * </pre>
+ *
+ * storage.profile escolhe os PRAGMAs ({@link StorageProfile}): shared (padrão)
+ * usa o diário de reversão (journal_mode=DELETE), o mesmo das versões
+ * anteriores, e funciona com o computers.db em uma unidade de rede acessada por
+ * várias máquinas; safe, balanced e throughput usam WAL, que não funciona em
+ * sistemas de arquivos de rede, e só devem ser escolhidos quando todas as
+ * estações rodam no mesmo computador.
+ * write.mode=sync (padrão) grava cada alteração antes de retornar;
+ * write.mode=behind usa a fila de gravação adiada ({@link WriteBehindQueue}).
+ * storage.engine=memory mantém o inventário apenas em memória
+ * ({@link InMemoryInventoryRepository}), sem gravar em disco;
+ * storage.engine=log grava computadores e histórico em um log de registros
+ * mapeado em memória ({@link LogInventoryRepository}).
+ * recycleBin.retentionDays=0 (padrão) mantém os computadores na lixeira
+ * indefinidamente; com N maior que zero, a manutenção periódica
+ * ({@link DatabaseMaintenance}) os remove N dias depois da exclusão.
+ * maintenance.convertAutoVacuum=true converte, na próxima manutenção, um banco
+ * criado sem auto_vacuum=INCREMENTAL (VACUUM completo: as gravações de todas as
+ * estações esperam até o fim e o disco precisa de cerca do dobro do tamanho do
+ * arquivo); o padrão (false) deixa o banco como está.
+ * query.profiling=true (padrão) mede os statements executados no SQLite
+ * ({@link QueryProfiler}), exibidos na tela de diagnóstico.
+ */
+public class DatabaseConfig {
+
+    public static final String CONFIG_FILE = "database.properties";
+
+    public static final String ENGINE_SQLITE = "sqlite";
+    public static final String ENGINE_MEMORY = "memory";
+    public static final String ENGINE_LOG = "log";
+
+    private static final StorageProfile DEFAULT_PROFILE = StorageProfile.SHARED;
+    private static final int DEFAULT_READER_POOL_SIZE = 2;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+    private static final int DEFAULT_WRITE_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_WRITE_GROUP_SIZE = 100;
+    private static final int DEFAULT_WRITE_GROUP_MAX_DELAY = 200;
+    private static final String DEFAULT_WRITE_JOURNAL = "computers.writes.journal";
+    private static final int DEFAULT_BUSY_TIMEOUT = 5000;
+    private static final int DEFAULT_BUSY_RETRIES = 5;
+    private static final String DEFAULT_LOG_FILE = "computers.log";
+    private static final int DEFAULT_LOG_COMPACTION_PERCENT = 50;
+    private static final int DEFAULT_RECYCLE_BIN_RETENTION_DAYS = 0;
+    private static final int DEFAULT_MAINTENANCE_INTERVAL = 60;
+    private static final int DEFAULT_MAINTENANCE_VACUUM_PAGES = 2000;
+    private static final int DEFAULT_LARGE_TABLE_ROWS = 10_000;
+
+    private static DatabaseConfig current;
+
+    private final String storageEngine;
+    private final StorageProfile storageProfile;
+    private final int readerPoolSize;
+    private final int statementCacheSize;
+    private final int batchChunkSize;
+    private final boolean writeBehind;
+    private final int writeQueueCapacity;
+    private final int writeGroupSize;
+    private final int writeGroupMaxDelayMillis;
+    private final String writeJournal;
+    private final int busyTimeoutMillis;
+    private final int busyRetries;
+    private final String logFile;
+    private final int logCompactionPercent;
+    private final int recycleBinRetentionDays;
+    private final int maintenanceIntervalMinutes;
+    private final int maintenanceVacuumPages;
+    private final boolean maintenanceConvertAutoVacuum;
+    private final boolean queryProfiling;
+    private final int largeTableRows;
+    private final String source;
+
+    private DatabaseConfig(Properties props, String source) {
+        this.source = source;
+        this.storageEngine = parseStorageEngine(props.getProperty("storage.engine"));
+        this.storageProfile = parseProfile(props.getProperty("storage.profile"));
+        this.readerPoolSize = parseInt(props, "pool.readers", DEFAULT_READER_POOL_SIZE, 1);
+        this.statementCacheSize = parseInt(props, "statement.cache.size", DEFAULT_STATEMENT_CACHE_SIZE, 1);
+        this.batchChunkSize = parseInt(props, "batch.chunkSize", DEFAULT_BATCH_CHUNK_SIZE, 1);
+        this.writeBehind = parseWriteMode(props.getProperty("write.mode"));
+        this.writeQueueCapacity = parseInt(props, "write.queue.capacity", DEFAULT_WRITE_QUEUE_CAPACITY, 1);
+        this.writeGroupSize = parseInt(props, "write.group.size", DEFAULT_WRITE_GROUP_SIZE, 1);
+        this.writeGroupMaxDelayMillis = parseInt(props, "write.group.maxDelayMillis",
+                DEFAULT_WRITE_GROUP_MAX_DELAY, 0);
+        String journal = props.getProperty("write.journal");
+        this.writeJournal = (journal != null && !journal.isBlank()) ? journal.trim() : DEFAULT_WRITE_JOURNAL;
+        this.busyTimeoutMillis = parseInt(props, "busy.timeoutMillis", DEFAULT_BUSY_TIMEOUT, 0);
+        this.busyRetries = parseInt(props, "busy.retries", DEFAULT_BUSY_RETRIES, 0);
+        String log = props.getProperty("log.file");
+        this.logFile = (log != null && !log.isBlank()) ? log.trim() : DEFAULT_LOG_FILE;
+        this.logCompactionPercent = Math.min(100,
+                parseInt(props, "log.compaction.percent", DEFAULT_LOG_COMPACTION_PERCENT, 1));
+        this.recycleBinRetentionDays = parseInt(props, "recycleBin.retentionDays",
+                DEFAULT_RECYCLE_BIN_RETENTION_DAYS, 0);
+        this.maintenanceIntervalMinutes = parseInt(props, "maintenance.intervalMinutes",
+                DEFAULT_MAINTENANCE_INTERVAL, 0);
+        this.maintenanceVacuumPages = parseInt(props, "maintenance.vacuumPages", DEFAULT_MAINTENANCE_VACUUM_PAGES,
+                1);
+        this.maintenanceConvertAutoVacuum = "true".equalsIgnoreCase(
+                props.getProperty("maintenance.convertAutoVacuum", "").trim());
+        this.queryProfiling = !"false".equalsIgnoreCase(props.getProperty("query.profiling", "").trim());
+        this.largeTableRows = parseInt(props, "query.profiling.largeTableRows", DEFAULT_LARGE_TABLE_ROWS, 0);
+    }
+
+    /**
+     * Retorna a configuração carregada, lendo o arquivo na primeira chamada.
+     *
+     * @return Configuração atual.
+     */
+    public static synchronized DatabaseConfig get() {
+        if (current == null) {
+            current = load(Paths.get(CONFIG_FILE));
+        }
+        return current;
+    }
+
+    /**
+     * Carrega a configuração de um arquivo. Se o arquivo não existir ou não puder
+     * ser lido, retorna a configuração padrão.
+     *
+     * @param path Caminho do arquivo de propriedades.
+     * @return Configuração lida.
+     */
+    public static DatabaseConfig load(Path path) {
+        Properties props = new Properties();
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                props.load(in);
+                return new DatabaseConfig(props, path.toAbsolutePath().toString());
+            } catch (IOException e) {
+                System.err.println("Erro ao ler " + path + ": " + e.getMessage());
+            }
+        }
+        return new DatabaseConfig(props, "padrão");
+    }
+
+    private static StorageProfile parseProfile(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_PROFILE;
+        }
+        try {
+            return StorageProfile.fromName(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ". Usando '" + DEFAULT_PROFILE.getConfigName() + "'.");
+            return DEFAULT_PROFILE;
+        }
+    }
+
+    private static String parseStorageEngine(String value) {
+        if (value == null || value.isBlank()) {
+            return ENGINE_SQLITE;
+        }
+        String engine = value.trim().toLowerCase();
+        if (ENGINE_SQLITE.equals(engine) || ENGINE_MEMORY.equals(engine) || ENGINE_LOG.equals(engine)) {
+            return engine;
+        }
+        System.err.println("Valor inválido para storage.engine: " + value + ". Usando '" + ENGINE_SQLITE + "'.");
+        return ENGINE_SQLITE;
+    }
+
+    private static boolean parseWriteMode(String value) {
+        if (value == null || value.isBlank() || "sync".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        if ("behind".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+        System.err.println("Valor inválido para write.mode: " + value + ". Usando 'sync'.");
+        return false;
+    }
+
+    private static int parseInt(Properties props, String key, int defaultValue, int min) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(min, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return Mecanismo de armazenamento (ENGINE_SQLITE, ENGINE_MEMORY ou
+     *         ENGINE_LOG).
+     */
+    public String getStorageEngine() {
+        return storageEngine;
+    }
+
+    public StorageProfile getStorageProfile() {
+        return storageProfile;
+    }
+
+    public int getReaderPoolSize() {
+        return readerPoolSize;
+    }
+
+    /**
+     * @return Quantidade máxima de statements preparados mantidos por conexão.
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * @return Quantidade de linhas por executeBatch nas operações em lote.
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * @return true se as alterações devem passar pela fila de gravação adiada.
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * @return Quantidade máxima de operações aguardando gravação.
+     */
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    /**
+     * @return Quantidade máxima de operações por transação da fila.
+     */
+    public int getWriteGroupSize() {
+        return writeGroupSize;
+    }
+
+    /**
+     * @return Tempo máximo, em milissegundos, que a primeira operação de um grupo
+     *         espera por outras antes do commit.
+     */
+    public int getWriteGroupMaxDelayMillis() {
+        return writeGroupMaxDelayMillis;
+    }
+
+    /**
+     * @return Arquivo do diário da fila de gravação adiada.
+     */
+    public String getWriteJournal() {
+        return writeJournal;
+    }
+
+    /**
+     * @return Tempo que o SQLite espera por um lock de outra conexão antes de
+     *         retornar SQLITE_BUSY (PRAGMA busy_timeout).
+     */
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    /**
+     * @return Quantidade de novas tentativas, com espera crescente, de uma
+     *         gravação que falhou com SQLITE_BUSY.
+     */
+    public int getBusyRetries() {
+        return busyRetries;
+    }
+
+    /**
+     * @return Nome base dos arquivos do log de registros (storage.engine=log).
+     */
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * @return Percentual do log ocupado por registros substituídos a partir do
+     *         qual ele é compactado.
+     */
+    public int getLogCompactionPercent() {
+        return logCompactionPercent;
+    }
+
+    /**
+     * @return Dias que um computador fica na lixeira antes de ser removido
+     *         definitivamente (0: nunca).
+     */
+    public int getRecycleBinRetentionDays() {
+        return recycleBinRetentionDays;
+    }
+
+    /**
+     * @return Intervalo, em minutos, entre as execuções da manutenção do banco
+     *         (0: desativada).
+     */
+    public int getMaintenanceIntervalMinutes() {
+        return maintenanceIntervalMinutes;
+    }
+
+    /**
+     * @return Quantidade máxima de páginas livres devolvidas ao sistema por
+     *         execução (PRAGMA incremental_vacuum).
+     */
+    public int getMaintenanceVacuumPages() {
+        return maintenanceVacuumPages;
+    }
+
+    /**
+     * @return true se a manutenção deve converter o banco para
+     *         auto_vacuum=INCREMENTAL (VACUUM completo, uma única vez).
+     */
+    public boolean isMaintenanceConvertAutoVacuum() {
+        return maintenanceConvertAutoVacuum;
+    }
+
+    /**
+     * @return true se os statements do SQLite são medidos
+     *         ({@link QueryProfiler}).
+     */
+    public boolean isQueryProfiling() {
+        return queryProfiling;
+    }
+
+    /**
+     * @return Linhas a partir das quais uma varredura completa da tabela é
+     *         destacada no diagnóstico.
+     */
+    public int getLargeTableRows() {
+        return largeTableRows;
+    }
+
+    /**
+     * @return Caminho do arquivo lido, ou "padrão" se nenhum foi encontrado.
+     */
+    public String getSource() {
+        return source;
+    }
+}
@@ -1,26 +1,106 @@
 package model;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.time.LocalDateTime;
 
 /**
  * Classe DatabaseHelper - Gerencia as operações do banco de dados para
  * computadores, usuários e histórico.
  */
-public class DatabaseHelper {
+public class DatabaseHelper implements InventoryRepository {
 
     private static final String DB_URL = "jdbc:sqlite:computers.db";
 
+    // Toda gravação em computers recebe a próxima versão global e a data atual
+    // (ver loadComputersChangedSince). A versão vem do contador de metadata, que
+    // os gatilhos da migração 10 avançam: MAX(row_version) voltaria atrás quando
+    // a lixeira é esvaziada, e versões já vistas seriam reutilizadas
+    static final String ROW_VERSION_KEY = "row_version";
+    private static final String NEXT_ROW_VERSION = "(SELECT value + 1 FROM metadata WHERE name = '"
+            + ROW_VERSION_KEY + "')";
+    private static final String NOW = "strftime('%Y-%m-%dT%H:%M:%f', 'now', 'localtime')";
+
+    private static final String INSERT_COMPUTER_SQL = "INSERT INTO computers(tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, observation, hostname, sector, patrimony, is_deleted, activity_status, row_version, updated_at) "
+            +
+            "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " + NEXT_ROW_VERSION + ", " + NOW + ")";
+
+    private static final String UPDATE_COMPUTER_SQL = "UPDATE computers SET tag = ?, serial_number = ?, model = ?, brand = ?, state = ?, "
+            +
+            "user_name = ?, windows_version = ?, office_version = ?, location = ?, purchase_date = ?, observation = COALESCE(?, observation), "
+            +
+            "hostname = ?, sector = ?, patrimony = ?, activity_status = ?, "
+            +
+            "row_version = " + NEXT_ROW_VERSION + ", updated_at = " + NOW + " "
+            +
+            "WHERE id = ?";
+
+    // Grava apenas se ninguém alterou o registro desde que foi carregado
+    private static final String UPDATE_COMPUTER_IF_VERSION_SQL = UPDATE_COMPUTER_SQL + " AND row_version = ?";
+
+    /** Espera antes da primeira nova tentativa após SQLITE_BUSY; dobra a cada vez. */
+    private static final long BUSY_RETRY_BASE_MILLIS = 50;
+
+    private static final String COMPUTER_COLUMNS = "id, tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, observation, hostname, sector, patrimony, is_deleted, activity_status, row_version";
+
+    /**
+     * Observações até este tamanho (em bytes) vêm junto com a lista; as maiores
+     * ficam no banco até serem pedidas (loadObservation).
+     */
+    private static final int INLINE_OBSERVATION_BYTES = 512;
+
+    // Colunas usadas pela lista e pela tabela: a observação só é trazida quando é
+    // curta. octet_length() é lido do cabeçalho do registro, sem carregar o texto
+    // (length() contaria os caracteres, lendo as páginas de overflow)
+    private static final String LIST_COLUMNS = "id, tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, hostname, sector, patrimony, is_deleted, activity_status, row_version, "
+            + "CASE WHEN octet_length(observation) <= " + INLINE_OBSERVATION_BYTES + " THEN observation END AS observation, "
+            + "octet_length(observation) > " + INLINE_OBSERVATION_BYTES + " AS observation_deferred";
+
+    private static final int OBSERVATION_CACHE_SIZE = 32;
+
+    /** Observações longas lidas recentemente, por id (válidas para uma row_version). */
+    private static final Map<Integer, CachedObservation> observationCache = new LinkedHashMap<>(16, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedObservation> eldest) {
+            return size() > OBSERVATION_CACHE_SIZE;
+        }
+    };
+
+    private static final class CachedObservation {
+        final long rowVersion;
+        final String text;
+
+        CachedObservation(long rowVersion, String text) {
+            this.rowVersion = rowVersion;
+            this.text = text;
+        }
+    }
+
+    /** Indica que as migrações já foram verificadas neste processo. */
+    private static boolean schemaReady;
+
+    private static ConnectionManager connectionManager() {
+        return ConnectionManager.getInstance(DB_URL, DatabaseConfig.get());
+    }
+
     /**
-     * Conecta ao banco de dados SQLite.
+     * Conecta ao banco de dados SQLite usando a conexão de escrita persistente.
+     * Fechar a conexão retornada apenas a devolve ao gerenciador.
      *
      * @return Conexão ativa ou null em caso de erro.
      */
     public static Connection connect() {
         try {
-            return DriverManager.getConnection(DB_URL);
+            return connectionManager().acquireWriter();
         } catch (SQLException e) {
             System.err.println("Erro ao conectar ao banco de dados: " + e.getMessage());
             return null;
@@ -28,171 +108,230 @@ public class DatabaseHelper {
     }
 
     /**
-     * Cria tabelas no banco de dados, se não existirem.
+     * Obtém uma conexão do pool de leitura. Fechar a conexão retornada apenas a
+     * devolve ao pool.
+     *
+     * @return Conexão ativa ou null em caso de erro.
      */
-    public void createTable() {
-        String computerTableSQL = "CREATE TABLE IF NOT EXISTS computers (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "tag TEXT, " +
-                "serial_number TEXT, " +
-                "model TEXT, " +
-                "brand TEXT, " +
-                "state TEXT, " +
-                "user_name TEXT, " +
-                "windows_version TEXT, " +
-                "office_version TEXT, " +
-                "location TEXT, " +
-                "purchase_date TEXT, " +
-                "observation TEXT, " + // Adicionado campo de observação
-                "hostname TEXT, " + // Adicionado campo hostname
-                "sector TEXT, " + // Adicionado campo setor
-                "patrimony TEXT, " + // Adicionado campo patrimonio
-                "is_deleted INTEGER DEFAULT 0, " + // Adicionado campo para exclusão lógica
-                "activity_status TEXT DEFAULT 'Ativo'" + // Adicionado campo de status (Ativo/Inativo)
-                ");";
-
-        String userTableSQL = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "user_name TEXT UNIQUE NOT NULL, " +
-                "password TEXT NOT NULL" +
-                ");";
-
-        // Nova tabela para histórico
-        String historyTableSQL = "CREATE TABLE IF NOT EXISTS history (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "action TEXT, " +
-                "user TEXT, " +
-                "timestamp TEXT, " +
-                "description TEXT" +
-                ");";
-
-        // Nova tabela para empresas
-        String companiesTableSQL = "CREATE TABLE IF NOT EXISTS companies (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "name TEXT UNIQUE NOT NULL" +
-                ");";
+    public static Connection connectReader() {
+        try {
+            return connectionManager().acquireReader();
+        } catch (SQLException e) {
+            System.err.println("Erro ao conectar ao banco de dados: " + e.getMessage());
+            return null;
+        }
+    }
 
-        try (Connection conn = connect();
-                Statement stmt = conn.createStatement()) {
-            stmt.execute(computerTableSQL);
-            stmt.execute(userTableSQL);
-            stmt.execute(historyTableSQL);
-            stmt.execute(companiesTableSQL);
+    /**
+     * Grava as alterações pendentes da fila de gravação adiada (se ativa) e
+     * fecha todas as conexões persistentes. Deve ser chamado ao encerrar a
+     * aplicação.
+     */
+    public static void shutdown() {
+        DatabaseMaintenance.stop();
+        WriteBehindQueue.shutdownInstance();
+        ConnectionManager.shutdownInstance();
+    }
 
-            // Migração: Popula empresas padrão se a tabela estiver vazia
-            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM companies")) {
-                if (rs.next() && rs.getInt(1) == 0) {
-                    stmt.execute("INSERT INTO companies (name) VALUES ('NPD')");
-                    stmt.execute("INSERT INTO companies (name) VALUES ('INFAN')");
+    /**
+     * Retorna informações de diagnóstico do banco: o perfil de armazenamento
+     * configurado, os contadores do cache de statements, os valores efetivos
+     * dos PRAGMAs na conexão de escrita, o plano (EXPLAIN QUERY PLAN) das
+     * consultas de filtro e as medições de cada SQL executado
+     * ({@link QueryProfiler}).
+     *
+     * @return Pares nome/valor, na ordem de exibição.
+     */
+    public Map<String, String> getDiagnostics() {
+        Map<String, String> info = new LinkedHashMap<>();
+        DatabaseConfig config = DatabaseConfig.get();
+        info.put("Arquivo de configuração", config.getSource());
+        StorageProfile profile = config.getStorageProfile();
+        info.put("Perfil de armazenamento", profile.getConfigName()
+                + (profile.isNetworkSafe() ? " (unidade de rede)" : " (WAL, estações no mesmo computador)"));
+        info.put("Versão do esquema (esperada)", String.valueOf(SchemaMigrator.latestVersion()));
+        info.put("Conexões de leitura", String.valueOf(config.getReaderPoolSize()));
+        info.put("Cache de statements (por conexão)", String.valueOf(config.getStatementCacheSize()));
+        info.put("Cache de statements - acertos", String.valueOf(StatementCache.getHits()));
+        info.put("Cache de statements - falhas", String.valueOf(StatementCache.getMisses()));
+        info.put("Cache de statements - descartes", String.valueOf(StatementCache.getEvictions()));
+        info.put("Modo de gravação", config.isWriteBehind() ? "adiada (behind)" : "síncrona (sync)");
+        WriteBehindQueue writeQueue = WriteBehindQueue.current();
+        if (writeQueue != null) {
+            info.put("Fila de gravação - pendentes", String.valueOf(writeQueue.getPendingCount()));
+            info.put("Fila de gravação - grupos gravados", String.valueOf(writeQueue.getCommittedGroups()));
+            info.put("Fila de gravação - operações gravadas", String.valueOf(writeQueue.getCommittedOperations()));
+            info.put("Fila de gravação - conflitos", String.valueOf(writeQueue.getConflictCount()));
+        }
+        info.putAll(DatabaseMaintenance.describe(config));
 
+        String[] pragmas = { "journal_mode", "synchronous", "mmap_size", "cache_size", "temp_store",
+                "wal_autocheckpoint", "busy_timeout", "auto_vacuum", "freelist_count", "page_count" };
+        try (Connection conn = connect();
+                Statement stmt = conn.createStatement()) {
+            info.put("Versão do esquema (banco)", String.valueOf(SchemaMigrator.readVersion(conn)));
+            for (String pragma : pragmas) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    info.put("PRAGMA " + pragma, rs.next() ? rs.getString(1) : "-");
                 }
             }
-
-            // Migração: Verifica se a coluna 'observation' existe na tabela 'computers'
-            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(computers)")) {
-                boolean hasObservation = false;
-                boolean hasHostname = false;
-                boolean hasSector = false;
-                boolean hasPatrimony = false;
-
-                while (rs.next()) {
-                    String colName = rs.getString("name");
-                    if ("observation".equalsIgnoreCase(colName)) {
-                        hasObservation = true;
-                    } else if ("hostname".equalsIgnoreCase(colName)) {
-                        hasHostname = true;
-                    } else if ("sector".equalsIgnoreCase(colName)) {
-                        hasSector = true;
-                    } else if ("patrimony".equalsIgnoreCase(colName)) {
-                        hasPatrimony = true;
-                    }
-                }
-                if (!hasObservation) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN observation TEXT");
-
-                }
-                if (!hasHostname) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN hostname TEXT");
-
-                }
-                if (!hasSector) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN sector TEXT");
-
-                }
-                if (!hasPatrimony) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN patrimony TEXT");
-
-                }
+            for (Map.Entry<String, String> plan : SchemaIndexes.explainHotQueries(conn).entrySet()) {
+                info.put("Plano: " + plan.getKey(), plan.getValue());
             }
+        } catch (SQLException e) {
+            System.err.println("Erro ao obter diagnóstico do banco: " + e.getMessage());
+        }
+        info.put("Medição de consultas", config.isQueryProfiling() ? "ativa (query.profiling=true)"
+                : "desativada (query.profiling=false)");
+        if (config.isQueryProfiling()) {
+            info.putAll(QueryProfiler.describe());
+        }
+        return info;
+    }
 
-            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(computers)")) {
-                boolean hasActivityStatus = false;
-                while (rs.next()) {
-                    if ("activity_status".equalsIgnoreCase(rs.getString("name"))) {
-                        hasActivityStatus = true;
-                        break;
-                    }
-                }
-                if (!hasActivityStatus) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN activity_status TEXT DEFAULT 'Ativo'");
-
-                }
-            }
+    /**
+     * Backup online pela API de backup do SQLite (ver {@link DatabaseBackup}).
+     */
+    @Override
+    public void backup(Path target, BackupProgress progress) throws SQLException {
+        DatabaseBackup.backup(target, progress);
+    }
 
-            // Migração: Verifica se a coluna 'is_deleted' existe
-            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(computers)")) {
-                boolean hasIsDeleted = false;
-                while (rs.next()) {
-                    if ("is_deleted".equalsIgnoreCase(rs.getString("name"))) {
-                        hasIsDeleted = true;
-                        break;
-                    }
-                }
-                if (!hasIsDeleted) {
-                    stmt.execute("ALTER TABLE computers ADD COLUMN is_deleted INTEGER DEFAULT 0");
+    /**
+     * Restaura um backup gravado por {@link #backup(Path, BackupProgress)} (ver
+     * {@link DatabaseBackup}).
+     */
+    @Override
+    public void restoreBackup(Path source, BackupProgress progress) throws SQLException {
+        DatabaseBackup.restore(source, progress);
+    }
 
-                }
+    /**
+     * Cria ou atualiza o esquema do banco aplicando as migrações pendentes (ver
+     * {@link SchemaMigrator}). Executa no máximo uma vez por processo; chamadas
+     * seguintes retornam imediatamente. Também inicia a manutenção periódica
+     * ({@link DatabaseMaintenance}).
+     */
+    public void createTable() {
+        synchronized (DatabaseHelper.class) {
+            if (schemaReady) {
+                return;
             }
-
-        } catch (SQLException e) {
-            System.err.println("Erro ao criar tabelas: " + e.getMessage());
+            try (Connection conn = connect()) {
+                SchemaMigrator.migrate(conn);
+                schemaReady = true;
+            } catch (SQLException e) {
+                System.err.println("Erro ao criar tabelas: " + e.getMessage());
+                return;
+            }
+            // Alterações da fila de gravação adiada que não chegaram ao banco na
+            // execução anterior
+            WriteBehindQueue.recover(Paths.get(DatabaseConfig.get().getWriteJournal()));
+            DatabaseMaintenance.start(DatabaseConfig.get());
         }
     }
 
     /**
-     * Insere um computador no banco de dados.
+     * Insere um computador no banco de dados. O ID gerado é atribuído ao objeto.
      *
      * @param computer Computador a ser inserido.
      */
     public void insertComputer(Computer computer) {
-        String sql = "INSERT INTO computers(tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, observation, hostname, sector, patrimony, is_deleted, activity_status) "
-                +
-                "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, computer.getTag());
-            pstmt.setString(2, computer.getSerialNumber());
-            pstmt.setString(3, computer.getModel());
-            pstmt.setString(4, computer.getBrand());
-            pstmt.setString(5, computer.getState());
-            pstmt.setString(6, computer.getUserName());
-            pstmt.setString(7, computer.getWindowsVersion());
-            pstmt.setString(8, computer.getOfficeVersion());
-            pstmt.setString(9, computer.getLocation());
-            pstmt.setString(10, computer.getPurchaseDate());
-            pstmt.setString(11, computer.getObservation());
-            pstmt.setString(12, computer.getHostname());
-            pstmt.setString(13, computer.getSector());
-            pstmt.setString(14, computer.getPatrimony());
-            pstmt.setInt(15, computer.isDeleted() ? 1 : 0);
-            pstmt.setString(16, computer.getActivityStatus());
-            pstmt.executeUpdate();
+        try {
+            withBusyRetry(conn -> {
+                int id = insertComputer(conn, computer);
+                computer.setId(id);
+                computer.setRowVersion(readRowVersion(conn, id));
+                return id;
+            });
 
         } catch (SQLException e) {
             System.err.println("Erro ao inserir computador: " + e.getMessage());
         }
     }
 
+    /**
+     * Insere vários computadores em uma única transação, usando addBatch/
+     * executeBatch em blocos do tamanho configurado (batch.chunkSize). Os IDs
+     * gerados são atribuídos aos objetos.
+     *
+     * @param computers Computadores a serem inseridos.
+     * @return IDs gerados na ordem de entrada e falhas por linha.
+     */
+    public BatchResult insertComputers(List<Computer> computers) {
+        return insertComputers(computers, DatabaseConfig.get().getBatchChunkSize());
+    }
+
+    /**
+     * Insere vários computadores em uma única transação, em blocos de
+     * chunkSize linhas. Se um bloco falhar, ele é desfeito e reexecutado linha a
+     * linha, de modo que apenas as linhas inválidas fiquem de fora.
+     *
+     * @param computers Computadores a serem inseridos.
+     * @param chunkSize Quantidade de linhas por executeBatch.
+     * @return IDs gerados na ordem de entrada e falhas por linha.
+     */
+    public BatchResult insertComputers(List<Computer> computers, int chunkSize) {
+        if (computers.isEmpty()) {
+            return new BatchResult();
+        }
+        try {
+            return inTransaction(work -> insertComputers(connectionOf(work), computers, chunkSize));
+        } catch (SQLException e) {
+            System.err.println("Erro ao inserir computadores em lote: " + e.getMessage());
+            return BatchResult.failed(computers.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Inserção em lote na transação do chamador (ver
+     * {@link #insertComputers(List, int)}).
+     */
+    static BatchResult insertComputers(Connection conn, List<Computer> computers, int chunkSize)
+            throws SQLException {
+        BatchResult result = new BatchResult();
+        int size = Math.max(1, chunkSize);
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_COMPUTER_SQL)) {
+            for (int start = 0; start < computers.size(); start += size) {
+                List<Computer> chunk = computers.subList(start, Math.min(start + size, computers.size()));
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    for (Computer computer : chunk) {
+                        bindInsert(pstmt, computer);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    // Com a escrita serializada dentro da transação, o AUTOINCREMENT gera
+                    // IDs consecutivos: o último é last_insert_rowid(). O mesmo vale para
+                    // row_version
+                    int firstId = lastInsertId(conn) - chunk.size() + 1;
+                    long firstVersion = readRowVersion(conn, firstId + chunk.size() - 1) - chunk.size() + 1;
+                    for (int i = 0; i < chunk.size(); i++) {
+                        chunk.get(i).setId(firstId + i);
+                        chunk.get(i).setRowVersion(firstVersion + i);
+                        result.addSuccess(firstId + i);
+                    }
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    pstmt.clearBatch();
+                    conn.rollback(savepoint);
+                    for (Computer computer : chunk) {
+                        try {
+                            bindInsert(pstmt, computer);
+                            pstmt.executeUpdate();
+                            computer.setId(lastInsertId(conn));
+                            computer.setRowVersion(readRowVersion(conn, computer.getId()));
+                            result.addSuccess(computer.getId());
+                        } catch (SQLException rowError) {
+                            result.addFailure(rowError.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Realiza a exclusão lógica de um computador.
      *
@@ -200,11 +339,8 @@ public class DatabaseHelper {
      * @return true se o registro foi atualizado com sucesso, caso contrário false.
      */
     public boolean deleteComputer(Computer computer) {
-        String sql = "UPDATE computers SET is_deleted = 1 WHERE id = ?";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, computer.getId());
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = withBusyRetry(conn -> setDeletedAndVersion(conn, computer, true));
             if (rowsAffected > 0) {
 
                 return true;
@@ -225,11 +361,8 @@ public class DatabaseHelper {
      * @return true se restaurado com sucesso.
      */
     public boolean restoreComputer(Computer computer) {
-        String sql = "UPDATE computers SET is_deleted = 0 WHERE id = ?";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, computer.getId());
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = withBusyRetry(conn -> setDeletedAndVersion(conn, computer, false));
             if (rowsAffected > 0) {
 
                 return true;
@@ -243,48 +376,485 @@ public class DatabaseHelper {
     }
 
     /**
-     * Atualiza os dados de um computador no banco de dados.
+     * Move vários computadores para a lixeira em uma única transação (ver
+     * {@link #setDeleted(Connection, Collection, boolean)}).
+     *
+     * @param ids IDs dos computadores.
+     * @return Nova versão de cada computador alterado, por ID.
+     */
+    public Map<Integer, Long> deleteComputers(Collection<Integer> ids) {
+        try {
+            return inTransaction(work -> work.deleteComputers(ids));
+        } catch (SQLException e) {
+            System.err.println("Erro ao excluir (soft delete) computadores em lote: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Restaura vários computadores da lixeira em uma única transação.
+     *
+     * @param ids IDs dos computadores.
+     * @return Nova versão de cada computador alterado, por ID.
+     */
+    public Map<Integer, Long> restoreComputers(Collection<Integer> ids) {
+        try {
+            return inTransaction(work -> work.restoreComputers(ids));
+        } catch (SQLException e) {
+            System.err.println("Erro ao restaurar computadores em lote: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Atualiza os dados de um computador no banco de dados, desde que o registro
+     * ainda esteja na versão em que foi carregado (computer.getRowVersion()).
+     * Se outra estação o alterou nesse meio tempo, nada é gravado.
      *
      * @param computer Computador com os dados atualizados.
-     * @return true se atualizado com sucesso, caso contrário false.
+     * @return UPDATED (e a nova versão atribuída ao objeto), CONFLICT, NOT_FOUND
+     *         ou ERROR.
      */
-    public boolean updateComputer(Computer computer) {
-        String sql = "UPDATE computers SET tag = ?, serial_number = ?, model = ?, brand = ?, state = ?, " +
-                "user_name = ?, windows_version = ?, office_version = ?, location = ?, purchase_date = ?, observation = ?, "
-                +
-                "hostname = ?, sector = ?, patrimony = ?, activity_status = ? "
-                +
-                "WHERE id = ?";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, computer.getTag());
-            pstmt.setString(2, computer.getSerialNumber());
-            pstmt.setString(3, computer.getModel());
-            pstmt.setString(4, computer.getBrand());
-            pstmt.setString(5, computer.getState());
-            pstmt.setString(6, computer.getUserName());
-            pstmt.setString(7, computer.getWindowsVersion());
-            pstmt.setString(8, computer.getOfficeVersion());
-            pstmt.setString(9, computer.getLocation());
-            pstmt.setString(10, computer.getPurchaseDate());
-            pstmt.setString(11, computer.getObservation());
-            pstmt.setString(12, computer.getHostname());
-            pstmt.setString(13, computer.getSector());
-            pstmt.setString(14, computer.getPatrimony());
-            pstmt.setString(15, computer.getActivityStatus());
-            pstmt.setInt(16, computer.getId());
+    public UpdateResult updateComputer(Computer computer) {
+        try {
+            return inTransaction(work -> work.updateComputer(computer));
+        } catch (SQLException e) {
+            System.err.println("Erro ao atualizar computador: " + e.getMessage());
+            return UpdateResult.ERROR;
+        }
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
+    /**
+     * Atualiza vários computadores em uma única transação, usando addBatch/
+     * executeBatch em blocos do tamanho configurado (batch.chunkSize).
+     *
+     * @param computers Computadores com os dados atualizados.
+     * @return IDs na ordem de entrada e falhas por linha (inclusive IDs
+     *         inexistentes).
+     */
+    public BatchResult updateComputers(List<Computer> computers) {
+        return updateComputers(computers, DatabaseConfig.get().getBatchChunkSize());
+    }
 
-                return true;
-            } else {
+    /**
+     * Atualiza vários computadores em uma única transação, em blocos de
+     * chunkSize linhas. Se um bloco falhar, ele é desfeito e reexecutado linha a
+     * linha. Ao contrário de {@link #updateComputer(Computer)}, não verifica a
+     * versão dos registros (uso em importações).
+     *
+     * @param computers Computadores com os dados atualizados.
+     * @param chunkSize Quantidade de linhas por executeBatch.
+     * @return IDs na ordem de entrada e falhas por linha.
+     */
+    public BatchResult updateComputers(List<Computer> computers, int chunkSize) {
+        if (computers.isEmpty()) {
+            return new BatchResult();
+        }
+        try {
+            return inTransaction(work -> updateComputers(connectionOf(work), computers, chunkSize));
+        } catch (SQLException e) {
+            System.err.println("Erro ao atualizar computadores em lote: " + e.getMessage());
+            return BatchResult.failed(computers.size(), e.getMessage());
+        }
+    }
 
-                return false;
+    /**
+     * Atualização em lote na transação do chamador (ver
+     * {@link #updateComputers(List, int)}).
+     */
+    static BatchResult updateComputers(Connection conn, List<Computer> computers, int chunkSize)
+            throws SQLException {
+        BatchResult result = new BatchResult();
+        int size = Math.max(1, chunkSize);
+        try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_COMPUTER_SQL)) {
+            for (int start = 0; start < computers.size(); start += size) {
+                List<Computer> chunk = computers.subList(start, Math.min(start + size, computers.size()));
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    for (Computer computer : chunk) {
+                        bindUpdate(pstmt, computer);
+                        pstmt.addBatch();
+                    }
+                    int[] counts = pstmt.executeBatch();
+                    for (int i = 0; i < chunk.size(); i++) {
+                        addUpdateOutcome(conn, result, chunk.get(i), counts[i]);
+                    }
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    pstmt.clearBatch();
+                    conn.rollback(savepoint);
+                    for (Computer computer : chunk) {
+                        try {
+                            bindUpdate(pstmt, computer);
+                            addUpdateOutcome(conn, result, computer, pstmt.executeUpdate());
+                        } catch (SQLException rowError) {
+                            result.addFailure(rowError.getMessage());
+                        }
+                    }
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Erro ao atualizar computador: " + e.getMessage());
-            return false;
+        }
+        return result;
+    }
+
+    /**
+     * Executa o trabalho em uma única transação da conexão de escrita: tudo é
+     * confirmado com um único commit, ou desfeito se o trabalho lançar exceção.
+     * Se o banco estiver ocupado por outra estação, o trabalho é repetido (ver
+     * {@link #withBusyRetry}).
+     */
+    @Override
+    public <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException {
+        return withBusyRetry(conn -> {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(new SqliteUnitOfWork(conn));
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    private static Connection connectionOf(UnitOfWork work) {
+        return ((SqliteUnitOfWork) work).conn;
+    }
+
+    /**
+     * Operações da unidade de trabalho na conexão (e transação) de
+     * {@link #inTransaction(UnitOfWork.Work)}.
+     */
+    private static final class SqliteUnitOfWork implements UnitOfWork {
+        private final Connection conn;
+
+        SqliteUnitOfWork(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public void insertComputer(Computer computer) throws SQLException {
+            int id = DatabaseHelper.insertComputer(conn, computer);
+            computer.setId(id);
+            computer.setRowVersion(readRowVersion(conn, id));
+        }
+
+        @Override
+        public BatchResult insertComputers(List<Computer> computers) throws SQLException {
+            return DatabaseHelper.insertComputers(conn, computers, DatabaseConfig.get().getBatchChunkSize());
+        }
+
+        @Override
+        public UpdateResult updateComputer(Computer computer) throws SQLException {
+            if (updateComputerIfVersion(conn, computer, computer.getRowVersion()) == 0) {
+                return readRowVersion(conn, computer.getId()) >= 0 ? UpdateResult.CONFLICT
+                        : UpdateResult.NOT_FOUND;
+            }
+            computer.setRowVersion(readRowVersion(conn, computer.getId()));
+            return UpdateResult.UPDATED;
+        }
+
+        @Override
+        public boolean deleteComputer(Computer computer) throws SQLException {
+            return setDeletedAndVersion(conn, computer, true) > 0;
+        }
+
+        @Override
+        public boolean restoreComputer(Computer computer) throws SQLException {
+            return setDeletedAndVersion(conn, computer, false) > 0;
+        }
+
+        @Override
+        public Map<Integer, Long> deleteComputers(Collection<Integer> ids) throws SQLException {
+            return ids.isEmpty() ? new LinkedHashMap<>() : setDeleted(conn, ids, true);
+        }
+
+        @Override
+        public Map<Integer, Long> restoreComputers(Collection<Integer> ids) throws SQLException {
+            return ids.isEmpty() ? new LinkedHashMap<>() : setDeleted(conn, ids, false);
+        }
+
+        @Override
+        public void insertHistory(HistoryEntry entry) throws SQLException {
+            DatabaseHelper.insertHistory(conn, entry);
+        }
+    }
+
+    // Operações de uma linha na conexão (e transação) do chamador; usadas pelos
+    // métodos públicos e pela fila de gravação adiada (WriteBehindQueue)
+
+    static int insertComputer(Connection conn, Computer computer) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_COMPUTER_SQL)) {
+            bindInsert(pstmt, computer);
+            pstmt.executeUpdate();
+        }
+        return lastInsertId(conn);
+    }
+
+    static int updateComputerIfVersion(Connection conn, Computer computer, long expectedVersion)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_COMPUTER_IF_VERSION_SQL)) {
+            bindUpdate(pstmt, computer);
+            pstmt.setLong(17, expectedVersion);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return row_version atual do registro, ou -1 se ele não existir.
+     */
+    static long readRowVersion(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT row_version FROM computers WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * @return Última versão de linha atribuída (contador de metadata; nunca
+     *         menor que a maior row_version gravada).
+     */
+    static long readRowVersionCounter(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(COALESCE((SELECT value FROM metadata "
+                + "WHERE name = ?), 0), (SELECT COALESCE(MAX(row_version), 0) FROM computers))")) {
+            pstmt.setString(1, ROW_VERSION_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return Computador com o id (inclusive na lixeira), com as mesmas colunas
+     *         da lista, ou null se ele não existir.
+     */
+    static Computer loadComputer(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn
+                .prepareStatement("SELECT " + LIST_COLUMNS + " FROM computers WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapListComputer(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * @return Última sequência gravada pela execução da fila de gravação adiada,
+     *         ou 0 se não houver registro.
+     */
+    static long readJournalSeq(Connection conn, String runId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT last_seq FROM write_journal WHERE run_id = ?")) {
+            pstmt.setString(1, runId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Registra a última sequência gravada pela execução da fila; deve rodar na
+     * transação que gravou as operações.
+     */
+    static void writeJournalSeq(Connection conn, String runId, long seq) throws SQLException {
+        try (PreparedStatement pstmt = conn
+                .prepareStatement("INSERT OR REPLACE INTO write_journal(run_id, last_seq) VALUES(?, ?)")) {
+            pstmt.setString(1, runId);
+            pstmt.setLong(2, seq);
+            pstmt.executeUpdate();
+        }
+    }
+
+    static void deleteJournalSeq(Connection conn, String runId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM write_journal WHERE run_id = ?")) {
+            pstmt.setString(1, runId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int setDeletedAndVersion(Connection conn, Computer computer, boolean deleted)
+            throws SQLException {
+        int rowsAffected = setDeleted(conn, computer.getId(), deleted);
+        if (rowsAffected > 0) {
+            computer.setRowVersion(readRowVersion(conn, computer.getId()));
+        }
+        return rowsAffected;
+    }
+
+    static int setDeleted(Connection conn, int id, boolean deleted) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE computers SET is_deleted = ?, row_version = "
+                + NEXT_ROW_VERSION + ", updated_at = " + NOW + " WHERE id = ?")) {
+            pstmt.setInt(1, deleted ? 1 : 0);
+            pstmt.setInt(2, id);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Exclusão lógica (ou restauração) de vários computadores com um único
+     * UPDATE: os IDs vão para a tabela temporária bulk_ids (da conexão de
+     * escrita) e o UPDATE filtra por ela. Só mudam os registros que estão no
+     * estado oposto; cada um recebe uma versão nova, na ordem dos IDs
+     * informados. Deve rodar dentro da transação do chamador.
+     *
+     * @return Nova versão de cada computador alterado, por ID.
+     */
+    static Map<Integer, Long> setDeleted(Connection conn, Collection<Integer> ids, boolean deleted)
+            throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS bulk_ids (seq INTEGER PRIMARY KEY, id INTEGER NOT NULL UNIQUE)");
+            stmt.execute("DELETE FROM temp.bulk_ids");
+        }
+        long baseVersion = readRowVersionCounter(conn);
+        try (PreparedStatement insert = conn.prepareStatement("INSERT OR IGNORE INTO temp.bulk_ids(id) VALUES (?)")) {
+            for (Integer id : ids) {
+                insert.setInt(1, id);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement update = conn.prepareStatement("UPDATE computers SET is_deleted = ?, updated_at = "
+                + NOW + ", row_version = ? + (SELECT b.seq FROM temp.bulk_ids b WHERE b.id = computers.id) "
+                + "WHERE id IN (SELECT id FROM temp.bulk_ids) AND is_deleted = ?")) {
+            update.setInt(1, deleted ? 1 : 0);
+            update.setLong(2, baseVersion);
+            update.setInt(3, deleted ? 0 : 1);
+            update.executeUpdate();
+        }
+        Map<Integer, Long> changed = new LinkedHashMap<>();
+        try (PreparedStatement select = conn.prepareStatement("SELECT c.id, c.row_version FROM temp.bulk_ids b "
+                + "JOIN computers c ON c.id = b.id WHERE c.row_version > ? ORDER BY b.seq")) {
+            select.setLong(1, baseVersion);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    changed.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM temp.bulk_ids");
+        }
+        return changed;
+    }
+
+    static void insertHistory(Connection conn, HistoryEntry history) throws SQLException {
+        try (PreparedStatement pstmt = conn
+                .prepareStatement("INSERT INTO history(action, user, timestamp, description) VALUES(?, ?, ?, ?)")) {
+            pstmt.setString(1, history.getAction().name());
+            pstmt.setString(2, history.getUser());
+            pstmt.setString(3, history.getTimestamp().toString());
+            pstmt.setString(4, history.getDescription());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Gravação executada por {@link #withBusyRetry}.
+     */
+    interface WriteWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Executa uma gravação na conexão de escrita. Se o banco estiver bloqueado
+     * por outra estação mesmo após o busy_timeout (SQLITE_BUSY/SQLITE_LOCKED),
+     * libera a conexão, espera (50 ms, 100 ms, 200 ms..., com variação
+     * aleatória para que as estações não tentem juntas) e tenta de novo, até
+     * busy.retries vezes.
+     */
+    static <T> T withBusyRetry(WriteWork<T> work) throws SQLException {
+        int retries = DatabaseConfig.get().getBusyRetries();
+        for (int attempt = 0;; attempt++) {
+            try (Connection conn = connect()) {
+                if (conn == null) {
+                    throw new SQLException("Conexão de escrita indisponível.");
+                }
+                return work.run(conn);
+            } catch (SQLException e) {
+                if (!isBusy(e) || attempt >= retries) {
+                    throw e;
+                }
+                long delay = BUSY_RETRY_BASE_MILLIS << attempt;
+                delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true se o erro indica banco ocupado por outra conexão.
+     */
+    static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xff; // códigos estendidos (ex.: SQLITE_BUSY_SNAPSHOT)
+        if (code == 5 || code == 6) { // SQLITE_BUSY, SQLITE_LOCKED
+            return true;
+        }
+        String message = e.getMessage();
+        return message != null && (message.contains("SQLITE_BUSY") || message.contains("database is locked"));
+    }
+
+    private static void addUpdateOutcome(Connection conn, BatchResult result, Computer computer, int rowsAffected)
+            throws SQLException {
+        if (rowsAffected > 0) {
+            computer.setRowVersion(readRowVersion(conn, computer.getId()));
+            result.addSuccess(computer.getId());
+        } else {
+            result.addFailure("Computador não encontrado: id " + computer.getId());
+        }
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, Computer computer) throws SQLException {
+        pstmt.setString(1, computer.getTag());
+        pstmt.setString(2, computer.getSerialNumber());
+        pstmt.setString(3, computer.getModel());
+        pstmt.setString(4, computer.getBrand());
+        pstmt.setString(5, computer.getState());
+        pstmt.setString(6, computer.getUserName());
+        pstmt.setString(7, computer.getWindowsVersion());
+        pstmt.setString(8, computer.getOfficeVersion());
+        pstmt.setString(9, computer.getLocation());
+        pstmt.setString(10, computer.getPurchaseDate());
+        pstmt.setString(11, computer.getObservation());
+        pstmt.setString(12, computer.getHostname());
+        pstmt.setString(13, computer.getSector());
+        pstmt.setString(14, computer.getPatrimony());
+        pstmt.setInt(15, computer.isDeleted() ? 1 : 0);
+        pstmt.setString(16, computer.getActivityStatus());
+    }
+
+    // Observação nula mantém a gravada (computador carregado sem a observação)
+    private static void bindUpdate(PreparedStatement pstmt, Computer computer) throws SQLException {
+        pstmt.setString(1, computer.getTag());
+        pstmt.setString(2, computer.getSerialNumber());
+        pstmt.setString(3, computer.getModel());
+        pstmt.setString(4, computer.getBrand());
+        pstmt.setString(5, computer.getState());
+        pstmt.setString(6, computer.getUserName());
+        pstmt.setString(7, computer.getWindowsVersion());
+        pstmt.setString(8, computer.getOfficeVersion());
+        pstmt.setString(9, computer.getLocation());
+        pstmt.setString(10, computer.getPurchaseDate());
+        pstmt.setString(11, computer.getObservation());
+        pstmt.setString(12, computer.getHostname());
+        pstmt.setString(13, computer.getSector());
+        pstmt.setString(14, computer.getPatrimony());
+        pstmt.setString(15, computer.getActivityStatus());
+        pstmt.setInt(16, computer.getId());
+    }
+
+    private static int lastInsertId(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT last_insert_rowid()");
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
@@ -297,7 +867,7 @@ public class DatabaseHelper {
      */
     public boolean validateLogin(String userName, String password) {
         String sql = "SELECT COUNT(*) FROM users WHERE user_name = ? AND password = ?";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, userName);
             pstmt.setString(2, password);
@@ -317,7 +887,7 @@ public class DatabaseHelper {
     public List<User> getUsers() {
         List<User> users = new ArrayList<>();
         String sql = "SELECT user_name, password FROM users";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -332,7 +902,7 @@ public class DatabaseHelper {
     public List<User> loadUsers() {
         List<User> users = new ArrayList<>();
         String sql = "SELECT user_name, password FROM users";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -374,7 +944,7 @@ public class DatabaseHelper {
      */
     public boolean isUserExists(String userName) {
         String sql = "SELECT COUNT(*) FROM users WHERE user_name = ?";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, userName);
             ResultSet rs = pstmt.executeQuery();
@@ -432,30 +1002,12 @@ public class DatabaseHelper {
      */
     public List<Computer> loadComputers() {
         List<Computer> computers = new ArrayList<>();
-        String sql = "SELECT id, tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, observation, hostname, sector, patrimony, is_deleted, activity_status FROM computers WHERE is_deleted = 0";
-        try (Connection conn = connect();
+        String sql = "SELECT " + LIST_COLUMNS + " FROM computers WHERE is_deleted = 0";
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                Computer computer = new Computer(
-                        rs.getInt("id"),
-                        rs.getString("tag"),
-                        rs.getString("model"),
-                        rs.getString("brand"),
-                        rs.getString("state"),
-                        rs.getString("user_name"),
-                        rs.getString("serial_number"),
-                        rs.getString("windows_version"),
-                        rs.getString("office_version"),
-                        rs.getString("purchase_date"),
-                        rs.getString("location"),
-                        rs.getString("observation"),
-                        rs.getString("hostname"),
-                        rs.getString("sector"),
-                        rs.getString("patrimony"),
-                        rs.getString("activity_status")); // Passa o status
-                computer.setDeleted(rs.getInt("is_deleted") == 1);
-                computers.add(computer);
+                computers.add(mapListComputer(rs));
             }
         } catch (SQLException e) {
             System.err.println("Erro ao carregar computadores: " + e.getMessage());
@@ -463,32 +1015,82 @@ public class DatabaseHelper {
         return computers;
     }
 
+    /**
+     * Carrega os computadores gravados depois de uma versão, incluindo os
+     * movidos para a lixeira (com isDeleted() verdadeiro), em ordem de versão.
+     *
+     * @param rowVersion Última versão já conhecida.
+     * @return Registros com row_version maior que a informada.
+     */
+    public List<Computer> loadComputersChangedSince(long rowVersion) {
+        List<Computer> computers = new ArrayList<>();
+        String sql = "SELECT " + LIST_COLUMNS + " FROM computers WHERE row_version > ? ORDER BY row_version";
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, rowVersion);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    computers.add(mapListComputer(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao carregar alterações de computadores: " + e.getMessage());
+        }
+        return computers;
+    }
+
+    /**
+     * @return Maior row_version gravada em computers (0 se vazia ou em caso de
+     *         erro).
+     */
+    public long getMaxRowVersion() {
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(row_version), 0) FROM computers");
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Erro ao consultar versão dos computadores: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return Época de restauração do banco (ver {@link DatabaseBackup}), ou -1
+     *         em caso de erro.
+     */
+    @Override
+    public long getRestoreEpoch() {
+        try (Connection conn = connectReader()) {
+            return DatabaseBackup.readRestoreEpoch(conn);
+        } catch (SQLException e) {
+            System.err.println("Erro ao consultar época de restauração: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Retorna o PRAGMA data_version da conexão de monitoramento, que muda
+     * quando qualquer outra conexão confirma uma alteração no banco.
+     *
+     * @return Valor atual, ou -1 em caso de erro.
+     */
+    public long getDataVersion() {
+        try {
+            return connectionManager().dataVersion();
+        } catch (SQLException e) {
+            System.err.println("Erro ao consultar data_version: " + e.getMessage());
+            return -1;
+        }
+    }
+
     public List<Computer> loadDeletedComputers() {
         List<Computer> computers = new ArrayList<>();
-        String sql = "SELECT id, tag, serial_number, model, brand, state, user_name, windows_version, office_version, location, purchase_date, observation, hostname, sector, patrimony, is_deleted, activity_status FROM computers WHERE is_deleted = 1";
-        try (Connection conn = connect();
+        String sql = "SELECT " + LIST_COLUMNS + " FROM computers WHERE is_deleted = 1";
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                Computer computer = new Computer(
-                        rs.getInt("id"),
-                        rs.getString("tag"),
-                        rs.getString("model"),
-                        rs.getString("brand"),
-                        rs.getString("state"),
-                        rs.getString("user_name"),
-                        rs.getString("serial_number"),
-                        rs.getString("windows_version"),
-                        rs.getString("office_version"),
-                        rs.getString("purchase_date"),
-                        rs.getString("location"),
-                        rs.getString("observation"),
-                        rs.getString("hostname"),
-                        rs.getString("sector"),
-                        rs.getString("patrimony"),
-                        rs.getString("activity_status")); // Passa o status
-                computer.setDeleted(rs.getInt("is_deleted") == 1);
-                computers.add(computer);
+                computers.add(mapListComputer(rs));
             }
         } catch (SQLException e) {
             System.err.println("Erro ao carregar computadores excluídos: " + e.getMessage());
@@ -496,20 +1098,318 @@ public class DatabaseHelper {
         return computers;
     }
 
+    /**
+     * Carrega uma página de computadores usando paginação por chave (keyset): a
+     * página começa no primeiro ID maior que afterId, em ordem de ID. O custo não
+     * cresce com a posição da página, ao contrário de OFFSET.
+     *
+     * @param afterId  Último ID da página anterior (0 para a primeira página).
+     * @param pageSize Quantidade máxima de registros.
+     * @param filter   Critérios de filtro.
+     * @return Computadores da página, em ordem crescente de ID.
+     */
+    public List<Computer> loadComputers(int afterId, int pageSize, ComputerFilter filter) {
+        List<Computer> computers = new ArrayList<>();
+        String sql = "SELECT " + LIST_COLUMNS + " FROM computers WHERE " + filterClause(filter)
+                + " AND id > ? ORDER BY id LIMIT ?";
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = bindFilter(stmt, filter, 1);
+            stmt.setInt(index++, afterId);
+            stmt.setInt(index, pageSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    computers.add(mapListComputer(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao carregar página de computadores: " + e.getMessage());
+        }
+        return computers;
+    }
+
+    /**
+     * Lê a observação de um computador carregado sem ela (ver
+     * {@link Computer#isObservationLoaded()}). As últimas observações lidas
+     * ficam em cache enquanto o registro não mudar de versão.
+     *
+     * @param id         ID do computador.
+     * @param rowVersion Versão do registro em memória.
+     * @return Texto da observação (null se não houver ou em caso de erro).
+     */
+    public String loadObservation(int id, long rowVersion) {
+        synchronized (observationCache) {
+            CachedObservation cached = observationCache.get(id);
+            if (cached != null && cached.rowVersion == rowVersion) {
+                return cached.text;
+            }
+        }
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn
+                        .prepareStatement("SELECT observation, row_version FROM computers WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                String text = rs.getString(1);
+                synchronized (observationCache) {
+                    observationCache.put(id, new CachedObservation(rs.getLong(2), text));
+                }
+                return text;
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao carregar observação: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Percorre, em ordem de ID, todos os computadores que atendem ao filtro, sem
+     * montar a lista em memória (exportações). A consulta roda em uma conexão de
+     * leitura: todos os registros vêm do mesmo instantâneo do banco e as
+     * gravações (desta e de outras estações) continuam durante a leitura.
+     *
+     * @param filter Critérios de filtro.
+     * @param action Chamado para cada registro.
+     * @return Quantidade de registros percorridos.
+     * @throws SQLException se a leitura falhar.
+     */
+    public int forEachComputer(ComputerFilter filter, Consumer<Computer> action) throws SQLException {
+        String sql = "SELECT " + COMPUTER_COLUMNS + " FROM computers WHERE " + filterClause(filter) + " ORDER BY id";
+        int count = 0;
+        try (Connection conn = connectReader()) {
+            if (conn == null) {
+                throw new SQLException("Conexão de leitura indisponível.");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bindFilter(stmt, filter, 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(mapComputer(rs));
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Conta os computadores que atendem ao filtro.
+     *
+     * @param filter Critérios de filtro.
+     * @return Quantidade de registros.
+     */
+    public int countComputers(ComputerFilter filter) {
+        String sql = "SELECT COUNT(*) FROM computers WHERE " + filterClause(filter);
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bindFilter(stmt, filter, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao contar computadores: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Conta os computadores fora da lixeira por localização e status em uma
+     * única consulta (GROUP BY), atendida pelo índice
+     * idx_computers_location_status sem ler a tabela.
+     *
+     * @return Contagens; vazias em caso de erro.
+     */
+    public InventoryStats loadStats() {
+        InventoryStats stats = new InventoryStats();
+        String sql = "SELECT location, activity_status, COUNT(*) FROM computers WHERE is_deleted = 0 "
+                + "GROUP BY location, activity_status";
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                stats.add(rs.getString(1), rs.getString(2), rs.getInt(3));
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao calcular estatísticas: " + e.getMessage());
+        }
+        return stats;
+    }
+
+    /**
+     * Retorna o ID do registro na posição informada (base 0) da ordem por ID.
+     * Usado para descobrir o afterId de uma página distante sem carregar as
+     * anteriores; percorre apenas o índice.
+     *
+     * @param filter   Critérios de filtro.
+     * @param position Posição do registro.
+     * @return ID do registro, ou -1 se a posição não existir.
+     */
+    public int findComputerIdAt(ComputerFilter filter, int position) {
+        String sql = "SELECT id FROM computers WHERE " + filterClause(filter) + " ORDER BY id LIMIT 1 OFFSET ?";
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = bindFilter(stmt, filter, 1);
+            stmt.setInt(index, position);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao localizar página de computadores: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Pesquisa computadores ativos no índice de texto completo (FTS5). Cada
+     * palavra digitada é tratada como prefixo ("not" encontra "notebook") e todas
+     * precisam estar presentes; acentos são ignorados. O resultado vem ordenado
+     * por relevância (bm25).
+     *
+     * @param query Texto digitado pelo usuário.
+     * @param limit Quantidade máxima de resultados.
+     * @return IDs dos computadores encontrados, do mais relevante ao menos.
+     */
+    public List<Integer> searchComputerIds(String query, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        String match = toFullTextQuery(query);
+        if (match.isEmpty()) {
+            return ids;
+        }
+        String sql = "SELECT c.id FROM computers_fts f JOIN computers c ON c.id = f.rowid "
+                + "WHERE computers_fts MATCH ? AND c.is_deleted = 0 ORDER BY f.rank LIMIT ?";
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, match);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao pesquisar computadores: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Integer> searchDeferredObservationIds(String query) {
+        List<Integer> ids = new ArrayList<>();
+        String match = toFullTextQuery(query);
+        if (match.isEmpty()) {
+            return ids;
+        }
+        // Só a coluna observation, e só as linhas cuja observação não veio com a
+        // lista (as outras já são pesquisadas em memória)
+        String sql = "SELECT c.id FROM computers_fts f JOIN computers c ON c.id = f.rowid "
+                + "WHERE computers_fts MATCH ? AND c.is_deleted = 0 AND octet_length(c.observation) > "
+                + INLINE_OBSERVATION_BYTES;
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, "observation : (" + match + ")");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao pesquisar observações: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /**
+     * Converte o texto digitado em uma expressão MATCH do FTS5: cada palavra vira
+     * um prefixo entre aspas ("palavra"*), o que também neutraliza a sintaxe
+     * especial do FTS5 (AND, OR, NEAR, parênteses etc.).
+     */
+    static String toFullTextQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String token : query.trim().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(token).append("\"*");
+            }
+        }
+        return match.toString();
+    }
+
+    /**
+     * Monta a cláusula WHERE do filtro. O valor de is_deleted vai literal no SQL
+     * para que o SQLite possa usar os índices parciais (WHERE is_deleted = 0).
+     */
+    private static String filterClause(ComputerFilter filter) {
+        StringBuilder where = new StringBuilder(filter.isDeleted() ? "is_deleted = 1" : "is_deleted = 0");
+        if (filter.hasLocation()) {
+            // Sem espaços nas pontas, como a tela; atendido por idx_computers_location_trim
+            where.append(" AND trim(location) = ? COLLATE NOCASE");
+        }
+        if (filter.hasActivityStatus()) {
+            where.append(" AND activity_status = ?");
+        }
+        return where.toString();
+    }
+
+    private static int bindFilter(PreparedStatement stmt, ComputerFilter filter, int index) throws SQLException {
+        if (filter.hasLocation()) {
+            stmt.setString(index++, filter.getLocation());
+        }
+        if (filter.hasActivityStatus()) {
+            stmt.setString(index++, filter.getActivityStatus());
+        }
+        return index;
+    }
+
+    private static Computer mapListComputer(ResultSet rs) throws SQLException {
+        Computer computer = mapComputer(rs);
+        if (rs.getInt("observation_deferred") == 1) {
+            computer.setObservationLoaded(false);
+        }
+        return computer;
+    }
+
+    private static Computer mapComputer(ResultSet rs) throws SQLException {
+        Computer computer = new Computer(
+                rs.getInt("id"),
+                rs.getString("tag"),
+                rs.getString("model"),
+                rs.getString("brand"),
+                rs.getString("state"),
+                rs.getString("user_name"),
+                rs.getString("serial_number"),
+                rs.getString("windows_version"),
+                rs.getString("office_version"),
+                rs.getString("purchase_date"),
+                rs.getString("location"),
+                rs.getString("observation"),
+                rs.getString("hostname"),
+                rs.getString("sector"),
+                rs.getString("patrimony"),
+                rs.getString("activity_status")); // Passa o status
+        computer.setDeleted(rs.getInt("is_deleted") == 1);
+        computer.setRowVersion(rs.getLong("row_version"));
+        return computer;
+    }
+
     /**
      * Insere um registro de histórico no banco de dados.
      *
      * @param history Registro de histórico a ser inserido.
      */
     public void insertHistory(HistoryEntry history) {
-        String sql = "INSERT INTO history(action, user, timestamp, description) VALUES(?, ?, ?, ?)";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, history.getAction().name());
-            pstmt.setString(2, history.getUser());
-            pstmt.setString(3, history.getTimestamp().toString());
-            pstmt.setString(4, history.getDescription());
-            pstmt.executeUpdate();
+        try {
+            withBusyRetry(conn -> {
+                insertHistory(conn, history);
+                return null;
+            });
 
         } catch (SQLException e) {
             System.err.println("Erro ao inserir histórico: " + e.getMessage());
@@ -524,7 +1424,7 @@ public class DatabaseHelper {
     public List<HistoryEntry> loadHistory() {
         List<HistoryEntry> historyList = new ArrayList<>();
         String sql = "SELECT action, user, timestamp, description FROM history";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -541,6 +1441,78 @@ public class DatabaseHelper {
         return historyList;
     }
 
+    /**
+     * Carrega uma página do histórico, do registro mais recente para o mais
+     * antigo, direto do banco (ordenação e filtros feitos pelo SQLite, usando os
+     * índices de history). Parâmetros nulos não filtram.
+     *
+     * @param from   Data/hora inicial (inclusiva).
+     * @param to     Data/hora final (inclusiva).
+     * @param user   Usuário que realizou a ação.
+     * @param action Tipo de ação.
+     * @param limit  Quantidade máxima de registros na página.
+     * @param cursor Cursor da página anterior, ou null para a primeira página.
+     * @return Página com os registros e o cursor da próxima.
+     */
+    public HistoryPage loadHistory(LocalDateTime from, LocalDateTime to, String user, HistoryEntry.ActionType action,
+            int limit, HistoryPage.Cursor cursor) {
+        StringBuilder sql = new StringBuilder("SELECT id, action, user, timestamp, description FROM history WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (user != null && !user.isEmpty()) {
+            sql.append(" AND user = ?");
+            params.add(user);
+        }
+        if (action != null) {
+            sql.append(" AND action = ?");
+            params.add(action.name());
+        }
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            params.add(from.toString());
+        }
+        if (to != null) {
+            sql.append(" AND timestamp <= ?");
+            params.add(to.toString());
+        }
+        if (cursor != null) {
+            sql.append(" AND (timestamp, id) < (?, ?)");
+            params.add(cursor.getTimestamp());
+            params.add(cursor.getId());
+        }
+        // Busca um registro a mais para saber se existe próxima página
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        List<HistoryEntry> entries = new ArrayList<>();
+        HistoryPage.Cursor next = null;
+        try (Connection conn = connectReader();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                String lastTimestamp = null;
+                int lastId = 0;
+                while (rs.next()) {
+                    if (entries.size() == limit) {
+                        next = new HistoryPage.Cursor(lastTimestamp, lastId);
+                        break;
+                    }
+                    lastTimestamp = rs.getString("timestamp");
+                    lastId = rs.getInt("id");
+                    entries.add(new HistoryEntry(
+                            HistoryEntry.ActionType.valueOf(rs.getString("action")),
+                            rs.getString("user"),
+                            LocalDateTime.parse(lastTimestamp),
+                            rs.getString("description")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao carregar histórico: " + e.getMessage());
+        }
+        return new HistoryPage(entries, next);
+    }
+
     /**
      * Retorna uma lista de nomes de empresas.
      *
@@ -549,7 +1521,7 @@ public class DatabaseHelper {
     public List<String> getCompanies() {
         List<String> companies = new ArrayList<>();
         String sql = "SELECT name FROM companies";
-        try (Connection conn = connect();
+        try (Connection conn = connectReader();
                 PreparedStatement stmt = conn.prepareStatement(sql);
                 ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
@@ -0,0 +1,239 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe DatabaseMaintenance - Manutenção periódica do banco, executada em uma
+ * thread de fundo (maintenance.intervalMinutes):
+ *
+ * <ol>
+ * <li>remove definitivamente os computadores que estão na lixeira há mais de
+ * recycleBin.retentionDays dias (se configurado), em blocos pequenos para não
+ * segurar a conexão de escrita;</li>
+ * <li>devolve ao sistema até maintenance.vacuumPages páginas livres (PRAGMA
+ * incremental_vacuum), mantendo o arquivo compacto, se o banco usa
+ * auto_vacuum=INCREMENTAL;</li>
+ * <li>atualiza as estatísticas do planejador (ANALYZE com analysis_limit).</li>
+ * </ol>
+ *
+ * O incremental_vacuum exige auto_vacuum=INCREMENTAL, que só pode ser ligado
+ * antes de criar as tabelas: bancos novos já nascem assim
+ * ({@link StorageProfile#apply(Connection)}). Um banco existente só é
+ * convertido (VACUUM completo) com maintenance.convertAutoVacuum=true: o VACUUM
+ * segura a conexão de escrita até o fim, bloqueando as gravações de todas as
+ * estações, e precisa de espaço livre em disco de cerca do dobro do arquivo.
+ * Sem a conversão, o banco fica como está e o passo do incremental_vacuum é
+ * pulado.
+ */
+final class DatabaseMaintenance {
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int PURGE_CHUNK_SIZE = 500;
+    private static final int ANALYSIS_LIMIT = 400;
+    private static final long INITIAL_DELAY_SECONDS = 60;
+    private static final String SYSTEM_USER = "sistema";
+
+    private static ScheduledExecutorService executor;
+
+    private static volatile String lastRun = "-";
+    private static volatile String lastResult = "-";
+    private static volatile long totalPurged;
+
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * Inicia a execução periódica, se ainda não estiver rodando e
+     * maintenance.intervalMinutes for maior que zero.
+     */
+    static synchronized void start(DatabaseConfig config) {
+        if (executor != null || config.getMaintenanceIntervalMinutes() <= 0) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventario-manutencao");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> runOnce(config), INITIAL_DELAY_SECONDS,
+                TimeUnit.MINUTES.toSeconds(config.getMaintenanceIntervalMinutes()), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Interrompe a execução periódica, esperando a passada em andamento.
+     */
+    static synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Executa uma passada completa da manutenção. Erros são registrados e não
+     * interrompem as execuções seguintes.
+     */
+    static void runOnce(DatabaseConfig config) {
+        StringBuilder result = new StringBuilder();
+        try {
+            if (config.isMaintenanceConvertAutoVacuum() && convertToIncrementalAutoVacuum()) {
+                result.append("banco convertido para auto_vacuum=INCREMENTAL; ");
+            }
+            int purged = purgeRecycleBin(config.getRecycleBinRetentionDays());
+            totalPurged += purged;
+            result.append(purged).append(" removidos da lixeira; ");
+            long freed = incrementalVacuum(config.getMaintenanceVacuumPages());
+            result.append(freed < 0 ? "sem auto_vacuum=INCREMENTAL; " : freed + " páginas liberadas; ");
+            analyze();
+            result.append("estatísticas atualizadas");
+        } catch (SQLException e) {
+            System.err.println("Erro na manutenção do banco: " + e.getMessage());
+            result.append("erro: ").append(e.getMessage());
+        }
+        lastRun = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
+        lastResult = result.toString();
+    }
+
+    /**
+     * Converte um banco existente para auto_vacuum=INCREMENTAL (VACUUM completo,
+     * uma única vez; só com maintenance.convertAutoVacuum=true). Durante a
+     * conversão as gravações de todas as estações aguardam.
+     *
+     * @return true se a conversão foi feita agora.
+     */
+    private static boolean convertToIncrementalAutoVacuum() throws SQLException {
+        return DatabaseHelper.withBusyRetry(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                if (queryLong(stmt, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+                    return false;
+                }
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Remove definitivamente os computadores excluídos (lógica) há mais de
+     * retentionDays dias, em blocos de PURGE_CHUNK_SIZE por transação, e
+     * registra um histórico com o total.
+     *
+     * @return Quantidade de computadores removidos.
+     */
+    static int purgeRecycleBin(int retentionDays) throws SQLException {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        // updated_at é gravado ao mover para a lixeira (ver DatabaseHelper.setDeleted)
+        String sql = "DELETE FROM computers WHERE id IN (SELECT id FROM computers WHERE is_deleted = 1 "
+                + "AND updated_at < strftime('%Y-%m-%dT%H:%M:%f', 'now', 'localtime', ?) LIMIT "
+                + PURGE_CHUNK_SIZE + ")";
+        String modifier = "-" + retentionDays + " days";
+        int total = 0;
+        while (true) {
+            int deleted = DatabaseHelper.withBusyRetry(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, modifier);
+                    return stmt.executeUpdate();
+                }
+            });
+            total += deleted;
+            if (deleted < PURGE_CHUNK_SIZE) {
+                break;
+            }
+        }
+        if (total > 0) {
+            int purged = total;
+            DatabaseHelper.withBusyRetry(conn -> {
+                DatabaseHelper.insertHistory(conn, new HistoryEntry(HistoryEntry.ActionType.EXCLUIR, SYSTEM_USER,
+                        "Removidos definitivamente da lixeira " + purged + " computadores (mais de "
+                                + retentionDays + " dias na lixeira)"));
+                return null;
+            });
+        }
+        return total;
+    }
+
+    /**
+     * @return Quantidade de páginas devolvidas ao sistema, ou -1 se o banco não
+     *         usa auto_vacuum=INCREMENTAL (nada é feito).
+     */
+    private static long incrementalVacuum(int pages) throws SQLException {
+        return DatabaseHelper.withBusyRetry(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                if (queryLong(stmt, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+                    return -1L;
+                }
+                long before = queryLong(stmt, "PRAGMA freelist_count");
+                if (before == 0) {
+                    return 0L;
+                }
+                // executeUpdate executa o PRAGMA até o fim; execute pararia no
+                // primeiro passo (uma página por passo)
+                stmt.executeUpdate("PRAGMA incremental_vacuum(" + pages + ")");
+                return before - queryLong(stmt, "PRAGMA freelist_count");
+            }
+        });
+    }
+
+    /**
+     * ANALYZE com amostragem limitada (analysis_limit), para não segurar a
+     * conexão de escrita em bancos grandes.
+     */
+    private static void analyze() throws SQLException {
+        DatabaseHelper.withBusyRetry(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+                stmt.execute("ANALYZE");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return Situação da manutenção, para a tela de diagnóstico.
+     */
+    static Map<String, String> describe(DatabaseConfig config) {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("Manutenção - intervalo (min)", config.getMaintenanceIntervalMinutes() > 0
+                ? String.valueOf(config.getMaintenanceIntervalMinutes())
+                : "desativada");
+        info.put("Manutenção - retenção da lixeira (dias)", config.getRecycleBinRetentionDays() > 0
+                ? String.valueOf(config.getRecycleBinRetentionDays())
+                : "sem limite");
+        info.put("Manutenção - converter para auto_vacuum=INCREMENTAL",
+                config.isMaintenanceConvertAutoVacuum() ? "sim" : "não");
+        info.put("Manutenção - última execução", lastRun);
+        info.put("Manutenção - resultado", lastResult);
+        info.put("Manutenção - removidos da lixeira (sessão)", String.valueOf(totalPurged));
+        return info;
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
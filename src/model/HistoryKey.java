@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * Chave de ordenação do histórico nos armazenamentos sem SQL: timestamp (no
+ * formato gravado pelo SQLite, LocalDateTime.toString()) e ID, em ordem
+ * decrescente, como o ORDER BY timestamp DESC, id DESC de
+ * {@link DatabaseHelper#loadHistory(java.time.LocalDateTime, java.time.LocalDateTime, String, HistoryEntry.ActionType, int, HistoryPage.Cursor)}.
+ */
+final class HistoryKey implements Comparable<HistoryKey> {
+    final String timestamp;
+    final int id;
+
+    HistoryKey(String timestamp, int id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    @Override
+    public int compareTo(HistoryKey other) {
+        int result = other.timestamp.compareTo(timestamp);
+        return result != 0 ? result : Integer.compare(other.id, id);
+    }
+}
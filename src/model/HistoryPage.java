@@ -0,0 +1,56 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de registros de histórico, do mais recente para o mais antigo, e o
+ * cursor para buscar a página seguinte.
+ */
+public class HistoryPage {
+
+    /**
+     * Posição após o último registro de uma página (timestamp e id), usada para
+     * continuar a consulta sem OFFSET.
+     */
+    public static class Cursor {
+        private final String timestamp;
+        private final int id;
+
+        Cursor(String timestamp, int id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        String getTimestamp() {
+            return timestamp;
+        }
+
+        int getId() {
+            return id;
+        }
+    }
+
+    private final List<HistoryEntry> entries;
+    private final Cursor nextCursor;
+
+    HistoryPage(List<HistoryEntry> entries, Cursor nextCursor) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<HistoryEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return Cursor da próxima página, ou null se esta for a última.
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
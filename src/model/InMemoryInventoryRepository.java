@@ -0,0 +1,519 @@
+package model;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static model.ComputerQueries.containsAllPrefixes;
+import static model.ComputerQueries.copy;
+import static model.ComputerQueries.matches;
+import static model.ComputerQueries.words;
+
+/**
+ * Classe InMemoryInventoryRepository - Implementação de
+ * {@link InventoryRepository} somente em memória, sem acesso a disco. Os dados
+ * se perdem ao encerrar a aplicação; serve para medir o desempenho dos
+ * controladores e das telas sem E/S e para testes rápidos
+ * (storage.engine=memory).
+ *
+ * Segue as mesmas regras do SQLite: IDs e versões crescentes, exclusão lógica,
+ * verificação de versão em {@link #updateComputer(Computer)} e nomes únicos
+ * de usuários e empresas. Os registros guardados são cópias: alterar um
+ * objeto devolvido não altera o repositório.
+ *
+ * As leituras não bloqueiam (mapas concorrentes); as gravações de
+ * computadores passam por um único lock, para que as versões sejam
+ * atribuídas e publicadas em ordem, como na conexão de escrita do SQLite.
+ */
+public class InMemoryInventoryRepository implements InventoryRepository {
+
+    // Ordenados por ID, como as consultas ORDER BY id do SQLite
+    private final ConcurrentSkipListMap<Integer, Computer> computers = new ConcurrentSkipListMap<>();
+    // Do mais recente para o mais antigo (timestamp DESC, id DESC)
+    private final ConcurrentSkipListMap<HistoryKey, HistoryEntry> history = new ConcurrentSkipListMap<>();
+    // Nome -> ID, para devolver na ordem de cadastro
+    private final ConcurrentHashMap<String, Integer> userIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> passwords = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> companies = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextComputerId = new AtomicInteger();
+    private final AtomicInteger nextHistoryId = new AtomicInteger();
+    private final AtomicInteger nextUserId = new AtomicInteger();
+    private final AtomicInteger nextCompanyId = new AtomicInteger();
+    private final AtomicLong rowVersion = new AtomicLong();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public InMemoryInventoryRepository() {
+        // Empresas padrão, como na migração inicial do SQLite
+        addCompany("NPD");
+        addCompany("INFAN");
+    }
+
+    @Override
+    public void createTable() {
+        // Nada a preparar
+    }
+
+    @Override
+    public Map<String, String> getDiagnostics() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("Mecanismo de armazenamento", "memória (storage.engine=memory)");
+        info.put("Computadores", String.valueOf(computers.size()));
+        info.put("Registros de histórico", String.valueOf(history.size()));
+        info.put("Usuários", String.valueOf(userIds.size()));
+        info.put("Empresas", String.valueOf(companies.size()));
+        info.put("Versão de linha atual", String.valueOf(rowVersion.get()));
+        return info;
+    }
+
+    // Computadores
+
+    @Override
+    public void insertComputer(Computer computer) {
+        writeLock.lock();
+        try {
+            computer.setId(nextComputerId.incrementAndGet());
+            store(computer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public BatchResult insertComputers(List<Computer> computers) {
+        BatchResult result = new BatchResult();
+        writeLock.lock();
+        try {
+            for (Computer computer : computers) {
+                computer.setId(nextComputerId.incrementAndGet());
+                store(computer);
+                result.addSuccess(computer.getId());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Executa o trabalho com o lock de escrita: nenhuma outra gravação de
+     * computadores se intercala. Não há desfazer: se o trabalho lançar exceção,
+     * o que já foi gravado permanece.
+     */
+    @Override
+    public <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            return work.run(new RepositoryUnitOfWork(this));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public UpdateResult updateComputer(Computer computer) {
+        writeLock.lock();
+        try {
+            Computer stored = computers.get(computer.getId());
+            if (stored == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (stored.getRowVersion() != computer.getRowVersion()) {
+                return UpdateResult.CONFLICT;
+            }
+            replace(stored, computer);
+            return UpdateResult.UPDATED;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public BatchResult updateComputers(List<Computer> computers) {
+        BatchResult result = new BatchResult();
+        writeLock.lock();
+        try {
+            for (Computer computer : computers) {
+                Computer stored = this.computers.get(computer.getId());
+                if (stored == null) {
+                    result.addFailure("Computador não encontrado: id " + computer.getId());
+                } else {
+                    replace(stored, computer);
+                    result.addSuccess(computer.getId());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean deleteComputer(Computer computer) {
+        return setDeleted(computer, true);
+    }
+
+    @Override
+    public boolean restoreComputer(Computer computer) {
+        return setDeleted(computer, false);
+    }
+
+    @Override
+    public Map<Integer, Long> deleteComputers(Collection<Integer> ids) {
+        return setDeleted(ids, true);
+    }
+
+    @Override
+    public Map<Integer, Long> restoreComputers(Collection<Integer> ids) {
+        return setDeleted(ids, false);
+    }
+
+    private Map<Integer, Long> setDeleted(Collection<Integer> ids, boolean deleted) {
+        Map<Integer, Long> changed = new LinkedHashMap<>();
+        writeLock.lock();
+        try {
+            for (Integer id : ids) {
+                Computer stored = computers.get(id);
+                if (stored != null && stored.isDeleted() != deleted) {
+                    Computer copy = copy(stored);
+                    copy.setDeleted(deleted);
+                    store(copy);
+                    changed.put(id, copy.getRowVersion());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return changed;
+    }
+
+    private boolean setDeleted(Computer computer, boolean deleted) {
+        writeLock.lock();
+        try {
+            Computer stored = computers.get(computer.getId());
+            if (stored == null) {
+                return false;
+            }
+            Computer copy = copy(stored);
+            copy.setDeleted(deleted);
+            store(copy);
+            computer.setRowVersion(copy.getRowVersion());
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Grava o computador com os dados informados, mantendo a observação
+     * guardada quando ela não veio carregada (como o COALESCE do UPDATE).
+     */
+    private void replace(Computer stored, Computer computer) {
+        Computer copy = copy(computer);
+        if (computer.getObservation() == null) {
+            copy.setObservation(stored.getObservation());
+        }
+        store(copy);
+        computer.setRowVersion(copy.getRowVersion());
+    }
+
+    /**
+     * Guarda uma cópia com a próxima versão e a atribui também ao original.
+     * Chamado com writeLock.
+     */
+    private void store(Computer computer) {
+        long version = rowVersion.incrementAndGet();
+        computer.setRowVersion(version);
+        Computer copy = copy(computer);
+        copy.setObservationLoaded(true);
+        computers.put(copy.getId(), copy);
+        dataVersion.incrementAndGet();
+    }
+
+    @Override
+    public List<Computer> loadComputers() {
+        return collect(new ComputerFilter(), Integer.MAX_VALUE, 0);
+    }
+
+    @Override
+    public List<Computer> loadDeletedComputers() {
+        return collect(ComputerFilter.recycleBin(), Integer.MAX_VALUE, 0);
+    }
+
+    @Override
+    public List<Computer> loadComputers(int afterId, int pageSize, ComputerFilter filter) {
+        return collect(filter, pageSize, afterId);
+    }
+
+    private List<Computer> collect(ComputerFilter filter, int limit, int afterId) {
+        List<Computer> result = new ArrayList<>();
+        for (Computer computer : computers.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (matches(computer, filter)) {
+                result.add(copy(computer));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Computer> loadComputersChangedSince(long rowVersion) {
+        List<Computer> result = new ArrayList<>();
+        for (Computer computer : computers.values()) {
+            if (computer.getRowVersion() > rowVersion) {
+                result.add(copy(computer));
+            }
+        }
+        result.sort(Comparator.comparingLong(Computer::getRowVersion));
+        return result;
+    }
+
+    @Override
+    public long getMaxRowVersion() {
+        return rowVersion.get();
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @Override
+    public String loadObservation(int id, long rowVersion) {
+        Computer computer = computers.get(id);
+        return computer != null ? computer.getObservation() : null;
+    }
+
+    @Override
+    public int forEachComputer(ComputerFilter filter, Consumer<Computer> action) {
+        int count = 0;
+        for (Computer computer : computers.values()) {
+            if (matches(computer, filter)) {
+                action.accept(copy(computer));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countComputers(ComputerFilter filter) {
+        int count = 0;
+        for (Computer computer : computers.values()) {
+            if (matches(computer, filter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public InventoryStats loadStats() {
+        InventoryStats stats = new InventoryStats();
+        for (Computer computer : computers.values()) {
+            if (!computer.isDeleted()) {
+                stats.add(computer.getLocation(), computer.getActivityStatus(), 1);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public int findComputerIdAt(ComputerFilter filter, int position) {
+        int index = 0;
+        for (Computer computer : computers.values()) {
+            if (matches(computer, filter)) {
+                if (index == position) {
+                    return computer.getId();
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List<Integer> searchComputerIds(String query, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        List<String> tokens = words(query);
+        if (tokens.isEmpty()) {
+            return ids;
+        }
+        for (Computer computer : computers.values()) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            if (!computer.isDeleted() && containsAllPrefixes(computer, tokens)) {
+                ids.add(computer.getId());
+            }
+        }
+        return ids;
+    }
+
+    // Histórico
+
+    @Override
+    public void insertHistory(HistoryEntry entry) {
+        HistoryKey key = new HistoryKey(entry.getTimestamp().toString(), nextHistoryId.incrementAndGet());
+        history.put(key, copy(entry));
+    }
+
+    @Override
+    public List<HistoryEntry> loadHistory() {
+        // Ordem de inserção, como o SELECT sem ORDER BY do SQLite
+        List<Map.Entry<HistoryKey, HistoryEntry>> entries = new ArrayList<>(history.entrySet());
+        entries.sort(Comparator.comparingInt(entry -> entry.getKey().id));
+        List<HistoryEntry> list = new ArrayList<>(entries.size());
+        for (Map.Entry<HistoryKey, HistoryEntry> entry : entries) {
+            list.add(copy(entry.getValue()));
+        }
+        return list;
+    }
+
+    @Override
+    public HistoryPage loadHistory(LocalDateTime from, LocalDateTime to, String user, HistoryEntry.ActionType action,
+            int limit, HistoryPage.Cursor cursor) {
+        ConcurrentNavigableMap<HistoryKey, HistoryEntry> range = cursor == null ? history
+                : history.tailMap(new HistoryKey(cursor.getTimestamp(), cursor.getId()), false);
+        String fromText = from != null ? from.toString() : null;
+        String toText = to != null ? to.toString() : null;
+
+        List<HistoryEntry> entries = new ArrayList<>();
+        HistoryKey last = null;
+        for (Map.Entry<HistoryKey, HistoryEntry> entry : range.entrySet()) {
+            HistoryKey key = entry.getKey();
+            HistoryEntry value = entry.getValue();
+            if (fromText != null && key.timestamp.compareTo(fromText) < 0) {
+                break; // Daqui em diante todos são mais antigos
+            }
+            if ((toText != null && key.timestamp.compareTo(toText) > 0)
+                    || (user != null && !user.isEmpty() && !user.equals(value.getUser()))
+                    || (action != null && action != value.getAction())) {
+                continue;
+            }
+            if (entries.size() == limit) {
+                return new HistoryPage(entries, new HistoryPage.Cursor(last.timestamp, last.id));
+            }
+            entries.add(copy(value));
+            last = key;
+        }
+        return new HistoryPage(entries, null);
+    }
+
+    // Usuários
+
+    @Override
+    public boolean validateLogin(String userName, String password) {
+        return userName != null && password != null && password.equals(passwords.get(userName));
+    }
+
+    @Override
+    public List<User> getUsers() {
+        return loadUsers();
+    }
+
+    @Override
+    public List<User> loadUsers() {
+        List<User> users = new ArrayList<>();
+        for (String name : inInsertionOrder(userIds)) {
+            String password = passwords.get(name);
+            if (password != null) {
+                users.add(new User(name, password));
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public boolean insertUser(String userName, String password) {
+        if (userName == null || password == null) {
+            System.err.println("Erro ao inserir usuário: nome e senha são obrigatórios.");
+            return false;
+        }
+        synchronized (userIds) {
+            if (userIds.containsKey(userName)) {
+                System.err.println("Erro ao inserir usuário: " + userName + " já cadastrado.");
+                return false;
+            }
+            passwords.put(userName, password);
+            userIds.put(userName, nextUserId.incrementAndGet());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isUserExists(String userName) {
+        return userName != null && userIds.containsKey(userName);
+    }
+
+    @Override
+    public boolean editUserPassword(String userName, String newPassword) {
+        if (userName == null || newPassword == null) {
+            return false;
+        }
+        synchronized (userIds) {
+            return userIds.containsKey(userName) && passwords.put(userName, newPassword) != null;
+        }
+    }
+
+    @Override
+    public boolean deleteUser(String userName) {
+        if (userName == null) {
+            return false;
+        }
+        synchronized (userIds) {
+            passwords.remove(userName);
+            return userIds.remove(userName) != null;
+        }
+    }
+
+    // Empresas
+
+    @Override
+    public List<String> getCompanies() {
+        return inInsertionOrder(companies);
+    }
+
+    @Override
+    public boolean addCompany(String name) {
+        if (name == null) {
+            System.err.println("Erro ao inserir empresa: nome obrigatório.");
+            return false;
+        }
+        if (companies.putIfAbsent(name, nextCompanyId.incrementAndGet()) != null) {
+            System.err.println("Erro ao inserir empresa: " + name + " já cadastrada.");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteCompany(String name) {
+        return name != null && companies.remove(name) != null;
+    }
+
+    private static List<String> inInsertionOrder(Map<String, Integer> ids) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(ids.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+        List<String> names = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            names.add(entry.getKey());
+        }
+        return names;
+    }
+}
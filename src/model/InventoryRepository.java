@@ -0,0 +1,290 @@
+package model;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Interface InventoryRepository - Armazenamento do inventário: computadores,
+ * histórico, usuários e empresas. Os controladores dependem apenas desta
+ * interface, de modo que o mecanismo de armazenamento pode ser trocado sem
+ * alterar as telas.
+ *
+ * Implementações: {@link DatabaseHelper} (SQLite, padrão),
+ * {@link InMemoryInventoryRepository} (somente memória, sem disco) e
+ * {@link LogInventoryRepository} (log de registros mapeado em memória). A
+ * escolha é feita pela chave storage.engine de database.properties (ver
+ * {@link #open(DatabaseConfig)}).
+ *
+ * Os métodos não lançam exceções de armazenamento: erros são registrados no
+ * console e indicados pelo retorno (false, lista vazia, -1 etc.).
+ */
+public interface InventoryRepository {
+
+    /**
+     * Cria a implementação configurada em storage.engine.
+     *
+     * @param config Configuração atual.
+     * @return Repositório pronto para uso (após {@link #createTable()}).
+     */
+    static InventoryRepository open(DatabaseConfig config) {
+        if (DatabaseConfig.ENGINE_MEMORY.equals(config.getStorageEngine())) {
+            return new InMemoryInventoryRepository();
+        }
+        if (DatabaseConfig.ENGINE_LOG.equals(config.getStorageEngine())) {
+            return new LogInventoryRepository(config);
+        }
+        return new DatabaseHelper();
+    }
+
+    /**
+     * Prepara o armazenamento (esquema, recuperação de alterações pendentes).
+     * Pode ser chamado mais de uma vez.
+     */
+    void createTable();
+
+    /**
+     * Grava o que estiver pendente e libera os arquivos. Chamado ao encerrar a
+     * aplicação.
+     */
+    default void close() {
+    }
+
+    /**
+     * @return Informações de diagnóstico (nome/valor, na ordem de exibição).
+     */
+    Map<String, String> getDiagnostics();
+
+    /**
+     * Executa várias gravações (por exemplo, a alteração de um computador e o
+     * seu registro de histórico) como uma única transação: uma única gravação
+     * em disco e nada aplicado pela metade em caso de queda.
+     *
+     * @param work Gravações, feitas pela {@link UnitOfWork} recebida.
+     * @return Valor retornado pelo trabalho.
+     * @throws SQLException se a transação falhar. No SQLite e no mecanismo de
+     *                      log nada é gravado (as alterações são desfeitas);
+     *                      só no mecanismo de memória o que o trabalho gravou
+     *                      antes da falha permanece.
+     */
+    <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException;
+
+    /**
+     * Grava uma cópia completa e consistente do armazenamento, sem interromper
+     * as gravações em andamento.
+     *
+     * @param target   Arquivo de destino.
+     * @param progress Andamento da cópia (pode ser null).
+     * @throws SQLException se a cópia falhar ou o mecanismo não tiver backup.
+     */
+    default void backup(Path target, BackupProgress progress) throws SQLException {
+        throw new SQLException("Backup não disponível para este mecanismo de armazenamento.");
+    }
+
+    /**
+     * Substitui todo o conteúdo pelo de um backup gravado por
+     * {@link #backup(Path, BackupProgress)}, depois de verificá-lo.
+     *
+     * @param source   Arquivo de backup.
+     * @param progress Andamento da cópia (pode ser null).
+     * @throws SQLException se o backup for inválido ou a restauração falhar.
+     */
+    default void restoreBackup(Path source, BackupProgress progress) throws SQLException {
+        throw new SQLException("Restauração não disponível para este mecanismo de armazenamento.");
+    }
+
+    // Computadores
+
+    /**
+     * Insere um computador; o ID e a versão gerados são atribuídos ao objeto.
+     */
+    void insertComputer(Computer computer);
+
+    /**
+     * Insere vários computadores de uma vez; os IDs e versões gerados são
+     * atribuídos aos objetos.
+     *
+     * @return IDs na ordem de entrada e falhas por linha.
+     */
+    BatchResult insertComputers(List<Computer> computers);
+
+    /**
+     * Atualiza o computador se o registro ainda estiver na versão em que foi
+     * carregado (computer.getRowVersion()). Uma observação nula mantém a
+     * gravada (observação longa não carregada).
+     *
+     * @return UPDATED (e a nova versão atribuída ao objeto), CONFLICT, NOT_FOUND
+     *         ou ERROR.
+     */
+    UpdateResult updateComputer(Computer computer);
+
+    /**
+     * Atualiza vários computadores sem verificar a versão (importações).
+     *
+     * @return IDs na ordem de entrada e falhas por linha.
+     */
+    BatchResult updateComputers(List<Computer> computers);
+
+    /**
+     * Move o computador para a lixeira (exclusão lógica).
+     *
+     * @return true se o registro foi alterado.
+     */
+    boolean deleteComputer(Computer computer);
+
+    /**
+     * Restaura o computador da lixeira.
+     *
+     * @return true se o registro foi alterado.
+     */
+    boolean restoreComputer(Computer computer);
+
+    /**
+     * Move vários computadores para a lixeira de uma vez (uma transação). Os
+     * que já estão na lixeira ou não existem são ignorados.
+     *
+     * @param ids IDs dos computadores.
+     * @return Nova versão de cada computador alterado, por ID (vazio em caso de
+     *         erro).
+     */
+    Map<Integer, Long> deleteComputers(Collection<Integer> ids);
+
+    /**
+     * Restaura vários computadores da lixeira de uma vez (uma transação). Os que
+     * não estão na lixeira ou não existem são ignorados.
+     *
+     * @param ids IDs dos computadores.
+     * @return Nova versão de cada computador alterado, por ID (vazio em caso de
+     *         erro).
+     */
+    Map<Integer, Long> restoreComputers(Collection<Integer> ids);
+
+    /**
+     * @return Computadores ativos (fora da lixeira), em ordem de ID.
+     */
+    List<Computer> loadComputers();
+
+    /**
+     * @return Computadores da lixeira, em ordem de ID.
+     */
+    List<Computer> loadDeletedComputers();
+
+    /**
+     * Página de computadores com ID maior que afterId, em ordem de ID.
+     */
+    List<Computer> loadComputers(int afterId, int pageSize, ComputerFilter filter);
+
+    /**
+     * @return Registros (inclusive os da lixeira) com versão maior que a
+     *         informada, em ordem de versão.
+     */
+    List<Computer> loadComputersChangedSince(long rowVersion);
+
+    /**
+     * @return Maior versão de registro gravada (0 se vazio).
+     */
+    long getMaxRowVersion();
+
+    /**
+     * @return Contador que muda a cada alteração confirmada, ou -1 se
+     *         indisponível.
+     */
+    long getDataVersion();
+
+    /**
+     * @return Valor que muda quando o inventário é substituído por inteiro (uma
+     *         restauração de backup), ou -1 se indisponível. Armazenamentos que
+     *         não compartilham o banco entre estações podem manter o padrão.
+     */
+    default long getRestoreEpoch() {
+        return 0;
+    }
+
+    /**
+     * @return Observação de um computador carregado sem ela (null se não houver).
+     */
+    String loadObservation(int id, long rowVersion);
+
+    /**
+     * Percorre, em ordem de ID, os computadores que atendem ao filtro, com todos
+     * os campos, sem montar a lista em memória.
+     *
+     * @return Quantidade de registros percorridos.
+     * @throws SQLException se a leitura falhar.
+     */
+    int forEachComputer(ComputerFilter filter, Consumer<Computer> action) throws SQLException;
+
+    int countComputers(ComputerFilter filter);
+
+    /**
+     * @return Contagem de computadores ativos e inativos por localização (fora
+     *         da lixeira), calculada de uma vez.
+     */
+    InventoryStats loadStats();
+
+    /**
+     * @return ID do registro na posição informada (base 0) da ordem por ID, ou -1.
+     */
+    int findComputerIdAt(ComputerFilter filter, int position);
+
+    /**
+     * Pesquisa computadores ativos: cada palavra é tratada como prefixo e todas
+     * precisam estar presentes; acentos são ignorados.
+     *
+     * @return IDs encontrados, do mais relevante ao menos.
+     */
+    List<Integer> searchComputerIds(String query, int limit);
+
+    /**
+     * Pesquisa os computadores ativos cuja observação longa (que não vem com a
+     * lista, ver {@link Computer#isObservationLoaded()}) contém as palavras da
+     * consulta, tratadas como prefixos. Mecanismos que carregam a observação
+     * inteira não precisam implementar.
+     *
+     * @return IDs encontrados.
+     */
+    default List<Integer> searchDeferredObservationIds(String query) {
+        return List.of();
+    }
+
+    // Histórico
+
+    void insertHistory(HistoryEntry history);
+
+    List<HistoryEntry> loadHistory();
+
+    /**
+     * Página do histórico, do mais recente para o mais antigo. Parâmetros nulos
+     * não filtram.
+     */
+    HistoryPage loadHistory(LocalDateTime from, LocalDateTime to, String user, HistoryEntry.ActionType action,
+            int limit, HistoryPage.Cursor cursor);
+
+    // Usuários
+
+    boolean validateLogin(String userName, String password);
+
+    List<User> getUsers();
+
+    List<User> loadUsers();
+
+    boolean insertUser(String userName, String password);
+
+    boolean isUserExists(String userName);
+
+    boolean editUserPassword(String userName, String newPassword);
+
+    boolean deleteUser(String userName);
+
+    // Empresas
+
+    List<String> getCompanies();
+
+    boolean addCompany(String name);
+
+    boolean deleteCompany(String name);
+}
@@ -0,0 +1,90 @@
+package model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classe InventoryStats - Contagem de computadores ativos e inativos, no total
+ * e por localização, calculada de uma vez pelo armazenamento
+ * ({@link InventoryRepository#loadStats()}). As consultas são O(1).
+ *
+ * Segue as mesmas regras da tela: a localização é comparada sem diferenciar
+ * maiúsculas e sem espaços nas pontas, e todo status diferente de "Inativo" é
+ * contado como ativo. Computadores na lixeira não entram.
+ */
+public class InventoryStats {
+
+    private static final String INACTIVE = "Inativo";
+
+    /** Por localização normalizada: {ativos, inativos}. */
+    private final Map<String, int[]> byLocation = new HashMap<>();
+    private int active;
+    private int inactive;
+
+    /**
+     * @return Contagem dos computadores informados (os da lixeira são
+     *         ignorados), sem consultar o armazenamento.
+     */
+    public static InventoryStats count(Collection<Computer> computers) {
+        InventoryStats stats = new InventoryStats();
+        for (Computer computer : computers) {
+            if (!computer.isDeleted()) {
+                stats.add(computer.getLocation(), computer.getActivityStatus(), 1);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Soma uma contagem (uma linha do GROUP BY localização, status).
+     */
+    void add(String location, String activityStatus, int count) {
+        int[] counts = byLocation.computeIfAbsent(key(location), k -> new int[2]);
+        if (INACTIVE.equalsIgnoreCase(activityStatus)) {
+            counts[1] += count;
+            inactive += count;
+        } else {
+            counts[0] += count;
+            active += count;
+        }
+    }
+
+    /**
+     * @param location Localização, ou null/vazio para todas.
+     */
+    public int getTotal(String location) {
+        return getActive(location) + getInactive(location);
+    }
+
+    /**
+     * @param location Localização, ou null/vazio para todas.
+     */
+    public int getActive(String location) {
+        if (isAll(location)) {
+            return active;
+        }
+        int[] counts = byLocation.get(key(location));
+        return counts != null ? counts[0] : 0;
+    }
+
+    /**
+     * @param location Localização, ou null/vazio para todas.
+     */
+    public int getInactive(String location) {
+        if (isAll(location)) {
+            return inactive;
+        }
+        int[] counts = byLocation.get(key(location));
+        return counts != null ? counts[1] : 0;
+    }
+
+    private static boolean isAll(String location) {
+        return location == null || location.trim().isEmpty();
+    }
+
+    private static String key(String location) {
+        return location == null ? "" : location.trim().toLowerCase(Locale.ROOT);
+    }
+}
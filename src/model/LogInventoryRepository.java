@@ -0,0 +1,1101 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static model.ComputerQueries.containsAllPrefixes;
+import static model.ComputerQueries.words;
+
+/**
+ * Classe LogInventoryRepository - Armazena computadores e histórico em um log
+ * de registros somente de acréscimo ({@link RecordLog}), mapeado em memória
+ * (storage.engine=log). Usuários e empresas continuam no SQLite.
+ *
+ * Cada gravação de um computador acrescenta o registro completo ao fim do
+ * log; um índice em memória (ID -> posição do registro mais recente) é
+ * montado na abertura, lendo o log uma vez. Não há páginas a reescrever: uma
+ * edição custa uma escrita sequencial e a gravação em disco só do trecho
+ * acrescentado. As leituras decodificam o registro direto do mapeamento e não
+ * bloqueiam as gravações.
+ *
+ * As versões substituídas continuam no arquivo até a compactação, que copia
+ * apenas os registros atuais para uma nova geração do log. Ela é feita
+ * automaticamente quando os registros substituídos passam do percentual
+ * configurado (log.compaction.percent) do arquivo.
+ *
+ * O log é de uso exclusivo de uma instância da aplicação (arquivo .lock); para
+ * várias estações compartilhando o inventário, use o SQLite.
+ */
+public class LogInventoryRepository implements InventoryRepository {
+
+    private static final byte COMPUTER = 1;
+    private static final byte HISTORY = 2;
+    private static final int MIN_COMPACTION_BYTES = 1 << 20;
+
+    /**
+     * Posição e dados de controle do registro atual de um computador. A
+     * localização e o status ficam junto para que filtros, contagens e
+     * estatísticas não precisem decodificar o registro.
+     */
+    private static final class Slot {
+        final int offset;
+        final int size;
+        final long rowVersion;
+        final boolean deleted;
+        final String location;
+        final String activityStatus;
+
+        Slot(int offset, int size, long rowVersion, boolean deleted, String location, String activityStatus) {
+            this.offset = offset;
+            this.size = size;
+            this.rowVersion = rowVersion;
+            this.deleted = deleted;
+            this.location = location;
+            this.activityStatus = activityStatus;
+        }
+
+        Slot(int offset, int size, Computer computer) {
+            this(offset, size, computer.getRowVersion(), computer.isDeleted(),
+                    intern(computer.getLocation()), intern(computer.getActivityStatus()));
+        }
+
+        /** Mesmo critério de {@link ComputerQueries#matches}, sem ler o registro. */
+        boolean matches(ComputerFilter filter) {
+            if (deleted != filter.isDeleted()) {
+                return false;
+            }
+            if (filter.hasLocation()
+                    && (location == null || !filter.getLocation().equalsIgnoreCase(location.trim()))) {
+                return false;
+            }
+            return !filter.hasActivityStatus() || filter.getActivityStatus().equals(activityStatus);
+        }
+
+        /** Poucos valores distintos, repetidos em todos os registros. */
+        private static String intern(String value) {
+            return value != null ? value.intern() : null;
+        }
+    }
+
+    /**
+     * Log atual e seus índices. Substituído por inteiro na compactação; quem
+     * já leu a referência continua usando a geração anterior até terminar.
+     */
+    private static final class Storage {
+        final RecordLog log;
+        // ID -> registro atual, em ordem de ID
+        final ConcurrentSkipListMap<Integer, Slot> computers = new ConcurrentSkipListMap<>();
+        // row_version -> ID, para a atualização incremental
+        final ConcurrentSkipListMap<Long, Integer> versions = new ConcurrentSkipListMap<>();
+        // Do mais recente para o mais antigo -> posição do registro
+        final ConcurrentSkipListMap<HistoryKey, Integer> history = new ConcurrentSkipListMap<>();
+
+        Storage(RecordLog log) {
+            this.log = log;
+        }
+    }
+
+    /**
+     * Estado em memória de antes de um trabalho de {@link #inTransaction}, para
+     * desfazê-lo se o trabalho falhar.
+     */
+    private static final class Undo {
+        final int start;
+        final long rowVersion;
+        final int nextComputerId;
+        final int nextHistoryId;
+        final long garbageBytes;
+        // ID -> registro anterior ao trabalho (null se o computador é novo)
+        final Map<Integer, Slot> slots = new HashMap<>();
+        final List<HistoryKey> history = new ArrayList<>();
+        // Objetos recebidos -> {ID, versão} que tinham antes
+        final Map<Computer, long[]> computers = new IdentityHashMap<>();
+
+        Undo(int start, long rowVersion, int nextComputerId, int nextHistoryId, long garbageBytes) {
+            this.start = start;
+            this.rowVersion = rowVersion;
+            this.nextComputerId = nextComputerId;
+            this.nextHistoryId = nextHistoryId;
+            this.garbageBytes = garbageBytes;
+        }
+
+        void remember(Computer computer) {
+            computers.putIfAbsent(computer, new long[] { computer.getId(), computer.getRowVersion() });
+        }
+    }
+
+    private final Path base;
+    private final int compactionPercent;
+    private final DatabaseHelper accounts = new DatabaseHelper();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+
+    private volatile Storage storage;
+    private volatile long rowVersion;
+    private int nextComputerId;
+    private int nextHistoryId;
+    private long garbageBytes;
+    private int compactions;
+    // Dentro de inTransaction: commit() fica para o fim do trabalho
+    private Undo undo;
+
+    /**
+     * Abre (ou cria) o log configurado em log.file.
+     *
+     * @throws IllegalStateException se o log não puder ser aberto ou já estiver
+     *                               em uso por outra instância.
+     */
+    public LogInventoryRepository(DatabaseConfig config) {
+        this(Paths.get(config.getLogFile()), config.getLogCompactionPercent());
+    }
+
+    public LogInventoryRepository(Path base, int compactionPercent) {
+        this.base = base;
+        this.compactionPercent = compactionPercent;
+        try {
+            this.lockChannel = FileChannel.open(base.resolveSibling(base.getFileName() + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("O log " + base + " já está em uso por outra instância.");
+            }
+            this.fileLock = lock;
+            this.storage = load();
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao abrir o log " + base + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Storage load() throws IOException {
+        List<Integer> historyOffsets = new ArrayList<>();
+        List<HistoryKey> historyKeys = new ArrayList<>();
+        Map<Integer, Slot> computers = new LinkedHashMap<>();
+        RecordLog log = RecordLog.open(base, (offset, type, payload) -> {
+            if (type == COMPUTER) {
+                Computer computer = decodeComputer(payload);
+                int id = computer.getId();
+                Slot slot = new Slot(offset, RecordLog.HEADER_SIZE + payload.length, computer);
+                Slot previous = computers.put(id, slot);
+                if (previous != null) {
+                    garbageBytes += previous.size;
+                }
+                nextComputerId = Math.max(nextComputerId, id);
+                rowVersion = Math.max(rowVersion, slot.rowVersion);
+            } else if (type == HISTORY) {
+                ByteBuffer in = ByteBuffer.wrap(payload);
+                int id = in.getInt();
+                readString(in); // ação
+                readString(in); // usuário
+                historyKeys.add(new HistoryKey(readString(in), id));
+                historyOffsets.add(offset);
+                nextHistoryId = Math.max(nextHistoryId, id);
+            }
+        });
+        Storage loaded = new Storage(log);
+        for (Map.Entry<Integer, Slot> entry : computers.entrySet()) {
+            loaded.computers.put(entry.getKey(), entry.getValue());
+            loaded.versions.put(entry.getValue().rowVersion, entry.getKey());
+        }
+        for (int i = 0; i < historyKeys.size(); i++) {
+            loaded.history.put(historyKeys.get(i), historyOffsets.get(i));
+        }
+        return loaded;
+    }
+
+    @Override
+    public void createTable() {
+        // O log é aberto no construtor; usuários e empresas ficam no SQLite
+        accounts.createTable();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            storage.log.close();
+            fileLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o log: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> getDiagnostics() {
+        Storage current = storage;
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("Mecanismo de armazenamento", "log de registros (storage.engine=log)");
+        info.put("Arquivo do log", current.log.getPath().toAbsolutePath().toString());
+        info.put("Geração do log", String.valueOf(current.log.getGeneration()));
+        info.put("Tamanho do log (bytes)", String.valueOf(current.log.size()));
+        writeLock.lock();
+        try {
+            info.put("Registros substituídos (bytes)", String.valueOf(garbageBytes));
+            info.put("Compactações", String.valueOf(compactions));
+        } finally {
+            writeLock.unlock();
+        }
+        info.put("Compactar a partir de", compactionPercent + "% substituído");
+        info.put("Computadores", String.valueOf(current.computers.size()));
+        info.put("Registros de histórico", String.valueOf(current.history.size()));
+        info.put("Versão de linha atual", String.valueOf(rowVersion));
+        info.put("Usuários e empresas", "SQLite");
+        return info;
+    }
+
+    // Computadores
+
+    @Override
+    public void insertComputer(Computer computer) {
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            insert(current, computer);
+            commit(current, start);
+        } catch (IOException e) {
+            System.err.println("Erro ao inserir computador: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public BatchResult insertComputers(List<Computer> computers) {
+        BatchResult result = new BatchResult();
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            for (Computer computer : computers) {
+                try {
+                    insert(current, computer);
+                    result.addSuccess(computer.getId());
+                } catch (IOException e) {
+                    result.addFailure(e.getMessage());
+                }
+            }
+            // Uma única gravação em disco para o lote
+            commit(current, start);
+        } finally {
+            writeLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public UpdateResult updateComputer(Computer computer) {
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            UpdateResult result = update(current, computer);
+            commit(current, start);
+            return result;
+        } catch (IOException e) {
+            System.err.println("Erro ao atualizar computador: " + e.getMessage());
+            return UpdateResult.ERROR;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public BatchResult updateComputers(List<Computer> computers) {
+        BatchResult result = new BatchResult();
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            for (Computer computer : computers) {
+                Slot slot = current.computers.get(computer.getId());
+                if (slot == null) {
+                    result.addFailure("Computador não encontrado: id " + computer.getId());
+                    continue;
+                }
+                try {
+                    replace(current, slot, computer);
+                    result.addSuccess(computer.getId());
+                } catch (IOException e) {
+                    result.addFailure(e.getMessage());
+                }
+            }
+            commit(current, start);
+        } finally {
+            writeLock.unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean deleteComputer(Computer computer) {
+        return setDeleted(computer, true);
+    }
+
+    @Override
+    public boolean restoreComputer(Computer computer) {
+        return setDeleted(computer, false);
+    }
+
+    @Override
+    public Map<Integer, Long> deleteComputers(Collection<Integer> ids) {
+        return setDeleted(ids, true);
+    }
+
+    @Override
+    public Map<Integer, Long> restoreComputers(Collection<Integer> ids) {
+        return setDeleted(ids, false);
+    }
+
+    private Map<Integer, Long> setDeleted(Collection<Integer> ids, boolean deleted) {
+        Map<Integer, Long> changed = new LinkedHashMap<>();
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            try {
+                setDeleted(current, ids, deleted, changed);
+            } catch (IOException e) {
+                System.err.println("Erro ao " + (deleted ? "excluir" : "restaurar") + " computadores em lote: "
+                        + e.getMessage());
+            }
+            // Uma única gravação em disco para o lote
+            commit(current, start);
+        } finally {
+            writeLock.unlock();
+        }
+        return changed;
+    }
+
+    private boolean setDeleted(Computer computer, boolean deleted) {
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            boolean changed = setDeleted(current, computer, deleted);
+            commit(current, start);
+            return changed;
+        } catch (IOException e) {
+            System.err.println("Erro ao " + (deleted ? "excluir" : "restaurar") + " computador: " + e.getMessage());
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Gravações sem commit e sem tratar erros, usadas pelos métodos acima e
+    // pela unidade de trabalho de inTransaction. Chamadas com writeLock
+
+    /**
+     * O ID só é atribuído ao objeto depois que o registro foi gravado.
+     */
+    private void insert(Storage current, Computer computer) throws IOException {
+        int id = nextComputerId + 1;
+        append(current, id, computer);
+        computer.setId(id);
+        nextComputerId = id;
+    }
+
+    private UpdateResult update(Storage current, Computer computer) throws IOException {
+        Slot slot = current.computers.get(computer.getId());
+        if (slot == null) {
+            return UpdateResult.NOT_FOUND;
+        }
+        if (slot.rowVersion != computer.getRowVersion()) {
+            return UpdateResult.CONFLICT;
+        }
+        replace(current, slot, computer);
+        return UpdateResult.UPDATED;
+    }
+
+    private boolean setDeleted(Storage current, Computer computer, boolean deleted) throws IOException {
+        Slot slot = current.computers.get(computer.getId());
+        if (slot == null) {
+            return false;
+        }
+        Computer stored = read(current, slot);
+        stored.setDeleted(deleted);
+        append(current, stored.getId(), stored);
+        computer.setRowVersion(stored.getRowVersion());
+        return true;
+    }
+
+    /**
+     * @param changed Recebe a nova versão de cada computador alterado, inclusive
+     *                os alterados antes de um erro.
+     */
+    private void setDeleted(Storage current, Collection<Integer> ids, boolean deleted, Map<Integer, Long> changed)
+            throws IOException {
+        for (Integer id : ids) {
+            Slot slot = current.computers.get(id);
+            if (slot != null && slot.deleted != deleted) {
+                Computer stored = read(current, slot);
+                stored.setDeleted(deleted);
+                append(current, id, stored);
+                changed.put(id, stored.getRowVersion());
+            }
+        }
+    }
+
+    private void history(Storage current, HistoryEntry entry) throws IOException {
+        int id = nextHistoryId + 1;
+        int offset = current.log.append(HISTORY, encode(entry, id));
+        nextHistoryId = id;
+        HistoryKey key = new HistoryKey(entry.getTimestamp().toString(), id);
+        current.history.put(key, offset);
+        if (undo != null) {
+            undo.history.add(key);
+        }
+    }
+
+    /**
+     * Os registros do trabalho formam um grupo do log ({@link RecordLog#beginGroup()}),
+     * gravado em disco uma única vez no fim: após uma queda, o grupo volta
+     * inteiro ou não volta. Se o trabalho lançar exceção (inclusive um erro de
+     * gravação no log), o grupo é desfeito sem o marcador final e os índices em
+     * memória voltam ao que eram antes do trabalho.
+     */
+    @Override
+    public <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            Undo transaction = new Undo(current.log.size(), rowVersion, nextComputerId, nextHistoryId, garbageBytes);
+            current.log.beginGroup();
+            undo = transaction;
+            T result;
+            try {
+                result = work.run(new LogUnitOfWork(current, transaction));
+                current.log.endGroup();
+            } catch (IOException e) {
+                rollback(current, transaction);
+                throw new SQLException("Erro ao fechar grupo de registros: " + e.getMessage(), e);
+            } catch (SQLException | RuntimeException e) {
+                rollback(current, transaction);
+                throw e;
+            } finally {
+                undo = null;
+            }
+            commit(current, transaction.start);
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Desfaz um trabalho de inTransaction que falhou: descarta os registros do
+     * grupo e restaura índices, contadores e os objetos recebidos. Chamado com
+     * writeLock.
+     */
+    private void rollback(Storage current, Undo transaction) {
+        for (Map.Entry<Integer, Slot> entry : transaction.slots.entrySet()) {
+            Slot written = current.computers.get(entry.getKey());
+            if (written != null) {
+                current.versions.remove(written.rowVersion);
+            }
+            Slot previous = entry.getValue();
+            if (previous == null) {
+                current.computers.remove(entry.getKey());
+            } else {
+                current.computers.put(entry.getKey(), previous);
+                current.versions.put(previous.rowVersion, entry.getKey());
+            }
+        }
+        for (HistoryKey key : transaction.history) {
+            current.history.remove(key);
+        }
+        for (Map.Entry<Computer, long[]> entry : transaction.computers.entrySet()) {
+            entry.getKey().setId((int) entry.getValue()[0]);
+            entry.getKey().setRowVersion(entry.getValue()[1]);
+        }
+        rowVersion = transaction.rowVersion;
+        nextComputerId = transaction.nextComputerId;
+        nextHistoryId = transaction.nextHistoryId;
+        garbageBytes = transaction.garbageBytes;
+        current.log.abortGroup(transaction.start);
+    }
+
+    /**
+     * Unidade de trabalho de inTransaction: usa as gravações internas, que
+     * lançam os erros em vez de só registrá-los, para que o trabalho seja
+     * desfeito. Chamada com writeLock.
+     */
+    private final class LogUnitOfWork implements UnitOfWork {
+        private final Storage current;
+        private final Undo transaction;
+
+        LogUnitOfWork(Storage current, Undo transaction) {
+            this.current = current;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void insertComputer(Computer computer) throws SQLException {
+            transaction.remember(computer);
+            try {
+                insert(current, computer);
+            } catch (IOException e) {
+                throw writeError("inserir computador", e);
+            }
+        }
+
+        @Override
+        public BatchResult insertComputers(List<Computer> computers) throws SQLException {
+            BatchResult result = new BatchResult();
+            for (Computer computer : computers) {
+                insertComputer(computer);
+                result.addSuccess(computer.getId());
+            }
+            return result;
+        }
+
+        @Override
+        public UpdateResult updateComputer(Computer computer) throws SQLException {
+            transaction.remember(computer);
+            try {
+                return update(current, computer);
+            } catch (IOException e) {
+                throw writeError("atualizar computador", e);
+            }
+        }
+
+        @Override
+        public boolean deleteComputer(Computer computer) throws SQLException {
+            return setDeleted(computer, true);
+        }
+
+        @Override
+        public boolean restoreComputer(Computer computer) throws SQLException {
+            return setDeleted(computer, false);
+        }
+
+        private boolean setDeleted(Computer computer, boolean deleted) throws SQLException {
+            transaction.remember(computer);
+            try {
+                return LogInventoryRepository.this.setDeleted(current, computer, deleted);
+            } catch (IOException e) {
+                throw writeError(deleted ? "excluir computador" : "restaurar computador", e);
+            }
+        }
+
+        @Override
+        public Map<Integer, Long> deleteComputers(Collection<Integer> ids) throws SQLException {
+            return setDeleted(ids, true);
+        }
+
+        @Override
+        public Map<Integer, Long> restoreComputers(Collection<Integer> ids) throws SQLException {
+            return setDeleted(ids, false);
+        }
+
+        private Map<Integer, Long> setDeleted(Collection<Integer> ids, boolean deleted) throws SQLException {
+            Map<Integer, Long> changed = new LinkedHashMap<>();
+            try {
+                LogInventoryRepository.this.setDeleted(current, ids, deleted, changed);
+            } catch (IOException e) {
+                throw writeError(deleted ? "excluir computadores em lote" : "restaurar computadores em lote", e);
+            }
+            return changed;
+        }
+
+        @Override
+        public void insertHistory(HistoryEntry entry) throws SQLException {
+            try {
+                history(current, entry);
+            } catch (IOException e) {
+                throw writeError("inserir histórico", e);
+            }
+        }
+
+        private SQLException writeError(String action, IOException e) {
+            return new SQLException("Erro ao " + action + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Grava os dados informados, mantendo a observação do registro atual
+     * quando ela não veio carregada (como o COALESCE do UPDATE no SQLite).
+     */
+    private void replace(Storage current, Slot slot, Computer computer) throws IOException {
+        if (computer.getObservation() == null) {
+            Computer merged = ComputerQueries.copy(computer);
+            merged.setObservation(read(current, slot).getObservation());
+            append(current, merged.getId(), merged);
+            computer.setRowVersion(merged.getRowVersion());
+        } else {
+            append(current, computer.getId(), computer);
+        }
+    }
+
+    /**
+     * Acrescenta o computador (com o ID informado) com a próxima versão e
+     * atualiza os índices. A versão só é atribuída ao objeto depois que o
+     * registro foi gravado. Chamado com writeLock.
+     */
+    private void append(Storage current, int id, Computer computer) throws IOException {
+        long version = rowVersion + 1;
+        byte[] payload = encode(computer, id, version);
+        int offset = current.log.append(COMPUTER, payload);
+        rowVersion = version;
+        computer.setRowVersion(version);
+        Slot previous = current.computers.put(id, new Slot(offset, RecordLog.HEADER_SIZE + payload.length, computer));
+        if (undo != null && !undo.slots.containsKey(id)) {
+            undo.slots.put(id, previous);
+        }
+        current.versions.put(version, id);
+        if (previous != null) {
+            current.versions.remove(previous.rowVersion);
+            garbageBytes += previous.size;
+        }
+    }
+
+    /**
+     * Grava em disco o trecho acrescentado, publica a alteração e, se for o
+     * caso, compacta o log. Chamado com writeLock.
+     */
+    private void commit(Storage current, int start) {
+        if (undo != null || current.log.size() == start) {
+            return;
+        }
+        current.log.force(start);
+        dataVersion.incrementAndGet();
+        if (garbageBytes >= MIN_COMPACTION_BYTES
+                && garbageBytes * 100 >= (long) current.log.size() * compactionPercent) {
+            compact();
+        }
+    }
+
+    /**
+     * Copia os registros atuais (histórico e última versão de cada computador)
+     * para uma nova geração do log e passa a usá-la. Em caso de erro, o log
+     * atual continua em uso.
+     */
+    public void compact() {
+        writeLock.lock();
+        RecordLog next = null;
+        try {
+            Storage current = storage;
+            next = current.log.nextGeneration(base);
+            Storage compacted = new Storage(next);
+            List<Map.Entry<HistoryKey, Integer>> history = new ArrayList<>(current.history.entrySet());
+            history.sort(Comparator.comparingInt(entry -> entry.getKey().id));
+            for (Map.Entry<HistoryKey, Integer> entry : history) {
+                compacted.history.put(entry.getKey(), next.copyFrom(current.log, entry.getValue()));
+            }
+            for (Map.Entry<Integer, Slot> entry : current.computers.entrySet()) {
+                Slot slot = entry.getValue();
+                int offset = next.copyFrom(current.log, slot.offset);
+                compacted.computers.put(entry.getKey(), new Slot(offset, slot.size, slot.rowVersion, slot.deleted,
+                        slot.location, slot.activityStatus));
+                compacted.versions.put(slot.rowVersion, entry.getKey());
+            }
+            next.markComplete();
+            storage = compacted;
+            garbageBytes = 0;
+            compactions++;
+            current.log.discard();
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar o log: " + e.getMessage());
+            if (next != null) {
+                next.discard();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Computer> loadComputers() {
+        return collect(new ComputerFilter(), Integer.MAX_VALUE, 0);
+    }
+
+    @Override
+    public List<Computer> loadDeletedComputers() {
+        return collect(ComputerFilter.recycleBin(), Integer.MAX_VALUE, 0);
+    }
+
+    @Override
+    public List<Computer> loadComputers(int afterId, int pageSize, ComputerFilter filter) {
+        return collect(filter, pageSize, afterId);
+    }
+
+    private List<Computer> collect(ComputerFilter filter, int limit, int afterId) {
+        Storage current = storage;
+        List<Computer> result = new ArrayList<>();
+        for (Slot slot : current.computers.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Computer computer = readIfMatches(current, slot, filter);
+            if (computer != null) {
+                result.add(computer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return O computador, se atender ao filtro; o registro só é decodificado
+     *         depois que o filtro foi decidido pelo índice.
+     */
+    private static Computer readIfMatches(Storage current, Slot slot, ComputerFilter filter) {
+        return slot.matches(filter) ? read(current, slot) : null;
+    }
+
+    @Override
+    public List<Computer> loadComputersChangedSince(long rowVersion) {
+        Storage current = storage;
+        List<Computer> result = new ArrayList<>();
+        for (Integer id : current.versions.tailMap(rowVersion, false).values()) {
+            Slot slot = current.computers.get(id);
+            if (slot != null && slot.rowVersion > rowVersion) {
+                result.add(read(current, slot));
+            }
+        }
+        result.sort(Comparator.comparingLong(Computer::getRowVersion));
+        return result;
+    }
+
+    @Override
+    public long getMaxRowVersion() {
+        return rowVersion;
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @Override
+    public String loadObservation(int id, long rowVersion) {
+        Storage current = storage;
+        Slot slot = current.computers.get(id);
+        return slot != null ? read(current, slot).getObservation() : null;
+    }
+
+    @Override
+    public int forEachComputer(ComputerFilter filter, Consumer<Computer> action) {
+        Storage current = storage;
+        int count = 0;
+        for (Slot slot : current.computers.values()) {
+            Computer computer = readIfMatches(current, slot, filter);
+            if (computer != null) {
+                action.accept(computer);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int countComputers(ComputerFilter filter) {
+        Storage current = storage;
+        int count = 0;
+        for (Slot slot : current.computers.values()) {
+            if (slot.matches(filter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public InventoryStats loadStats() {
+        Storage current = storage;
+        InventoryStats stats = new InventoryStats();
+        for (Slot slot : current.computers.values()) {
+            if (!slot.deleted) {
+                stats.add(slot.location, slot.activityStatus, 1);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public int findComputerIdAt(ComputerFilter filter, int position) {
+        Storage current = storage;
+        int index = 0;
+        for (Map.Entry<Integer, Slot> entry : current.computers.entrySet()) {
+            if (entry.getValue().matches(filter)) {
+                if (index == position) {
+                    return entry.getKey();
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List<Integer> searchComputerIds(String query, int limit) {
+        Storage current = storage;
+        List<Integer> ids = new ArrayList<>();
+        List<String> tokens = words(query);
+        if (tokens.isEmpty()) {
+            return ids;
+        }
+        for (Map.Entry<Integer, Slot> entry : current.computers.entrySet()) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            if (!entry.getValue().deleted && containsAllPrefixes(read(current, entry.getValue()), tokens)) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+    // Histórico
+
+    @Override
+    public void insertHistory(HistoryEntry entry) {
+        writeLock.lock();
+        try {
+            Storage current = storage;
+            int start = current.log.size();
+            history(current, entry);
+            commit(current, start);
+        } catch (IOException e) {
+            System.err.println("Erro ao inserir histórico: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<HistoryEntry> loadHistory() {
+        Storage current = storage;
+        // Ordem de inserção, como o SELECT sem ORDER BY do SQLite
+        List<Map.Entry<HistoryKey, Integer>> entries = new ArrayList<>(current.history.entrySet());
+        entries.sort(Comparator.comparingInt(entry -> entry.getKey().id));
+        List<HistoryEntry> list = new ArrayList<>(entries.size());
+        for (Map.Entry<HistoryKey, Integer> entry : entries) {
+            list.add(decodeHistory(current.log.read(entry.getValue())));
+        }
+        return list;
+    }
+
+    @Override
+    public HistoryPage loadHistory(LocalDateTime from, LocalDateTime to, String user, HistoryEntry.ActionType action,
+            int limit, HistoryPage.Cursor cursor) {
+        Storage current = storage;
+        ConcurrentNavigableMap<HistoryKey, Integer> range = cursor == null ? current.history
+                : current.history.tailMap(new HistoryKey(cursor.getTimestamp(), cursor.getId()), false);
+        String fromText = from != null ? from.toString() : null;
+        String toText = to != null ? to.toString() : null;
+
+        List<HistoryEntry> entries = new ArrayList<>();
+        HistoryKey last = null;
+        for (Map.Entry<HistoryKey, Integer> entry : range.entrySet()) {
+            HistoryKey key = entry.getKey();
+            if (fromText != null && key.timestamp.compareTo(fromText) < 0) {
+                break; // Daqui em diante todos são mais antigos
+            }
+            if (toText != null && key.timestamp.compareTo(toText) > 0) {
+                continue;
+            }
+            HistoryEntry value = decodeHistory(current.log.read(entry.getValue()));
+            if ((user != null && !user.isEmpty() && !user.equals(value.getUser()))
+                    || (action != null && action != value.getAction())) {
+                continue;
+            }
+            if (entries.size() == limit) {
+                return new HistoryPage(entries, new HistoryPage.Cursor(last.timestamp, last.id));
+            }
+            entries.add(value);
+            last = key;
+        }
+        return new HistoryPage(entries, null);
+    }
+
+    // Usuários e empresas (SQLite)
+
+    @Override
+    public boolean validateLogin(String userName, String password) {
+        return accounts.validateLogin(userName, password);
+    }
+
+    @Override
+    public List<User> getUsers() {
+        return accounts.getUsers();
+    }
+
+    @Override
+    public List<User> loadUsers() {
+        return accounts.loadUsers();
+    }
+
+    @Override
+    public boolean insertUser(String userName, String password) {
+        return accounts.insertUser(userName, password);
+    }
+
+    @Override
+    public boolean isUserExists(String userName) {
+        return accounts.isUserExists(userName);
+    }
+
+    @Override
+    public boolean editUserPassword(String userName, String newPassword) {
+        return accounts.editUserPassword(userName, newPassword);
+    }
+
+    @Override
+    public boolean deleteUser(String userName) {
+        return accounts.deleteUser(userName);
+    }
+
+    @Override
+    public List<String> getCompanies() {
+        return accounts.getCompanies();
+    }
+
+    @Override
+    public boolean addCompany(String name) {
+        return accounts.addCompany(name);
+    }
+
+    @Override
+    public boolean deleteCompany(String name) {
+        return accounts.deleteCompany(name);
+    }
+
+    // Formato dos registros: campos em ordem fixa; textos como tamanho (int,
+    // -1 para nulo) + UTF-8
+
+    private static Computer read(Storage current, Slot slot) {
+        return decodeComputer(current.log.read(slot.offset));
+    }
+
+    private static byte[] encode(Computer computer, int id, long version) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(id);
+            out.writeLong(version);
+            out.writeByte(computer.isDeleted() ? 1 : 0);
+            writeString(out, computer.getTag());
+            writeString(out, computer.getModel());
+            writeString(out, computer.getBrand());
+            writeString(out, computer.getState());
+            writeString(out, computer.getUserName());
+            writeString(out, computer.getSerialNumber());
+            writeString(out, computer.getWindowsVersion());
+            writeString(out, computer.getOfficeVersion());
+            writeString(out, computer.getPurchaseDate());
+            writeString(out, computer.getLocation());
+            writeString(out, computer.getObservation());
+            writeString(out, computer.getHostname());
+            writeString(out, computer.getSector());
+            writeString(out, computer.getPatrimony());
+            writeString(out, computer.getActivityStatus());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream não lança IOException
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Computer decodeComputer(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        int id = in.getInt();
+        long version = in.getLong();
+        boolean deleted = in.get() == 1;
+        Computer computer = new Computer(id,
+                readString(in), // etiqueta
+                readString(in), // modelo
+                readString(in), // marca
+                readString(in), // estado
+                readString(in), // usuário
+                readString(in), // série
+                readString(in), // windows
+                readString(in), // office
+                readString(in), // compra
+                readString(in), // localização
+                readString(in), // observação
+                readString(in), // hostname
+                readString(in), // setor
+                readString(in), // patrimônio
+                readString(in)); // status
+        computer.setDeleted(deleted);
+        computer.setRowVersion(version);
+        return computer;
+    }
+
+    private static byte[] encode(HistoryEntry entry, int id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(id);
+            writeString(out, entry.getAction().name());
+            writeString(out, entry.getUser());
+            writeString(out, entry.getTimestamp().toString());
+            writeString(out, entry.getDescription());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static HistoryEntry decodeHistory(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        in.getInt(); // id
+        HistoryEntry.ActionType action = HistoryEntry.ActionType.valueOf(readString(in));
+        String user = readString(in);
+        LocalDateTime timestamp = LocalDateTime.parse(readString(in));
+        return new HistoryEntry(action, user, timestamp, readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,515 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classe QueryProfiler - Mede as chamadas ao banco feitas pelas conexões do
+ * {@link ConnectionManager}: o tempo de cada statement (histograma por SQL),
+ * as linhas lidas ou alteradas, os erros e o tempo de espera por uma conexão
+ * livre (query.profiling=true).
+ *
+ * Na primeira execução de cada SQL distinto o plano (EXPLAIN QUERY PLAN) é
+ * guardado junto com as medições. Um plano que percorre uma tabela inteira
+ * ("SCAN tabela", sem índice) com pelo menos query.profiling.largeTableRows
+ * linhas é destacado no relatório.
+ *
+ * Os SQL são agrupados pelo texto normalizado: literais viram "?" e listas
+ * "(?, ?, ...)" viram "(?...)", para que consultas montadas com IDs (IN (...))
+ * não criem uma entrada por chamada. O tempo de uma consulta vai da execução
+ * até a leitura da última linha (ou o fechamento do ResultSet): no SQLite as
+ * linhas são calculadas à medida que são lidas.
+ */
+final class QueryProfiler {
+
+    /** Limites superiores das faixas do histograma, em microssegundos. */
+    private static final long[] BUCKETS_MICROS = { 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000 };
+    /** SQL distintos medidos; os seguintes são apenas contados. */
+    private static final int MAX_STATEMENTS = 500;
+    /** Textos SQL originais guardados para evitar normalizar a cada execução. */
+    private static final int MAX_TEXTS = 2_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // "SCAN computers" percorre a tabela; "SCAN computers USING [COVERING] INDEX" percorre um índice
+    private static final Pattern TABLE_SCAN = Pattern.compile("\\bSCAN (\\w+)(?=;|$)");
+    // O plano mostra o apelido da tabela ("SCAN c"), resolvido pelo FROM/JOIN do SQL
+    private static final Pattern TABLE_ALIAS = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+(\\w+)(?:\\s+(?:AS\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+
+    private static final ConcurrentHashMap<String, StatementStats> STATEMENTS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, StatementStats> BY_TEXT = new ConcurrentHashMap<>();
+    private static final Timing WRITER_WAIT = new Timing();
+    private static final Timing READER_WAIT = new Timing();
+    private static final AtomicLong UNTRACKED = new AtomicLong();
+
+    private static volatile int largeTableRows = 10_000;
+
+    private QueryProfiler() {
+    }
+
+    static void setLargeTableRows(int rows) {
+        largeTableRows = rows;
+    }
+
+    /**
+     * Registra o tempo que uma thread esperou pela conexão de escrita (lock) ou
+     * por uma conexão de leitura livre no pool.
+     */
+    static void recordWait(boolean writer, long nanos) {
+        (writer ? WRITER_WAIT : READER_WAIT).record(nanos);
+    }
+
+    /**
+     * Envolve um statement preparado: as execuções passam a ser medidas.
+     *
+     * @param physical Conexão física, usada para o EXPLAIN QUERY PLAN.
+     */
+    static PreparedStatement wrap(PreparedStatement statement, String sql, Connection physical) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, new ProfiledStatement(statement, sql, physical));
+    }
+
+    /**
+     * Envolve um statement simples: cada execute*(sql) é medido pelo SQL
+     * recebido.
+     */
+    static Statement wrap(Statement statement, Connection physical) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, new ProfiledStatement(statement, null, physical));
+    }
+
+    /**
+     * Relatório das medições, para a tela de diagnóstico: espera por conexões,
+     * resumo e uma entrada por SQL, do maior tempo total para o menor.
+     *
+     * @return Pares nome/valor, na ordem de exibição.
+     */
+    static Map<String, String> describe() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("Espera pela conexão de escrita", WRITER_WAIT.summary());
+        info.put("Espera por conexão de leitura", READER_WAIT.summary());
+        List<StatementStats> all = new ArrayList<>(STATEMENTS.values());
+        all.sort((a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+        int scans = 0;
+        for (StatementStats stats : all) {
+            if (stats.fullScan != null) {
+                scans++;
+            }
+        }
+        String distinct = String.valueOf(all.size());
+        if (UNTRACKED.get() > 0) {
+            distinct += " (" + UNTRACKED.get() + " execuções de outros SQL não medidas, limite de " + MAX_STATEMENTS
+                    + ")";
+        }
+        info.put("SQL distintos medidos", distinct);
+        info.put("Varreduras completas em tabelas grandes", String.valueOf(scans));
+        for (int i = 0; i < all.size(); i++) {
+            StatementStats stats = all.get(i);
+            info.put("SQL " + (i + 1) + (stats.fullScan != null ? " [VARREDURA COMPLETA]" : ""), stats.report());
+        }
+        return info;
+    }
+
+    private static StatementStats statsFor(String sql) {
+        StatementStats stats = BY_TEXT.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String key = normalize(sql);
+        stats = STATEMENTS.get(key);
+        if (stats == null) {
+            if (STATEMENTS.size() >= MAX_STATEMENTS) {
+                UNTRACKED.incrementAndGet();
+                return null;
+            }
+            stats = STATEMENTS.computeIfAbsent(key, k -> new StatementStats(k));
+        }
+        if (BY_TEXT.size() < MAX_TEXTS) {
+            BY_TEXT.put(sql, stats);
+        }
+        return stats;
+    }
+
+    static String normalize(String sql) {
+        String text = STRING_LITERAL.matcher(sql).replaceAll("?");
+        text = NUMBER_LITERAL.matcher(text).replaceAll("?");
+        text = PARAMETER_LIST.matcher(text).replaceAll("(?...)");
+        return WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+
+    /**
+     * Guarda o plano do SQL na primeira execução medida e verifica se ele
+     * percorre alguma tabela grande por inteiro.
+     */
+    private static void explainOnce(StatementStats stats, String sql, Connection physical) {
+        if (!stats.explained.compareAndSet(false, true) || !isExplainable(sql)) {
+            return;
+        }
+        String plan = SchemaIndexes.explain(physical, sql);
+        if (plan.isEmpty()) {
+            return;
+        }
+        stats.plan = plan;
+        Map<String, String> aliases = new HashMap<>();
+        Matcher alias = TABLE_ALIAS.matcher(sql);
+        while (alias.find()) {
+            if (alias.group(2) != null) {
+                aliases.putIfAbsent(alias.group(2), alias.group(1));
+            }
+        }
+        Matcher matcher = TABLE_SCAN.matcher(plan.replace("; ", ";"));
+        StringBuilder scans = new StringBuilder();
+        while (matcher.find()) {
+            String table = aliases.getOrDefault(matcher.group(1), matcher.group(1));
+            long rows = countRows(physical, table);
+            if (rows >= largeTableRows) {
+                if (scans.length() > 0) {
+                    scans.append(", ");
+                }
+                scans.append(table).append(" (").append(rows).append(" linhas)");
+            }
+        }
+        if (scans.length() > 0) {
+            stats.fullScan = scans.toString();
+        }
+    }
+
+    private static boolean isExplainable(String sql) {
+        String start = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return start.startsWith("SELECT") || start.startsWith("WITH") || start.startsWith("UPDATE")
+                || start.startsWith("DELETE") || start.startsWith("INSERT");
+    }
+
+    /**
+     * @return Linhas da tabela, ou -1 se o nome não for de uma tabela (por
+     *         exemplo, uma subconsulta do plano).
+     */
+    private static long countRows(Connection physical, String table) {
+        try (PreparedStatement exists = physical
+                .prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            exists.setString(1, table);
+            try (ResultSet rs = exists.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+            }
+            try (Statement stmt = physical.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM \"" + table + "\"")) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao contar linhas de " + table + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+
+    private static String bucketLabel(int bucket) {
+        if (bucket >= BUCKETS_MICROS.length) {
+            return ">" + BUCKETS_MICROS[BUCKETS_MICROS.length - 1] / 1000 + "ms";
+        }
+        long micros = BUCKETS_MICROS[bucket];
+        return micros < 1000 ? "≤" + micros + "µs" : "≤" + micros / 1000 + "ms";
+    }
+
+    /**
+     * Contagem, total, máximo e histograma de uma medida de tempo.
+     */
+    private static class Timing {
+        private final long[] histogram = new long[BUCKETS_MICROS.length + 1];
+        private long count;
+        private long total;
+        private long max;
+
+        synchronized void record(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (bucket < BUCKETS_MICROS.length && micros > BUCKETS_MICROS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket]++;
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        synchronized long totalNanos() {
+            return total;
+        }
+
+        /**
+         * @return Faixa do histograma que contém o percentil (0 a 100).
+         */
+        private String percentile(int percent) {
+            long target = (count * percent + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= Math.max(1, target)) {
+                    return bucketLabel(i);
+                }
+            }
+            return "-";
+        }
+
+        synchronized String summary() {
+            if (count == 0) {
+                return "nenhuma";
+            }
+            return count + " vezes, total " + formatMillis(total) + ", média " + formatMillis(total / count)
+                    + ", p50 " + percentile(50) + ", p95 " + percentile(95) + ", máx " + formatMillis(max);
+        }
+
+        synchronized String histogram() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] > 0) {
+                    if (text.length() > 0) {
+                        text.append(" | ");
+                    }
+                    text.append(bucketLabel(i)).append(' ').append(histogram[i]);
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Medições de um SQL (texto normalizado).
+     */
+    private static final class StatementStats extends Timing {
+        final String sql;
+        final AtomicBoolean explained = new AtomicBoolean();
+        volatile String plan;
+        volatile String fullScan;
+        private long rows;
+        private long errors;
+        private String lastError;
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        synchronized void record(long nanos, long rowCount) {
+            record(nanos);
+            rows += rowCount;
+        }
+
+        synchronized void recordError(long nanos, Throwable error) {
+            record(nanos);
+            errors++;
+            lastError = error.getMessage();
+        }
+
+        synchronized String report() {
+            StringBuilder text = new StringBuilder(sql);
+            text.append("\n    ").append(summary()).append(", linhas ").append(rows);
+            if (errors > 0) {
+                text.append(", erros ").append(errors);
+            }
+            text.append("\n    histograma: ").append(histogram());
+            if (plan != null) {
+                text.append("\n    plano: ").append(plan);
+            }
+            if (fullScan != null) {
+                text.append("\n    varredura completa: ").append(fullScan);
+            }
+            if (lastError != null) {
+                text.append("\n    último erro: ").append(lastError);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Mede as execuções de um statement. Uma consulta fica "em andamento" até
+     * a última linha ser lida, o ResultSet ser fechado, o statement ser fechado
+     * ou executado de novo.
+     */
+    private static final class ProfiledStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Connection physical;
+        private StatementStats pending;
+        private int execution;
+        private String pendingSql;
+        private long pendingStart;
+        private long pendingRows;
+
+        ProfiledStatement(Statement statement, String sql, Connection physical) {
+            this.statement = statement;
+            this.sql = sql;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    finishPending();
+                    return forward(method, args);
+                default:
+                    if (!name.startsWith("execute")) {
+                        return forward(method, args);
+                    }
+                    return execute(method, args);
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishPending();
+            execution++;
+            String text = sql;
+            if (text == null) {
+                text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : "(lote de statements)";
+            }
+            StatementStats stats = statsFor(text);
+            if (stats == null) {
+                return forward(method, args);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                stats.recordError(System.nanoTime() - start, e.getCause());
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                pending = stats;
+                pendingSql = text;
+                pendingStart = start;
+                pendingRows = 0;
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                        new ProfiledResultSet((ResultSet) result, execution));
+            }
+            stats.record(System.nanoTime() - start, rowsOf(result));
+            explainOnce(stats, text, physical);
+            return result;
+        }
+
+        private long rowsOf(Object result) throws SQLException {
+            if (result instanceof Integer || result instanceof Long) {
+                return Math.max(0, ((Number) result).longValue());
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (Boolean.FALSE.equals(result)) {
+                rows = Math.max(0, statement.getUpdateCount());
+            }
+            return rows;
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                StatementStats stats = pending;
+                pending = null;
+                stats.record(System.nanoTime() - pendingStart, pendingRows);
+                explainOnce(stats, pendingSql, physical);
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Conta as linhas lidas e encerra a medição da consulta no fim delas.
+         */
+        private final class ProfiledResultSet implements InvocationHandler {
+            private final ResultSet results;
+            private final int owner;
+            private boolean finished;
+
+            ProfiledResultSet(ResultSet results, int owner) {
+                this.results = results;
+                this.owner = owner;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "next":
+                        Object hasRow = forwardResults(method, args);
+                        if (Boolean.TRUE.equals(hasRow)) {
+                            if (!finished && owner == execution) {
+                                pendingRows++;
+                            }
+                        } else {
+                            finish();
+                        }
+                        return hasRow;
+                    case "close":
+                        finish();
+                        return forwardResults(method, args);
+                    default:
+                        return forwardResults(method, args);
+                }
+            }
+
+            private void finish() {
+                if (!finished) {
+                    finished = true;
+                    // Um ResultSet de uma execução anterior não encerra a atual
+                    if (owner == execution) {
+                        finishPending();
+                    }
+                }
+            }
+
+            private Object forwardResults(Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(results, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Classe RecordLog - Arquivo de registros somente de acréscimo, gravado e lido
+ * por um MappedByteBuffer (FileChannel.map). Usado por
+ * {@link LogInventoryRepository}.
+ *
+ * Formato: cabeçalho de 8 bytes (MAGIC e indicador de arquivo completo)
+ * seguido dos registros, cada um com
+ *
+ * <pre>
+ * int tamanho do conteúdo | int CRC32C (tipo + conteúdo) | byte tipo | conteúdo
+ * </pre>
+ *
+ * O arquivo é estendido em blocos e o espaço ainda não usado fica zerado: um
+ * tamanho 0 marca o fim do log. Ao abrir, os registros são validados pelo CRC;
+ * o primeiro inválido (gravação interrompida por queda de energia, por
+ * exemplo) e tudo o que vem depois são descartados.
+ *
+ * Registros acrescentados entre {@link #beginGroup()} e {@link #endGroup()}
+ * ficam entre dois marcadores (tipos GROUP_BEGIN e GROUP_END) e valem juntos:
+ * um grupo sem o marcador final no fim do arquivo é descartado por inteiro.
+ *
+ * Cada compactação cria uma nova geração do arquivo (nome.1, nome.2, ...); a
+ * geração só passa a valer depois de completa. O arquivo antigo é apagado
+ * assim que possível (no Windows, um arquivo mapeado só pode ser apagado
+ * depois de liberado, então pode ficar para a próxima abertura).
+ *
+ * Gravações não são thread-safe (o chamador serializa); leituras podem ser
+ * feitas por várias threads ao mesmo tempo, inclusive durante gravações, em
+ * posições já publicadas.
+ */
+final class RecordLog {
+
+    static final int HEADER_SIZE = 9;
+
+    private static final int MAGIC = 0x494E564C; // "INVL"
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    // Tipos reservados (negativos) dos marcadores de grupo; o conteúdo tem 1
+    // byte porque tamanho 0 marca o fim do log
+    private static final byte GROUP_BEGIN = -1;
+    private static final byte GROUP_END = -2;
+    private static final byte[] MARKER = new byte[1];
+
+    /**
+     * Recebe os registros válidos na leitura do log.
+     */
+    interface Visitor {
+        void record(int offset, byte type, byte[] payload);
+    }
+
+    /**
+     * Registro de um grupo lido na abertura, entregue só quando o grupo fecha.
+     */
+    private static final class PendingRecord {
+        final int offset;
+        final byte type;
+        final byte[] payload;
+
+        PendingRecord(int offset, byte type, byte[] payload) {
+            this.offset = offset;
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    private final Path path;
+    private final int generation;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int end;
+    private boolean groupOpen;
+    private boolean groupStarted;
+
+    private RecordLog(Path path, int generation, FileChannel channel, MappedByteBuffer buffer, int end) {
+        this.path = path;
+        this.generation = generation;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+    }
+
+    /**
+     * Abre a geração completa mais recente do log (ou cria a primeira) e apaga as
+     * demais. Os registros válidos são entregues ao visitor, em ordem.
+     *
+     * @param base    Nome base dos arquivos.
+     * @param visitor Recebe os registros existentes.
+     * @return Log pronto para acréscimos.
+     * @throws IOException se o arquivo não puder ser aberto ou mapeado.
+     */
+    static RecordLog open(Path base, Visitor visitor) throws IOException {
+        List<Integer> generations = listGenerations(base);
+        RecordLog log = null;
+        for (int i = generations.size() - 1; i >= 0 && log == null; i--) {
+            Path file = generationPath(base, generations.get(i));
+            if (isComplete(file)) {
+                log = map(file, generations.get(i));
+                log.replay(visitor);
+            }
+        }
+        if (log == null) {
+            int next = generations.isEmpty() ? 1 : generations.get(generations.size() - 1) + 1;
+            log = create(base, next);
+            log.markComplete();
+        }
+        for (Integer generation : generations) {
+            if (generation != log.generation) {
+                deleteQuietly(generationPath(base, generation));
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Cria a próxima geração do log, ainda incompleta (ver
+     * {@link #markComplete()}).
+     */
+    RecordLog nextGeneration(Path base) throws IOException {
+        Path file = generationPath(base, generation + 1);
+        Files.deleteIfExists(file);
+        return create(base, generation + 1);
+    }
+
+    private static RecordLog create(Path base, int generation) throws IOException {
+        Path file = generationPath(base, generation);
+        RecordLog log = map(file, generation);
+        log.buffer.putInt(0, MAGIC);
+        log.buffer.putInt(4, 0);
+        return log;
+    }
+
+    private static RecordLog map(Path file, int generation) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(INITIAL_CAPACITY, size));
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return new RecordLog(file, generation, channel, buffer, FILE_HEADER_SIZE);
+    }
+
+    /**
+     * Marca o arquivo como completo (geração válida) e o grava em disco. Os
+     * registros (e o tamanho do arquivo) são gravados antes, e só depois o
+     * cabeçalho: um único force() não garante a ordem das páginas, e uma queda
+     * no meio deixaria a geração marcada como completa sem parte dos registros
+     * (a anterior seria apagada na abertura seguinte).
+     *
+     * @throws IOException se o arquivo não puder ser gravado em disco; a
+     *                     geração continua incompleta.
+     */
+    void markComplete() throws IOException {
+        MappedByteBuffer buf = buffer;
+        buf.force();
+        channel.force(true);
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, 1);
+        buf.force(0, FILE_HEADER_SIZE);
+    }
+
+    private static boolean isComplete(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // lê o cabeçalho inteiro
+            }
+            return header.position() == FILE_HEADER_SIZE && header.getInt(0) == MAGIC && header.getInt(4) == 1;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Percorre os registros validando o CRC; o fim do log fica no primeiro
+     * registro vazio ou inválido. O que houver depois de um registro inválido é
+     * zerado, para não ser confundido com registros em aberturas futuras. Os
+     * registros de um grupo só são entregues ao visitor quando o grupo fecha;
+     * um grupo incompleto no fim do log é zerado junto.
+     */
+    private void replay(Visitor visitor) {
+        MappedByteBuffer buf = buffer;
+        int offset = FILE_HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        boolean damaged = false;
+        List<PendingRecord> group = null;
+        int groupStart = 0;
+        while (offset + HEADER_SIZE <= buf.capacity()) {
+            int length = buf.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || (long) offset + HEADER_SIZE + length > buf.capacity()) {
+                damaged = true;
+                break;
+            }
+            byte type = buf.get(offset + 8);
+            byte[] payload = new byte[length];
+            buf.get(offset + HEADER_SIZE, payload);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != buf.getInt(offset + 4)) {
+                damaged = true;
+                break;
+            }
+            if (type == GROUP_BEGIN) {
+                group = new ArrayList<>();
+                groupStart = offset;
+            } else if (type == GROUP_END) {
+                if (group != null) {
+                    for (PendingRecord record : group) {
+                        visitor.record(record.offset, record.type, record.payload);
+                    }
+                }
+                group = null;
+            } else if (group != null) {
+                group.add(new PendingRecord(offset, type, payload));
+            } else {
+                visitor.record(offset, type, payload);
+            }
+            offset += HEADER_SIZE + length;
+        }
+        if (damaged) {
+            System.err.println("Log " + path + ": registro inválido na posição " + offset
+                    + "; os registros seguintes foram descartados.");
+        }
+        if (group != null) {
+            System.err.println("Log " + path + ": grupo de registros incompleto na posição " + groupStart
+                    + " foi descartado.");
+            offset = groupStart;
+            damaged = true;
+        }
+        end = offset;
+        if (damaged) {
+            for (int i = offset; i < buf.capacity(); i++) {
+                buf.put(i, (byte) 0);
+            }
+            buf.force();
+        }
+    }
+
+    /**
+     * Abre um grupo: os registros acrescentados até {@link #endGroup()} valem
+     * juntos na próxima abertura do log. O marcador inicial só é gravado com o
+     * primeiro registro do grupo (um grupo vazio não ocupa espaço).
+     */
+    void beginGroup() {
+        groupOpen = true;
+        groupStarted = false;
+    }
+
+    /**
+     * Fecha o grupo aberto por {@link #beginGroup()}. Assim como os registros,
+     * o marcador só fica durável após {@link #force(int)}.
+     *
+     * @throws IOException se o arquivo não puder crescer; o grupo fica
+     *                     incompleto e será descartado na próxima abertura.
+     */
+    void endGroup() throws IOException {
+        boolean started = groupStarted;
+        groupOpen = false;
+        groupStarted = false;
+        if (started) {
+            write(GROUP_END, MARKER);
+        }
+    }
+
+    /**
+     * Desfaz o grupo aberto por {@link #beginGroup()}, sem o marcador final:
+     * os bytes acrescentados desde start são zerados (e gravados em disco, caso
+     * o sistema já os tenha gravado) e o fim do log volta para start.
+     *
+     * @param start Fim do log quando o grupo foi aberto.
+     */
+    void abortGroup(int start) {
+        groupOpen = false;
+        groupStarted = false;
+        MappedByteBuffer buf = buffer;
+        for (int i = start; i < end; i++) {
+            buf.put(i, (byte) 0);
+        }
+        if (end > start) {
+            buf.force(start, end - start);
+        }
+        end = start;
+    }
+
+    /**
+     * Acrescenta um registro. Ele só fica durável após {@link #force(int)}.
+     *
+     * @return Posição do registro.
+     * @throws IOException se o arquivo não puder crescer (limite de 2 GB de um
+     *                     mapeamento).
+     */
+    int append(byte type, byte[] payload) throws IOException {
+        if (groupOpen && !groupStarted) {
+            write(GROUP_BEGIN, MARKER);
+            groupStarted = true;
+        }
+        return write(type, payload);
+    }
+
+    private int write(byte type, byte[] payload) throws IOException {
+        int offset = end;
+        ensureCapacity((long) offset + HEADER_SIZE + payload.length + 4);
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+        MappedByteBuffer buf = buffer;
+        // O tamanho é gravado por último: até lá o registro continua sendo o fim
+        // do log
+        buf.putInt(offset + 4, (int) crc.getValue());
+        buf.put(offset + 8, type);
+        buf.put(offset + HEADER_SIZE, payload);
+        buf.putInt(offset, payload.length);
+        end = offset + HEADER_SIZE + payload.length;
+        return offset;
+    }
+
+    /**
+     * Copia um registro de outro log, sem decodificá-lo (compactação).
+     *
+     * @return Posição do registro neste log.
+     */
+    int copyFrom(RecordLog source, int offset) throws IOException {
+        return append(source.typeAt(offset), source.read(offset));
+    }
+
+    /**
+     * Grava em disco os registros acrescentados a partir de uma posição.
+     */
+    void force(int from) {
+        if (end > from) {
+            buffer.force(from, end - from);
+        }
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        MappedByteBuffer buf = buffer;
+        if (needed <= buf.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException("O log " + path + " atingiu o limite de 2 GB.");
+        }
+        long capacity = buf.capacity();
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        capacity = Math.min(capacity, Integer.MAX_VALUE);
+        // Leitores que ainda usam o mapeamento anterior continuam válidos: o
+        // arquivo só cresce
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    byte typeAt(int offset) {
+        return buffer.get(offset + 8);
+    }
+
+    /**
+     * Lê o conteúdo de um registro já publicado.
+     */
+    byte[] read(int offset) {
+        MappedByteBuffer buf = buffer;
+        byte[] payload = new byte[buf.getInt(offset)];
+        buf.get(offset + HEADER_SIZE, payload);
+        return payload;
+    }
+
+    /**
+     * @return Posição do fim do log (bytes usados, incluindo o cabeçalho).
+     */
+    int size() {
+        return end;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Grava o log em disco e fecha o arquivo. O mapeamento continua válido
+     * para leitores que ainda o usam.
+     */
+    void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar log " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fecha e apaga o arquivo (geração substituída por uma compactação).
+     */
+    void discard() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar log " + path + ": " + e.getMessage());
+        }
+        deleteQuietly(path);
+    }
+
+    static Path generationPath(Path base, int generation) {
+        return base.resolveSibling(base.getFileName() + "." + generation);
+    }
+
+    private static List<Integer> listGenerations(Path base) throws IOException {
+        List<Integer> generations = new ArrayList<>();
+        Path dir = base.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return generations;
+        }
+        String prefix = base.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (suffix.matches("\\d{1,9}")) {
+                    generations.add(Integer.parseInt(suffix));
+                }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // No Windows o arquivo ainda pode estar mapeado; fica para a próxima
+            // abertura
+            System.err.println("Não foi possível apagar " + file + ": " + e.getMessage());
+        }
+    }
+}
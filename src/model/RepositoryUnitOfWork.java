@@ -0,0 +1,60 @@
+package model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unidade de trabalho que repassa cada operação ao próprio repositório. Usada
+ * pelo mecanismo de memória, que não tem o que gravar em disco (o de log tem
+ * a sua própria, que lança os erros de gravação para desfazer o trabalho).
+ * O chamador mantém o lock de escrita do repositório durante o trabalho.
+ */
+final class RepositoryUnitOfWork implements UnitOfWork {
+
+    private final InventoryRepository repository;
+
+    RepositoryUnitOfWork(InventoryRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void insertComputer(Computer computer) {
+        repository.insertComputer(computer);
+    }
+
+    @Override
+    public BatchResult insertComputers(List<Computer> computers) {
+        return repository.insertComputers(computers);
+    }
+
+    @Override
+    public UpdateResult updateComputer(Computer computer) {
+        return repository.updateComputer(computer);
+    }
+
+    @Override
+    public boolean deleteComputer(Computer computer) {
+        return repository.deleteComputer(computer);
+    }
+
+    @Override
+    public boolean restoreComputer(Computer computer) {
+        return repository.restoreComputer(computer);
+    }
+
+    @Override
+    public Map<Integer, Long> deleteComputers(Collection<Integer> ids) {
+        return repository.deleteComputers(ids);
+    }
+
+    @Override
+    public Map<Integer, Long> restoreComputers(Collection<Integer> ids) {
+        return repository.restoreComputers(ids);
+    }
+
+    @Override
+    public void insertHistory(HistoryEntry entry) {
+        repository.insertHistory(entry);
+    }
+}
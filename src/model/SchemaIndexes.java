@@ -0,0 +1,103 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classe SchemaIndexes - Conjunto gerenciado de índices secundários da tabela
+ * computers e das consultas que eles devem atender.
+ *
+ * Os índices de filtro são parciais (WHERE is_deleted = 0): a tela principal só
+ * consulta registros ativos, e a lixeira não ocupa espaço neles.
+ */
+public final class SchemaIndexes {
+
+    /** Instruções CREATE INDEX, na ordem de criação. */
+    static final String[] INDEX_DDL = {
+            "CREATE INDEX IF NOT EXISTS idx_computers_active ON computers(is_deleted) WHERE is_deleted = 0",
+            "CREATE INDEX IF NOT EXISTS idx_computers_deleted ON computers(is_deleted) WHERE is_deleted = 1",
+            "CREATE INDEX IF NOT EXISTS idx_computers_location_trim "
+                    + "ON computers(trim(location) COLLATE NOCASE) WHERE is_deleted = 0",
+            "CREATE INDEX IF NOT EXISTS idx_computers_activity_status ON computers(activity_status) WHERE is_deleted = 0",
+            "CREATE INDEX IF NOT EXISTS idx_computers_tag ON computers(tag)",
+            "CREATE INDEX IF NOT EXISTS idx_computers_serial_number ON computers(serial_number)",
+            "CREATE INDEX IF NOT EXISTS idx_computers_hostname ON computers(hostname)",
+            "CREATE INDEX IF NOT EXISTS idx_computers_patrimony ON computers(patrimony)"
+    };
+
+    /** Consultas representativas dos filtros da aplicação, por descrição. */
+    private static final Map<String, String> HOT_QUERIES = new LinkedHashMap<>();
+
+    static {
+        HOT_QUERIES.put("Computadores ativos", "SELECT id FROM computers WHERE is_deleted = 0");
+        HOT_QUERIES.put("Lixeira", "SELECT id FROM computers WHERE is_deleted = 1");
+        HOT_QUERIES.put("Por localização",
+                "SELECT id FROM computers WHERE is_deleted = 0 AND trim(location) = ? COLLATE NOCASE");
+        HOT_QUERIES.put("Por status", "SELECT id FROM computers WHERE is_deleted = 0 AND activity_status = ?");
+        HOT_QUERIES.put("Estatísticas (localização/status)", "SELECT location, activity_status, COUNT(*) "
+                + "FROM computers WHERE is_deleted = 0 GROUP BY location, activity_status");
+        HOT_QUERIES.put("Por etiqueta", "SELECT id FROM computers WHERE tag = ?");
+        HOT_QUERIES.put("Por nº de série", "SELECT id FROM computers WHERE serial_number = ?");
+        HOT_QUERIES.put("Por nome do PC", "SELECT id FROM computers WHERE hostname = ?");
+        HOT_QUERIES.put("Por patrimônio", "SELECT id FROM computers WHERE patrimony = ?");
+    }
+
+    private SchemaIndexes() {
+    }
+
+    /**
+     * Cria os índices que ainda não existem.
+     *
+     * @param stmt Statement de uma conexão de escrita.
+     * @throws SQLException se algum índice não puder ser criado.
+     */
+    static void createAll(Statement stmt) throws SQLException {
+        for (String ddl : INDEX_DDL) {
+            stmt.execute(ddl);
+        }
+    }
+
+    /**
+     * Executa EXPLAIN QUERY PLAN para cada consulta representativa e retorna o
+     * plano obtido, para verificar quais índices são usados (e se algum filtro
+     * ainda faz varredura completa, "SCAN computers").
+     *
+     * @param conn Conexão a ser usada.
+     * @return Plano de cada consulta, por descrição.
+     */
+    static Map<String, String> explainHotQueries(Connection conn) {
+        Map<String, String> plans = new LinkedHashMap<>();
+        for (Map.Entry<String, String> query : HOT_QUERIES.entrySet()) {
+            plans.put(query.getKey(), explain(conn, query.getValue()));
+        }
+        return plans;
+    }
+
+    /**
+     * Retorna o plano de execução de uma consulta, uma etapa por linha.
+     *
+     * @param conn Conexão a ser usada.
+     * @param sql  Consulta (parâmetros "?" são tratados como NULL).
+     * @return Etapas do plano separadas por "; ".
+     */
+    static String explain(Connection conn, String sql) {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (plan.length() > 0) {
+                    plan.append("; ");
+                }
+                plan.append(rs.getString("detail"));
+            }
+        } catch (SQLException e) {
+            return "Erro: " + e.getMessage();
+        }
+        return plan.toString();
+    }
+}
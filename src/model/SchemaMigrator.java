@@ -0,0 +1,349 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe SchemaMigrator - Migrações versionadas do esquema, controladas por
+ * PRAGMA user_version.
+ *
+ * Cada migração tem um número de versão crescente. Ao iniciar, apenas as
+ * migrações com versão maior que a gravada no banco são aplicadas, todas em uma
+ * única transação; se o banco já estiver na versão atual, nada é executado além
+ * da leitura do user_version.
+ *
+ * Para alterar o esquema, acrescente uma nova migração ao final da lista.
+ * Nunca altere uma migração já publicada.
+ */
+final class SchemaMigrator {
+
+    /**
+     * Passo de migração executado dentro da transação.
+     */
+    interface Step {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        register(1, "Tabelas iniciais e colunas legadas", SchemaMigrator::createBaseSchema);
+        register(2, "Índices secundários de computers", SchemaIndexes::createAll);
+        register(3, "Índice de texto completo (FTS5) de computers", SchemaMigrator::createFullTextIndex);
+        register(4, "Índices de history por data e por usuário/ação", SchemaMigrator::createHistoryIndexes);
+        register(5, "Versão de linha e data de alteração em computers", SchemaMigrator::addChangeTracking);
+        register(6, "Índice de computers por localização e status (estatísticas)", SchemaMigrator::createStatsIndex);
+        register(7, "Última sequência gravada de cada diário de gravação adiada", SchemaMigrator::createWriteJournalTable);
+        register(8, "Tabela de metadados do inventário (época de restauração)", SchemaMigrator::createMetadataTable);
+        register(9, "Índice de localização sem espaços nas pontas", SchemaMigrator::createTrimmedLocationIndex);
+        register(10, "Contador de versão de linha em metadata", SchemaMigrator::createRowVersionCounter);
+    }
+
+    private SchemaMigrator() {
+    }
+
+    private static void register(int version, String description, Step step) {
+        if (!MIGRATIONS.isEmpty() && MIGRATIONS.get(MIGRATIONS.size() - 1).version >= version) {
+            throw new IllegalStateException("Migrações fora de ordem: versão " + version);
+        }
+        MIGRATIONS.add(new Migration(version, description, step));
+    }
+
+    /**
+     * @return Versão de esquema esperada por esta versão da aplicação.
+     */
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * @return Descrições das migrações conhecidas, no formato "versão - descrição".
+     */
+    static List<String> describe() {
+        List<String> list = new ArrayList<>();
+        for (Migration migration : MIGRATIONS) {
+            list.add(migration.version + " - " + migration.description);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Lê a versão de esquema gravada no banco.
+     *
+     * @param conn Conexão a ser usada.
+     * @return Valor de PRAGMA user_version.
+     * @throws SQLException se a leitura falhar.
+     */
+    static int readVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Aplica as migrações pendentes em uma única transação.
+     *
+     * @param conn Conexão de escrita.
+     * @return Quantidade de migrações aplicadas (0 se o esquema já estava atual).
+     * @throws SQLException se alguma migração falhar; nesse caso nada é aplicado.
+     */
+    static int migrate(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            int applied = migrateInTransaction(conn);
+            conn.commit();
+            return applied;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Aplica as migrações pendentes na transação já aberta pelo chamador (que
+     * confirma ou desfaz junto com as suas próprias alterações).
+     *
+     * @param conn Conexão de escrita, com autoCommit desligado.
+     * @return Quantidade de migrações aplicadas.
+     * @throws SQLException se alguma migração falhar.
+     */
+    static int migrateInTransaction(Connection conn) throws SQLException {
+        int current = readVersion(conn);
+        if (current >= latestVersion()) {
+            if (current > latestVersion()) {
+                System.err.println("Banco de dados na versão " + current
+                        + ", mais nova que a suportada (" + latestVersion() + ").");
+            }
+            return 0;
+        }
+
+        int applied = 0;
+        try (Statement stmt = conn.createStatement()) {
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version > current) {
+                    migration.step.apply(stmt);
+                    // user_version é gravado no cabeçalho e participa da transação
+                    stmt.execute("PRAGMA user_version = " + migration.version);
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Migração 1: cria as tabelas e adiciona as colunas que bancos antigos (sem
+     * user_version) podem não ter.
+     */
+    private static void createBaseSchema(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS computers (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "tag TEXT, " +
+                "serial_number TEXT, " +
+                "model TEXT, " +
+                "brand TEXT, " +
+                "state TEXT, " +
+                "user_name TEXT, " +
+                "windows_version TEXT, " +
+                "office_version TEXT, " +
+                "location TEXT, " +
+                "purchase_date TEXT, " +
+                "observation TEXT, " +
+                "hostname TEXT, " +
+                "sector TEXT, " +
+                "patrimony TEXT, " +
+                "is_deleted INTEGER DEFAULT 0, " +
+                "activity_status TEXT DEFAULT 'Ativo'" +
+                ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "user_name TEXT UNIQUE NOT NULL, " +
+                "password TEXT NOT NULL" +
+                ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "action TEXT, " +
+                "user TEXT, " +
+                "timestamp TEXT, " +
+                "description TEXT" +
+                ")");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS companies (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "name TEXT UNIQUE NOT NULL" +
+                ")");
+
+        // Popula empresas padrão se a tabela estiver vazia
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM companies")) {
+            if (rs.next() && rs.getInt(1) == 0) {
+                stmt.execute("INSERT INTO companies (name) VALUES ('NPD')");
+                stmt.execute("INSERT INTO companies (name) VALUES ('INFAN')");
+            }
+        }
+
+        // Bancos criados por versões antigas podem não ter as colunas mais novas
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(computers)")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name").toLowerCase());
+            }
+        }
+        if (!columns.contains("observation")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN observation TEXT");
+        }
+        if (!columns.contains("hostname")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN hostname TEXT");
+        }
+        if (!columns.contains("sector")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN sector TEXT");
+        }
+        if (!columns.contains("patrimony")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN patrimony TEXT");
+        }
+        if (!columns.contains("activity_status")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN activity_status TEXT DEFAULT 'Ativo'");
+        }
+        if (!columns.contains("is_deleted")) {
+            stmt.execute("ALTER TABLE computers ADD COLUMN is_deleted INTEGER DEFAULT 0");
+        }
+    }
+
+    /**
+     * Migração 3: cria a tabela virtual FTS5 computers_fts (conteúdo externo,
+     * apontando para computers), os gatilhos que a mantêm sincronizada e a
+     * popula com os registros existentes.
+     */
+    private static void createFullTextIndex(Statement stmt) throws SQLException {
+        String columns = "tag, hostname, user_name, model, brand, serial_number, sector, location, patrimony, observation";
+        String newValues = "new.tag, new.hostname, new.user_name, new.model, new.brand, new.serial_number, "
+                + "new.sector, new.location, new.patrimony, new.observation";
+        String oldValues = "old.tag, old.hostname, old.user_name, old.model, old.brand, old.serial_number, "
+                + "old.sector, old.location, old.patrimony, old.observation";
+
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS computers_fts USING fts5(" + columns
+                + ", content='computers', content_rowid='id', tokenize='unicode61 remove_diacritics 2')");
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS computers_fts_insert AFTER INSERT ON computers BEGIN "
+                + "INSERT INTO computers_fts(rowid, " + columns + ") VALUES (new.id, " + newValues + "); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS computers_fts_delete AFTER DELETE ON computers BEGIN "
+                + "INSERT INTO computers_fts(computers_fts, rowid, " + columns + ") VALUES ('delete', old.id, "
+                + oldValues + "); END");
+        // Só dispara quando uma coluna indexada muda (não em exclusão lógica, por exemplo)
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS computers_fts_update AFTER UPDATE OF " + columns
+                + " ON computers BEGIN "
+                + "INSERT INTO computers_fts(computers_fts, rowid, " + columns + ") VALUES ('delete', old.id, "
+                + oldValues + "); "
+                + "INSERT INTO computers_fts(rowid, " + columns + ") VALUES (new.id, " + newValues + "); END");
+
+        stmt.execute("INSERT INTO computers_fts(computers_fts) VALUES ('rebuild')");
+    }
+
+    /**
+     * Migração 4: índices para a consulta paginada do histórico (mais recentes
+     * primeiro, opcionalmente filtrada por usuário e ação).
+     */
+    private static void createHistoryIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_timestamp ON history(timestamp, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_history_user_action ON history(user, action, timestamp, id)");
+    }
+
+    /**
+     * Migração 5: row_version (versão crescente, global, atribuída a cada
+     * gravação) e updated_at em computers, para a atualização incremental da
+     * lista. Os registros existentes ficam com versão 0.
+     */
+    private static void addChangeTracking(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE computers ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0");
+        stmt.execute("ALTER TABLE computers ADD COLUMN updated_at TEXT");
+        stmt.execute("UPDATE computers SET updated_at = strftime('%Y-%m-%dT%H:%M:%f', 'now', 'localtime')");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_computers_row_version ON computers(row_version)");
+    }
+
+    /**
+     * Migração 6: índice de cobertura para as contagens por localização e status
+     * da barra superior (GROUP BY location, activity_status sem ler a tabela
+     * nem ordenar). is_deleted vem primeiro para o planejador preferi-lo ao
+     * idx_computers_active, que também atende "is_deleted = 0".
+     */
+    private static void createStatsIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_computers_location_status "
+                + "ON computers(is_deleted, location, activity_status) WHERE is_deleted = 0");
+    }
+
+    /**
+     * Migração 7: write_journal guarda, para cada execução da fila de gravação
+     * adiada (identificada pelo cabeçalho do diário), a última sequência
+     * gravada. É atualizada na mesma transação do grupo, para que a recuperação
+     * não reaplique um grupo já gravado.
+     */
+    private static void createWriteJournalTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS write_journal ("
+                + "run_id TEXT PRIMARY KEY, "
+                + "last_seq INTEGER NOT NULL)");
+    }
+
+    /**
+     * Migração 8: metadata guarda valores numéricos do inventário como um todo.
+     * A chave restore_epoch muda a cada restauração de backup, para que as
+     * outras estações saibam que devem recarregar a lista em vez de mesclar
+     * apenas os registros alterados.
+     */
+    private static void createMetadataTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS metadata ("
+                + "name TEXT PRIMARY KEY, "
+                + "value INTEGER NOT NULL)");
+    }
+
+    /**
+     * Migração 9: o filtro por localização compara o valor sem espaços nas
+     * pontas (trim), como a tela e as estatísticas; bancos antigos têm
+     * localizações gravadas com espaços ("NPD "). O índice por
+     * location COLLATE NOCASE dá lugar a um índice pela expressão
+     * trim(location), que é a usada no WHERE.
+     */
+    private static void createTrimmedLocationIndex(Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_computers_location");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_computers_location_trim "
+                + "ON computers(trim(location) COLLATE NOCASE) WHERE is_deleted = 0");
+    }
+
+    /**
+     * Migração 10: a próxima row_version vem de um contador em metadata, e não
+     * mais de MAX(row_version): a remoção definitiva da lixeira pode apagar o
+     * registro de maior versão, e a versão seria atribuída de novo (as outras
+     * estações não veriam a alteração). Os gatilhos avançam o contador a cada
+     * versão gravada, inclusive nas atualizações em lote.
+     */
+    private static void createRowVersionCounter(Statement stmt) throws SQLException {
+        String counter = "(SELECT value FROM metadata WHERE name = 'row_version')";
+        String advance = " BEGIN UPDATE metadata SET value = NEW.row_version WHERE name = 'row_version'; END";
+        stmt.execute("INSERT OR IGNORE INTO metadata(name, value) "
+                + "SELECT 'row_version', COALESCE(MAX(row_version), 0) FROM computers");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS computers_row_version_insert AFTER INSERT ON computers "
+                + "WHEN NEW.row_version > " + counter + advance);
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS computers_row_version_update AFTER UPDATE OF row_version "
+                + "ON computers WHEN NEW.row_version > " + counter + advance);
+    }
+}
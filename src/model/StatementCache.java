@@ -0,0 +1,194 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe StatementCache - Cache de PreparedStatements de uma conexão física,
+ * indexado pelo texto SQL, com tamanho limitado e descarte do menos usado
+ * recentemente (LRU).
+ *
+ * O chamador recebe um proxy: close() não fecha o statement, apenas fecha os
+ * ResultSets abertos, limpa os parâmetros e o devolve ao cache. Isso é
+ * importante no SQLite, pois um statement não finalizado mantém a transação
+ * de leitura aberta.
+ */
+class StatementCache {
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private final Connection physical;
+    private final LinkedHashMap<String, CachedStatement> entries;
+
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        int maxEntries = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                evictEldestIdle();
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna um statement preparado para o SQL, reutilizando o do cache quando
+     * disponível. Se o statement em cache já estiver em uso (chamada aninhada com
+     * o mesmo SQL), prepara um statement avulso, fechado normalmente.
+     *
+     * @param sql Texto SQL.
+     * @return Statement pronto para uso.
+     * @throws SQLException se a preparação falhar.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = entries.get(sql);
+        if (cached != null && !cached.inUse) {
+            HITS.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        MISSES.incrementAndGet();
+        if (cached != null) {
+            return physical.prepareStatement(sql);
+        }
+        cached = new CachedStatement(physical.prepareStatement(sql));
+        cached.inUse = true;
+        entries.put(sql, cached);
+        return cached.proxy;
+    }
+
+    /**
+     * Fecha todos os statements do cache (usado quando a conexão física é
+     * fechada ou reaberta).
+     */
+    void closeAll() {
+        for (CachedStatement cached : entries.values()) {
+            cached.closePhysical();
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove o statement ocioso usado há mais tempo. Statements em uso nunca são
+     * descartados; nesse caso o cache excede o limite temporariamente.
+     */
+    private void evictEldestIdle() {
+        Iterator<CachedStatement> it = entries.values().iterator();
+        while (it.hasNext()) {
+            CachedStatement cached = it.next();
+            if (!cached.inUse) {
+                it.remove();
+                cached.closePhysical();
+                EVICTIONS.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    /**
+     * Entrada do cache: o statement físico e o proxy entregue aos chamadores.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    release();
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + statement + "]";
+                default:
+                    if (!inUse) {
+                        throw new SQLException("Statement já devolvido ao cache.");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet) {
+                        openResults.add((ResultSet) result);
+                    }
+                    return result;
+            }
+        }
+
+        private void release() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } finally {
+                openResults.clear();
+                inUse = false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Erro ao fechar statement em cache: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Perfis de armazenamento do SQLite. Cada perfil define os PRAGMAs aplicados a
+ * toda conexão aberta pelo {@link ConnectionManager}, permitindo trocar
+ * durabilidade por vazão de escrita conforme a instalação.
+ *
+ * O padrão é o perfil shared (diário de reversão, journal_mode=DELETE, como nas
+ * versões anteriores), que funciona com o computers.db em uma unidade de rede
+ * usada por várias máquinas. Os perfis safe, balanced e throughput usam
+ * journal_mode=WAL, que depende de memória compartilhada entre os processos e
+ * só funciona com todas as estações no mesmo computador: são uma escolha
+ * explícita (storage.profile) dessas instalações.
+ */
+public enum StorageProfile {
+
+    /**
+     * Máxima durabilidade: cada commit é sincronizado em disco (synchronous=FULL).
+     */
+    SAFE("safe", "WAL", "FULL", 0L, -2_000, "DEFAULT", 1_000),
+
+    /**
+     * Equilíbrio recomendado para estações no mesmo computador: em WAL,
+     * synchronous=NORMAL não corrompe o banco, mas os últimos commits podem se
+     * perder em uma queda de energia.
+     */
+    BALANCED("balanced", "WAL", "NORMAL", 64L * 1024 * 1024, -16_000, "MEMORY", 1_000),
+
+    /**
+     * Máxima vazão: sem fsync (synchronous=OFF). Uma queda do sistema operacional
+     * pode corromper o banco; use apenas com backups frequentes.
+     */
+    THROUGHPUT("throughput", "WAL", "OFF", 256L * 1024 * 1024, -64_000, "MEMORY", 4_000),
+
+    /**
+     * Padrão. Banco em unidade de rede compartilhada por várias máquinas:
+     * diário de reversão (journal_mode=DELETE), que usa apenas os bloqueios de
+     * arquivo, e synchronous=FULL. Sem mmap, que não é confiável em arquivos
+     * remotos. As leituras bloqueiam as gravações enquanto duram (sem
+     * instantâneos).
+     */
+    SHARED("shared", "DELETE", "FULL", 0L, -2_000, "DEFAULT", 0);
+
+    private final String configName;
+    private final String journalMode;
+    private final String synchronous;
+    private final long mmapSize;
+    private final int cacheSize;
+    private final String tempStore;
+    private final int walAutocheckpoint;
+
+    StorageProfile(String configName, String journalMode, String synchronous, long mmapSize, int cacheSize,
+            String tempStore, int walAutocheckpoint) {
+        this.configName = configName;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSize = cacheSize;
+        this.tempStore = tempStore;
+        this.walAutocheckpoint = walAutocheckpoint;
+    }
+
+    /**
+     * Converte o nome usado no arquivo de configuração ("safe", "balanced",
+     * "throughput", "shared") no perfil correspondente.
+     *
+     * @param name Nome do perfil.
+     * @return Perfil correspondente.
+     * @throws IllegalArgumentException se o nome for desconhecido.
+     */
+    public static StorageProfile fromName(String name) {
+        for (StorageProfile profile : values()) {
+            if (profile.configName.equalsIgnoreCase(name == null ? "" : name.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Perfil de armazenamento desconhecido: " + name);
+    }
+
+    /**
+     * Aplica os PRAGMAs do perfil à conexão. Deve ser chamado uma única vez, logo
+     * após a conexão ser aberta.
+     *
+     * @param conn Conexão recém-aberta.
+     * @throws SQLException se algum PRAGMA falhar.
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Só tem efeito em um banco novo, e precisa vir antes do journal_mode,
+            // que já inicializa o arquivo. Bancos existentes são convertidos pela
+            // manutenção (DatabaseMaintenance)
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = " + journalMode)) {
+                // A troca de modo exige acesso exclusivo: falha enquanto outra
+                // estação mantém o banco aberto em outro modo
+                String mode = rs.next() ? rs.getString(1) : "";
+                if (!journalMode.equalsIgnoreCase(mode)) {
+                    System.err.println("Não foi possível usar journal_mode=" + journalMode + " (atual: " + mode
+                            + "). Todas as estações devem usar o mesmo perfil de armazenamento.");
+                }
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+            if ("WAL".equals(journalMode)) {
+                stmt.execute("PRAGMA wal_autocheckpoint = " + walAutocheckpoint);
+            }
+        }
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * @return true se o perfil pode ser usado por estações em máquinas
+     *         diferentes (banco em unidade de rede).
+     */
+    public boolean isNetworkSafe() {
+        return !"WAL".equals(journalMode);
+    }
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public int getWalAutocheckpoint() {
+        return walAutocheckpoint;
+    }
+}
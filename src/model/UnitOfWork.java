@@ -0,0 +1,48 @@
+package model;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gravações executadas em uma única transação por
+ * {@link InventoryRepository#inTransaction(Work)}: a alteração do computador e
+ * o registro de histórico correspondente são confirmados juntos (uma única
+ * gravação em disco) ou não são gravados.
+ *
+ * Os métodos têm o mesmo efeito dos equivalentes de
+ * {@link InventoryRepository}, mas só valem depois que o trabalho termina sem
+ * exceção.
+ */
+public interface UnitOfWork {
+
+    /**
+     * Trabalho executado dentro da transação. Se lançar exceção, nada é gravado
+     * (SQLite). Pode ser executado de novo se o banco estiver ocupado por outra
+     * estação, então não deve ter efeitos fora dos objetos gravados.
+     */
+    interface Work<T> {
+        T run(UnitOfWork work) throws SQLException;
+    }
+
+    void insertComputer(Computer computer) throws SQLException;
+
+    BatchResult insertComputers(List<Computer> computers) throws SQLException;
+
+    /**
+     * @return UPDATED (e a nova versão atribuída ao objeto), CONFLICT ou
+     *         NOT_FOUND.
+     */
+    UpdateResult updateComputer(Computer computer) throws SQLException;
+
+    boolean deleteComputer(Computer computer) throws SQLException;
+
+    boolean restoreComputer(Computer computer) throws SQLException;
+
+    Map<Integer, Long> deleteComputers(Collection<Integer> ids) throws SQLException;
+
+    Map<Integer, Long> restoreComputers(Collection<Integer> ids) throws SQLException;
+
+    void insertHistory(HistoryEntry entry) throws SQLException;
+}
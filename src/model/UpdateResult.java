@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * Resultado da atualização de um computador com verificação de versão
+ * (row_version).
+ */
+public enum UpdateResult {
+    /** Registro gravado; a nova versão foi atribuída ao objeto. */
+    UPDATED,
+    /** Outra estação alterou o registro depois que ele foi carregado. */
+    CONFLICT,
+    /** O registro não existe mais no banco. */
+    NOT_FOUND,
+    /** Erro de banco (detalhes no console). */
+    ERROR
+}
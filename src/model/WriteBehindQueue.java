@@ -0,0 +1,1052 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Classe WriteBehindQueue - Fila de gravação adiada (write-behind) para as
+ * alterações de computadores e do histórico.
+ *
+ * Cada operação é anotada no diário (write.journal), sincronizado com o disco,
+ * e entra na fila; quem chamou retorna sem esperar o banco. Uma thread de fundo
+ * grava a fila em grupos: cada transação reúne até write.group.size operações,
+ * ou as que chegarem até write.group.maxDelayMillis depois da primeira. Após o
+ * commit, o diário recebe uma marca com a última sequência gravada e, quando a
+ * fila esvazia, é truncado.
+ *
+ * Se o processo terminar antes da gravação, as operações após a última marca
+ * são reaplicadas na inicialização seguinte ({@link #recover(Path)}). Como a
+ * marca só é anotada depois do commit, cada grupo também grava a sua última
+ * sequência na tabela write_journal, na mesma transação, com a identificação
+ * desta execução (cabeçalho do diário): um grupo gravado cuja marca não chegou
+ * ao diário não é reaplicado.
+ *
+ * Com a fila cheia, quem enfileira grava um grupo na própria thread antes de
+ * continuar, limitando a memória e o tamanho do diário.
+ *
+ * Computadores novos não têm id até a inserção ser gravada. As operações
+ * seguintes sobre eles guardam a sequência da inserção, resolvida para o id
+ * gerado no momento da gravação. Cada objeto que recebe o id é avisado ao
+ * ouvinte de {@link #setIdListener}.
+ *
+ * As atualizações verificam a versão do registro (row_version), como no modo
+ * síncrono. Como quem editou já recebeu o retorno, um conflito não pode ser
+ * informado na hora: a atualização é descartada (a alteração da outra estação
+ * prevalece), contada em {@link #getConflictCount()} e avisada ao ouvinte
+ * ({@link #setDropListener}) junto com o registro como está no banco. O mesmo
+ * vale para uma operação que continua falhando e é descartada. O histórico
+ * enfileirado com uma alteração descartada não é gravado. Na recuperação do
+ * diário as atualizações também verificam a versão, para não sobrescrever uma
+ * alteração mais nova de outra estação.
+ */
+public class WriteBehindQueue {
+
+    private enum Kind {
+        INSERT, UPDATE, DELETE, RESTORE, HISTORY
+    }
+
+    private static final class Operation {
+        final long seq;
+        final Kind kind;
+        final int id; // id conhecido ao enfileirar (0 se ainda não gravado)
+        // Sequência da inserção pendente, quando id é 0; no histórico, a da
+        // alteração que ele registra (0 se avulso)
+        final long ref;
+        final long version; // row_version esperada (a do objeto ao enfileirar)
+        final Computer computer;
+        final HistoryEntry history;
+        // Não vão para o diário: objeto em memória alterado e o seu histórico
+        Computer target;
+        HistoryEntry note;
+
+        Operation(long seq, Kind kind, int id, long ref, long version, Computer computer, HistoryEntry history) {
+            this.seq = seq;
+            this.kind = kind;
+            this.id = id;
+            this.ref = ref;
+            this.version = version;
+            this.computer = computer;
+            this.history = history;
+        }
+    }
+
+    /**
+     * Alteração descartada pela fila depois de quem a fez já ter recebido o
+     * retorno: conflito de versão (outra estação alterou o registro) ou erro
+     * persistente ao gravar.
+     */
+    public static final class DroppedWrite {
+        private final Computer computer;
+        private final Computer current;
+        private final HistoryEntry history;
+        private final boolean conflict;
+        private final String message;
+
+        DroppedWrite(Computer computer, Computer current, HistoryEntry history, boolean conflict,
+                String message) {
+            this.computer = computer;
+            this.current = current;
+            this.history = history;
+            this.conflict = conflict;
+            this.message = message;
+        }
+
+        /**
+         * @return Objeto em memória que recebeu a alteração.
+         */
+        public Computer getComputer() {
+            return computer;
+        }
+
+        /**
+         * @return Registro como está no banco, ou null se ele não existe (ou não
+         *         pôde ser lido).
+         */
+        public Computer getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return Histórico enfileirado com a alteração (não gravado), ou null.
+         */
+        public HistoryEntry getHistory() {
+            return history;
+        }
+
+        public boolean isConflict() {
+            return conflict;
+        }
+
+        /**
+         * @return Descrição para o usuário.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 100;
+    private static final long IDLE_WAIT_MILLIS = 250;
+    private static final String NULL_FIELD = "~";
+
+    private static WriteBehindQueue instance;
+
+    private final int groupSize;
+    private final long maxDelayNanos;
+    private final ArrayBlockingQueue<Operation> queue;
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private final ReentrantLock drainLock = new ReentrantLock(true);
+    private final Object idleMonitor = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong committedGroups = new AtomicLong();
+    private final AtomicLong committedOperations = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    // Computadores cuja inserção ainda não foi gravada, e a sequência dela
+    private final Map<Computer, Long> pendingKeys = new IdentityHashMap<>();
+    private final Map<Long, List<Computer>> objectsByKey = new HashMap<>();
+    // Ids gerados para inserções já gravadas, enquanto houver operações na fila
+    private final Map<Long, Integer> resolvedIds = new HashMap<>();
+    // Versão deixada pela última gravação da própria fila em cada registro (só
+    // usada pela thread que grava, com drainLock)
+    private final Map<Integer, Long> ownVersions = new HashMap<>();
+    // Alterações descartadas cujo histórico ainda não passou pela fila (drainLock)
+    private final Set<Long> droppedSeqs = new HashSet<>();
+    private volatile Consumer<DroppedWrite> dropListener;
+    private volatile Consumer<Computer> idListener;
+
+    private final FileChannel journal;
+    // Identifica esta execução no diário e em write_journal (as sequências
+    // recomeçam a cada execução)
+    private final String runId = UUID.randomUUID().toString();
+    private boolean headerWritten; // com enqueueLock
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private long lastSeq;
+
+    private WriteBehindQueue(DatabaseConfig config) throws IOException {
+        this.groupSize = config.getWriteGroupSize();
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getWriteGroupMaxDelayMillis());
+        this.queue = new ArrayBlockingQueue<>(config.getWriteQueueCapacity());
+        this.journal = FileChannel.open(Paths.get(config.getWriteJournal()), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.writerThread = new Thread(this::runWriter, "write-behind");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Retorna a fila do processo, criando-a (e iniciando a thread de gravação) na
+     * primeira chamada. O diário deve ter sido recuperado antes (ver
+     * {@link DatabaseHelper#createTable()}).
+     *
+     * @param config Configuração com o tamanho da fila, dos grupos e o diário.
+     * @return Fila ativa, ou null se o diário não puder ser aberto.
+     */
+    public static synchronized WriteBehindQueue getInstance(DatabaseConfig config) {
+        if (instance == null) {
+            try {
+                instance = new WriteBehindQueue(config);
+            } catch (IOException e) {
+                System.err.println("Erro ao abrir o diário de gravação: " + e.getMessage());
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Grava tudo o que estiver pendente e encerra a fila. Chamado pelo
+     * {@link DatabaseHelper#shutdown()} antes de fechar as conexões.
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    static synchronized WriteBehindQueue current() {
+        return instance;
+    }
+
+    // ----- Enfileiramento -----
+
+    /**
+     * Define quem é avisado das alterações descartadas (conflito ou erro). O
+     * aviso é feito na thread que grava a fila, não na da interface.
+     */
+    public void setDropListener(Consumer<DroppedWrite> listener) {
+        this.dropListener = listener;
+    }
+
+    /**
+     * Define quem é avisado quando um computador enfileirado recebe o id gerado
+     * pelo banco. O aviso é feito na thread que grava a fila, logo depois de o
+     * id ser atribuído ao objeto.
+     */
+    public void setIdListener(Consumer<Computer> listener) {
+        this.idListener = listener;
+    }
+
+    /**
+     * Enfileira a inserção de um computador, seguida do seu histórico. O id é
+     * atribuído ao objeto quando a inserção for gravada.
+     */
+    public void enqueueInsert(Computer computer, HistoryEntry history) {
+        enqueueLock.lock();
+        try {
+            long seq = lastSeq + 1;
+            synchronized (pendingKeys) {
+                pendingKeys.put(computer, seq);
+                objectsByKey.computeIfAbsent(seq, k -> new ArrayList<>()).add(computer);
+            }
+            Operation op = new Operation(seq, Kind.INSERT, 0, 0, 0, snapshot(computer), null);
+            op.target = computer;
+            op.note = history;
+            enqueue(op);
+            enqueueNote(op);
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    /**
+     * Enfileira a atualização de um computador, seguida do seu histórico (que
+     * só é gravado se a atualização for).
+     *
+     * @param computer Dados novos.
+     * @param previous Objeto que representava o registro até agora (o próprio
+     *                 computer, se ele foi alterado no lugar).
+     * @return false se o registro não tem id nem inserção pendente.
+     */
+    public boolean enqueueUpdate(Computer computer, Computer previous, HistoryEntry history) {
+        return enqueueTargeted(Kind.UPDATE, computer, previous, history);
+    }
+
+    /**
+     * Enfileira a exclusão lógica de um computador, seguida do seu histórico.
+     *
+     * @return false se o registro não tem id nem inserção pendente.
+     */
+    public boolean enqueueDelete(Computer computer, HistoryEntry history) {
+        return enqueueTargeted(Kind.DELETE, computer, computer, history);
+    }
+
+    /**
+     * Enfileira a restauração de um computador da lixeira, seguida do seu
+     * histórico.
+     *
+     * @return false se o registro não tem id nem inserção pendente.
+     */
+    public boolean enqueueRestore(Computer computer, HistoryEntry history) {
+        return enqueueTargeted(Kind.RESTORE, computer, computer, history);
+    }
+
+    public void enqueueHistory(HistoryEntry history) {
+        enqueueLock.lock();
+        try {
+            enqueue(new Operation(lastSeq + 1, Kind.HISTORY, 0, 0, 0, null, history));
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    private boolean enqueueTargeted(Kind kind, Computer computer, Computer previous, HistoryEntry history) {
+        enqueueLock.lock();
+        try {
+            int id;
+            long ref = 0;
+            synchronized (pendingKeys) {
+                id = previous.getId();
+                if (id <= 0) {
+                    Long key = pendingKeys.get(previous);
+                    if (key == null) {
+                        System.err.println("Erro ao enfileirar alteração: computador sem id ("
+                                + computer.getTag() + ")");
+                        return false;
+                    }
+                    ref = key;
+                    if (computer != previous) {
+                        // O novo objeto também recebe o id quando a inserção for gravada
+                        pendingKeys.put(computer, ref);
+                        objectsByKey.get(ref).add(computer);
+                    }
+                }
+            }
+            Computer data = kind == Kind.UPDATE ? snapshot(computer) : null;
+            Operation op = new Operation(lastSeq + 1, kind, id, ref, previous.getRowVersion(), data, null);
+            op.target = computer;
+            op.note = history;
+            enqueue(op);
+            enqueueNote(op);
+            return true;
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    /**
+     * Enfileira o histórico da alteração, ligado a ela. Executado com
+     * enqueueLock.
+     */
+    private void enqueueNote(Operation op) {
+        if (op.note != null) {
+            enqueue(new Operation(lastSeq + 1, Kind.HISTORY, 0, op.seq, 0, null, op.note));
+        }
+    }
+
+    /**
+     * Anota a operação no diário e a coloca na fila. Executado com enqueueLock.
+     */
+    private void enqueue(Operation op) {
+        lastSeq = op.seq;
+        pending.incrementAndGet();
+        try {
+            String line = toJournalLine(op);
+            appendJournal(headerWritten ? line : "J " + runId + "\n" + line);
+            headerWritten = true;
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o diário de gravação: " + e.getMessage());
+        }
+        while (!queue.offer(op)) {
+            // Fila cheia: grava um grupo nesta thread antes de continuar
+            drainLock.lock();
+            try {
+                drainAvailable();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // ----- Gravação -----
+
+    /**
+     * Bloqueia até que todas as operações enfileiradas estejam gravadas no banco,
+     * ajudando a thread de fundo. Usado antes de consultas que leem do banco.
+     */
+    public void flush() {
+        while (pending.get() > 0) {
+            drainLock.lock();
+            try {
+                drainAvailable();
+            } finally {
+                drainLock.unlock();
+            }
+            synchronized (idleMonitor) {
+                if (pending.get() > 0) {
+                    try {
+                        idleMonitor.wait(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true se há operações ainda não gravadas no banco.
+     */
+    public boolean hasPending() {
+        return pending.get() > 0;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getCommittedGroups() {
+        return committedGroups.get();
+    }
+
+    public long getCommittedOperations() {
+        return committedOperations.get();
+    }
+
+    /**
+     * @return Atualizações descartadas porque outra estação alterou o
+     *         registro.
+     */
+    public long getConflictCount() {
+        return conflicts.get();
+    }
+
+    private void close() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            // Diário vazio: nada a recuperar desta execução
+            if (journal.size() == 0) {
+                DatabaseHelper.withBusyRetry(conn -> {
+                    DatabaseHelper.deleteJournalSeq(conn, runId);
+                    return null;
+                });
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("Erro ao encerrar o diário de gravação: " + e.getMessage());
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o diário de gravação: " + e.getMessage());
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            drainLock.lock();
+            try {
+                Operation first = queue.poll(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Espera por mais operações até completar o grupo ou esgotar o prazo
+                List<Operation> group = new ArrayList<>();
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < groupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Operation next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                applyGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Erro na gravação adiada: " + e.getMessage());
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Grava, em grupos, tudo o que já está na fila. Executado com drainLock.
+     */
+    private void drainAvailable() {
+        while (!queue.isEmpty()) {
+            List<Operation> group = new ArrayList<>();
+            queue.drainTo(group, groupSize);
+            applyGroup(group);
+        }
+    }
+
+    /**
+     * Grava um grupo em uma transação, tentando novamente em caso de erro. Se o
+     * grupo continuar falhando, grava as operações uma a uma e descarta (com
+     * aviso ao ouvinte) apenas as que falharem sozinhas.
+     */
+    private void applyGroup(List<Operation> group) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                commit(group);
+                return;
+            } catch (SQLException e) {
+                System.err.println("Erro ao gravar grupo de " + group.size() + " operações (tentativa " + attempt
+                        + "): " + e.getMessage());
+                sleepQuietly(RETRY_DELAY_MILLIS << (attempt - 1));
+            }
+        }
+        for (Operation op : group) {
+            try {
+                commit(List.of(op));
+            } catch (SQLException e) {
+                System.err.println("Operação descartada (" + op.kind + ", seq " + op.seq + "): " + e.getMessage());
+                discarded(op, e.getMessage());
+                committed(List.of(op), new HashMap<>(), new HashMap<>());
+            }
+        }
+    }
+
+    private void commit(List<Operation> group) throws SQLException {
+        Map<Long, Integer> generated = new HashMap<>();
+        Map<Integer, Long> versions = new HashMap<>();
+        Set<Long> dropped = new HashSet<>();
+        List<DroppedWrite> drops = new ArrayList<>();
+        try (Connection conn = DatabaseHelper.connect()) {
+            if (conn == null) {
+                throw new SQLException("conexão indisponível");
+            }
+            conn.setAutoCommit(false);
+            try {
+                for (Operation op : group) {
+                    DroppedWrite drop = apply(conn, op, generated, versions, dropped);
+                    if (drop != null) {
+                        dropped.add(op.seq);
+                        drops.add(drop);
+                    }
+                }
+                DatabaseHelper.writeJournalSeq(conn, runId, group.get(group.size() - 1).seq);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        ownVersions.putAll(versions);
+        droppedSeqs.addAll(dropped);
+        for (DroppedWrite drop : drops) {
+            if (drop.isConflict()) {
+                conflicts.incrementAndGet();
+            }
+            notifyDropped(drop);
+        }
+        committed(group, generated, versions);
+    }
+
+    /**
+     * Grava a operação na transação.
+     *
+     * @param dropped Alterações descartadas neste grupo.
+     * @return A alteração descartada (conflito ou inserção não gravada), ou null.
+     */
+    private DroppedWrite apply(Connection conn, Operation op, Map<Long, Integer> generated,
+            Map<Integer, Long> versions, Set<Long> dropped) throws SQLException {
+        if (op.kind == Kind.HISTORY) {
+            // O histórico de uma alteração descartada não é gravado
+            if (op.ref == 0 || !(dropped.contains(op.ref) || droppedSeqs.contains(op.ref))) {
+                DatabaseHelper.insertHistory(conn, op.history);
+            }
+            return null;
+        }
+        if (op.kind == Kind.INSERT) {
+            int id = DatabaseHelper.insertComputer(conn, op.computer);
+            generated.put(op.seq, id);
+            versions.put(id, DatabaseHelper.readRowVersion(conn, id));
+            return null;
+        }
+        int id = resolveId(op, generated);
+        if (id <= 0) {
+            System.err.println("Operação ignorada (" + op.kind + ", seq " + op.seq + "): inserção não gravada");
+            return new DroppedWrite(op.target, null, op.note, false, describe(op)
+                    + " não foi gravada: o cadastro do computador falhou.");
+        }
+        if (!applyChange(conn, op, id, versions, ownVersions)) {
+            System.err.println("Conflito: computador " + op.computer.getTag() + " (id " + id
+                    + ") foi alterado por outra estação; edição descartada.");
+            return new DroppedWrite(op.target, DatabaseHelper.loadComputer(conn, id), op.note, true,
+                    describe(op) + " não foi gravada: outra estação alterou o registro antes.");
+        }
+        return null;
+    }
+
+    /**
+     * Operação que falhou sozinha e foi descartada: o histórico dela não é
+     * gravado e o ouvinte recebe o registro como está no banco.
+     */
+    private void discarded(Operation op, String error) {
+        if (op.kind == Kind.HISTORY) {
+            return;
+        }
+        droppedSeqs.add(op.seq);
+        if (op.kind == Kind.INSERT) {
+            // Os objetos nunca receberão um id
+            synchronized (pendingKeys) {
+                List<Computer> objects = objectsByKey.remove(op.seq);
+                if (objects != null) {
+                    for (Computer computer : objects) {
+                        pendingKeys.remove(computer);
+                    }
+                }
+            }
+        }
+        Computer current = null;
+        int id = op.kind == Kind.INSERT ? 0 : resolveId(op, new HashMap<>());
+        if (id > 0) {
+            try (Connection conn = DatabaseHelper.connect()) {
+                current = conn != null ? DatabaseHelper.loadComputer(conn, id) : null;
+            } catch (SQLException e) {
+                System.err.println("Erro ao ler o computador " + id + ": " + e.getMessage());
+            }
+        }
+        notifyDropped(new DroppedWrite(op.target, current, op.note, false,
+                describe(op) + " não foi gravada: " + error));
+    }
+
+    private void notifyDropped(DroppedWrite drop) {
+        Consumer<DroppedWrite> listener = dropListener;
+        if (listener != null && drop.getComputer() != null) {
+            try {
+                listener.accept(drop);
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao avisar alteração descartada: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String describe(Operation op) {
+        String tag = op.target != null ? op.target.getTag() : op.computer != null ? op.computer.getTag() : "";
+        switch (op.kind) {
+            case INSERT:
+                return "O cadastro do computador " + tag;
+            case UPDATE:
+                return "A edição do computador " + tag;
+            case DELETE:
+                return "A exclusão do computador " + tag;
+            default:
+                return "A restauração do computador " + tag;
+        }
+    }
+
+    /**
+     * Grava uma atualização, exclusão ou restauração do registro. Na
+     * atualização, as gravações anteriores da própria fila (versions e
+     * ownVersions) não contam como conflito.
+     *
+     * @return false se a atualização foi descartada porque outra estação
+     *         alterou o registro.
+     */
+    private static boolean applyChange(Connection conn, Operation op, int id, Map<Integer, Long> versions,
+            Map<Integer, Long> ownVersions) throws SQLException {
+        if (op.kind == Kind.UPDATE) {
+            long expected = Math.max(op.version, versions.getOrDefault(id, ownVersions.getOrDefault(id, 0L)));
+            op.computer.setId(id);
+            if (DatabaseHelper.updateComputerIfVersion(conn, op.computer, expected) == 0) {
+                return false;
+            }
+        } else {
+            DatabaseHelper.setDeleted(conn, id, op.kind == Kind.DELETE);
+        }
+        versions.put(id, DatabaseHelper.readRowVersion(conn, id));
+        return true;
+    }
+
+    private int resolveId(Operation op, Map<Long, Integer> generated) {
+        if (op.id > 0) {
+            return op.id;
+        }
+        Integer id = generated.get(op.ref);
+        if (id == null) {
+            synchronized (pendingKeys) {
+                id = resolvedIds.get(op.ref);
+            }
+        }
+        return id != null ? id : 0;
+    }
+
+    /**
+     * Após o commit: atribui os ids gerados aos objetos em memória, marca o
+     * diário (ids, versões gravadas e última sequência) e, se a fila esvaziou,
+     * trunca-o.
+     */
+    private void committed(List<Operation> group, Map<Long, Integer> generated, Map<Integer, Long> versions) {
+        StringBuilder marks = new StringBuilder();
+        Consumer<Computer> listener = idListener;
+        synchronized (pendingKeys) {
+            for (Map.Entry<Long, Integer> entry : generated.entrySet()) {
+                resolvedIds.put(entry.getKey(), entry.getValue());
+                List<Computer> objects = objectsByKey.remove(entry.getKey());
+                if (objects != null) {
+                    for (Computer computer : objects) {
+                        computer.setId(entry.getValue());
+                        pendingKeys.remove(computer);
+                        if (listener != null) {
+                            listener.accept(computer);
+                        }
+                    }
+                }
+                marks.append("K ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : versions.entrySet()) {
+            marks.append("V ").append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        marks.append("C ").append(group.get(group.size() - 1).seq).append('\n');
+        try {
+            appendJournal(marks.toString());
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o diário de gravação: " + e.getMessage());
+        }
+        committedGroups.incrementAndGet();
+        committedOperations.addAndGet(group.size());
+
+        if (pending.addAndGet(-group.size()) == 0) {
+            truncateIfIdle();
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Trunca o diário se nada foi enfileirado desde a última gravação. Quem
+     * estiver enfileirando (enqueueLock ocupado) adia o truncamento.
+     */
+    private void truncateIfIdle() {
+        if (!enqueueLock.tryLock()) {
+            return;
+        }
+        try {
+            if (pending.get() == 0) {
+                journal.truncate(0);
+                headerWritten = false;
+                droppedSeqs.clear();
+                synchronized (pendingKeys) {
+                    resolvedIds.clear();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao truncar o diário de gravação: " + e.getMessage());
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    private void appendJournal(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        synchronized (journal) {
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journal.force(false);
+        }
+    }
+
+    // ----- Recuperação -----
+
+    /** Operações e marcas de uma execução da fila, lidas do diário. */
+    private static final class JournalRun {
+        final String runId; // null: diário sem cabeçalho
+        long lastCommitted;
+        final Map<Long, Integer> generated = new HashMap<>();
+        final Map<Integer, Long> versions = new HashMap<>();
+        final Map<Long, Operation> operations = new HashMap<>();
+
+        JournalRun(String runId) {
+            this.runId = runId;
+        }
+    }
+
+    /**
+     * Reaplica as operações do diário que não chegaram a ser gravadas (após a
+     * última marca de commit e após a última sequência registrada em
+     * write_journal) e o trunca. Deve ser chamado na inicialização, depois das
+     * migrações e antes de a fila ser criada.
+     *
+     * @param journalPath Arquivo do diário.
+     * @return Quantidade de operações reaplicadas.
+     */
+    static int recover(Path journalPath) {
+        try {
+            if (!Files.isRegularFile(journalPath) || Files.size(journalPath) == 0) {
+                return 0;
+            }
+            List<JournalRun> runs = readJournal(journalPath);
+            int applied = 0;
+            try (Connection conn = DatabaseHelper.connect()) {
+                if (conn == null) {
+                    throw new SQLException("conexão indisponível");
+                }
+                conn.setAutoCommit(false);
+                try {
+                    for (JournalRun run : runs) {
+                        applied += replay(conn, run);
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                if (applied > 0) {
+                    System.err.println("Reaplicadas " + applied + " operações pendentes de " + journalPath);
+                }
+                Files.write(journalPath, new byte[0]);
+                // Com o diário vazio, as sequências dessas execuções não são mais usadas
+                for (JournalRun run : runs) {
+                    if (run.runId != null) {
+                        DatabaseHelper.deleteJournalSeq(conn, run.runId);
+                    }
+                }
+            }
+            return applied;
+        } catch (IOException | SQLException e) {
+            // O diário é mantido para uma nova tentativa na próxima inicialização
+            System.err.println("Erro ao recuperar o diário de gravação: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static List<JournalRun> readJournal(Path journalPath) throws IOException {
+        List<JournalRun> runs = new ArrayList<>();
+        JournalRun run = new JournalRun(null);
+        runs.add(run);
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            try {
+                if (line.startsWith("J ")) {
+                    run = new JournalRun(line.substring(2).trim());
+                    runs.add(run);
+                } else if (line.startsWith("C ")) {
+                    run.lastCommitted = Math.max(run.lastCommitted, Long.parseLong(line.substring(2).trim()));
+                } else if (line.startsWith("K ")) {
+                    String[] parts = line.split(" ");
+                    run.generated.put(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                } else if (line.startsWith("V ")) {
+                    String[] parts = line.split(" ");
+                    run.versions.put(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+                } else if (line.startsWith("W ")) {
+                    Operation op = fromJournalLine(line);
+                    run.operations.put(op.seq, op);
+                }
+            } catch (RuntimeException e) {
+                // Última linha incompleta (o processo terminou durante a escrita)
+                System.err.println("Linha ignorada no diário de gravação: " + e.getMessage());
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Reaplica, na transação do chamador, as operações da execução ainda não
+     * gravadas, e registra a última sequência em write_journal.
+     *
+     * @return Quantidade de operações reaplicadas.
+     */
+    private static int replay(Connection conn, JournalRun run) throws SQLException {
+        long lastApplied = run.lastCommitted;
+        if (run.runId != null) {
+            lastApplied = Math.max(lastApplied, DatabaseHelper.readJournalSeq(conn, run.runId));
+        }
+        List<Operation> toApply = new ArrayList<>();
+        for (Operation op : run.operations.values()) {
+            if (op.seq > lastApplied) {
+                toApply.add(op);
+            }
+        }
+        toApply.sort(Comparator.comparingLong(op -> op.seq));
+
+        Map<Integer, Long> versions = new HashMap<>();
+        Set<Long> dropped = new HashSet<>();
+        for (Operation op : toApply) {
+            if (op.kind == Kind.HISTORY) {
+                if (!dropped.contains(op.ref)) {
+                    DatabaseHelper.insertHistory(conn, op.history);
+                }
+            } else if (op.kind == Kind.INSERT) {
+                int id = DatabaseHelper.insertComputer(conn, op.computer);
+                run.generated.put(op.seq, id);
+                versions.put(id, DatabaseHelper.readRowVersion(conn, id));
+            } else {
+                int id = op.id > 0 ? op.id : run.generated.getOrDefault(op.ref, 0);
+                if (id <= 0) {
+                    dropped.add(op.seq);
+                    System.err.println("Operação ignorada na recuperação (" + op.kind + ", seq " + op.seq
+                            + "): inserção não encontrada");
+                } else if (!applyChange(conn, op, id, versions, run.versions)) {
+                    dropped.add(op.seq);
+                    System.err.println("Conflito na recuperação: computador " + op.computer.getTag() + " (id " + id
+                            + ") foi alterado por outra estação; edição descartada.");
+                }
+            }
+        }
+        if (run.runId != null && !toApply.isEmpty()) {
+            DatabaseHelper.writeJournalSeq(conn, run.runId, toApply.get(toApply.size() - 1).seq);
+        }
+        return toApply.size();
+    }
+
+    // ----- Formato do diário -----
+    // J <identificação da execução> (antes da primeira operação)
+    // W <seq> <tipo> <id> <ref> <versão> <campos em Base64 separados por vírgula>
+    // K <seq da inserção> <id gerado>
+    // V <id> <row_version deixada pela fila>
+    // C <última seq gravada>
+
+    private static String toJournalLine(Operation op) {
+        StringBuilder sb = new StringBuilder("W ").append(op.seq).append(' ').append(op.kind).append(' ')
+                .append(op.id).append(' ').append(op.ref).append(' ').append(op.version).append(' ');
+        List<String> fields = new ArrayList<>();
+        if (op.computer != null) {
+            Computer c = op.computer;
+            fields.add(c.getTag());
+            fields.add(c.getSerialNumber());
+            fields.add(c.getModel());
+            fields.add(c.getBrand());
+            fields.add(c.getState());
+            fields.add(c.getUserName());
+            fields.add(c.getWindowsVersion());
+            fields.add(c.getOfficeVersion());
+            fields.add(c.getLocation());
+            fields.add(c.getPurchaseDate());
+            fields.add(c.getObservation());
+            fields.add(c.getHostname());
+            fields.add(c.getSector());
+            fields.add(c.getPatrimony());
+            fields.add(c.getActivityStatus());
+            fields.add(c.isDeleted() ? "1" : "0");
+        } else if (op.history != null) {
+            fields.add(op.history.getAction().name());
+            fields.add(op.history.getUser());
+            fields.add(op.history.getTimestamp().toString());
+            fields.add(op.history.getDescription());
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = fields.get(i);
+            sb.append(value == null ? NULL_FIELD
+                    : Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static Operation fromJournalLine(String line) {
+        String[] parts = line.split(" ", 7);
+        long seq = Long.parseLong(parts[1]);
+        Kind kind = Kind.valueOf(parts[2]);
+        int id = Integer.parseInt(parts[3]);
+        long ref = Long.parseLong(parts[4]);
+        long version = Long.parseLong(parts[5]);
+        String[] encoded = parts.length > 6 && !parts[6].isEmpty() ? parts[6].split(",", -1) : new String[0];
+        String[] f = new String[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            f[i] = NULL_FIELD.equals(encoded[i]) ? null
+                    : new String(Base64.getDecoder().decode(encoded[i]), StandardCharsets.UTF_8);
+        }
+
+        if (kind == Kind.HISTORY) {
+            HistoryEntry history = new HistoryEntry(HistoryEntry.ActionType.valueOf(f[0]), f[1],
+                    LocalDateTime.parse(f[2]), f[3]);
+            return new Operation(seq, kind, id, ref, version, null, history);
+        }
+        Computer computer = null;
+        if (f.length >= 16) {
+            computer = new Computer();
+            computer.setTag(f[0]);
+            computer.setSerialNumber(f[1]);
+            computer.setModel(f[2]);
+            computer.setBrand(f[3]);
+            computer.setState(f[4]);
+            computer.setUserName(f[5]);
+            computer.setWindowsVersion(f[6]);
+            computer.setOfficeVersion(f[7]);
+            computer.setLocation(f[8]);
+            computer.setPurchaseDate(f[9]);
+            computer.setObservation(f[10]);
+            computer.setHostname(f[11]);
+            computer.setSector(f[12]);
+            computer.setPatrimony(f[13]);
+            computer.setActivityStatus(f[14]);
+            computer.setDeleted("1".equals(f[15]));
+        } else if (kind == Kind.INSERT || kind == Kind.UPDATE) {
+            throw new IllegalArgumentException("campos incompletos na sequência " + seq);
+        }
+        return new Operation(seq, kind, id, ref, version, computer, null);
+    }
+
+    /**
+     * Cópia dos dados no momento do enfileiramento; o objeto da lista pode
+     * continuar sendo alterado pela interface.
+     */
+    private static Computer snapshot(Computer source) {
+        Computer copy = new Computer();
+        copy.setId(source.getId());
+        copy.setTag(source.getTag());
+        copy.setSerialNumber(source.getSerialNumber());
+        copy.setModel(source.getModel());
+        copy.setBrand(source.getBrand());
+        copy.setState(source.getState());
+        copy.setUserName(source.getUserName());
+        copy.setWindowsVersion(source.getWindowsVersion());
+        copy.setOfficeVersion(source.getOfficeVersion());
+        copy.setLocation(source.getLocation());
+        copy.setPurchaseDate(source.getPurchaseDate());
+        copy.setObservation(source.getObservation());
+        copy.setHostname(source.getHostname());
+        copy.setSector(source.getSector());
+        copy.setPatrimony(source.getPatrimony());
+        copy.setActivityStatus(source.getActivityStatus());
+        copy.setDeleted(source.isDeleted());
+        return copy;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Classe IntIntMap - Mapa de int para int com endereçamento aberto (sondagem
+ * linear) em dois arrays, sem um objeto por entrada (nem Integer, nem
+ * Map.Entry). Consultas, inclusões e remoções custam O(1) em média.
+ *
+ * A chave 0 é reservada para posições livres: as chaves devem ser diferentes
+ * de 0 (IDs do banco começam em 1). Não é thread-safe.
+ */
+public final class IntIntMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Quantidade de entradas esperada (evita
+     *                     redimensionamentos).
+     */
+    public IntIntMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return Valor da chave, ou missing se ela não estiver no mapa.
+     */
+    public int get(int key, int missing) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : missing;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Inclui ou substitui o valor da chave.
+     *
+     * @throws IllegalArgumentException se a chave for 0.
+     */
+    public void put(int key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("A chave 0 é reservada.");
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Carga máxima de 50%: sequências de sondagem curtas
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove a chave.
+     *
+     * @return Valor removido, ou missing se a chave não estava no mapa.
+     */
+    public int remove(int key, int missing) {
+        int slot = find(key);
+        if (slot < 0) {
+            return missing;
+        }
+        int removed = values[slot];
+        size--;
+        // Recua as entradas seguintes da mesma sequência, para que nenhuma fique
+        // inalcançável depois da posição liberada (sem marcadores de remoção)
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slot(keys[next]);
+            // A entrada pode ocupar a posição livre se ela estiver entre a posição
+            // ideal da entrada e a posição atual (considerando a volta do array)
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    private int find(int key) {
+        if (key == 0) {
+            return -1;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(int key) {
+        // Espalha IDs sequenciais pelo array (hash de Fibonacci)
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
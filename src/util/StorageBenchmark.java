@@ -0,0 +1,131 @@
+package util;
+
+import model.Computer;
+import model.ComputerFilter;
+import model.DatabaseConfig;
+import model.DatabaseHelper;
+import model.InMemoryInventoryRepository;
+import model.InventoryRepository;
+import model.LogInventoryRepository;
+import model.UpdateResult;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara os mecanismos de armazenamento (storage.engine) com a mesma carga:
+ * inserções individuais e em lote, edições individuais, carga da lista,
+ * contagem filtrada e pesquisa.
+ *
+ * Uso (em um diretório vazio, pois grava computers.db e computers.log.* no
+ * diretório atual, com as configurações de database.properties):
+ *
+ * <pre>
+ * java -cp InventarioHB2.jar;lib/* util.StorageBenchmark [registros] [sqlite,log,memory]
+ * </pre>
+ */
+public class StorageBenchmark {
+
+    private static final String[] LOCATIONS = { "NPD", "INFAN", "Sede", "Almoxarifado" };
+
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        String[] engines = (args.length > 1 ? args[1] : "sqlite,log,memory").split(",");
+        DatabaseConfig config = DatabaseConfig.get();
+
+        if (Files.exists(Paths.get("computers.db")) || Files.exists(Paths.get(config.getLogFile() + ".1"))) {
+            System.err.println("Execute o benchmark em um diretório sem computers.db nem " + config.getLogFile()
+                    + ".*, para não misturar os dados de teste com o inventário.");
+            return;
+        }
+
+        System.out.printf("%-8s %-24s %10s %12s%n", "Mecanismo", "Etapa", "ms", "ops/s");
+        for (String engine : engines) {
+            InventoryRepository repository = open(engine.trim(), config);
+            repository.createTable();
+            run(engine.trim(), repository, records);
+            repository.close();
+        }
+        DatabaseHelper.shutdown();
+    }
+
+    private static InventoryRepository open(String engine, DatabaseConfig config) {
+        switch (engine) {
+            case DatabaseConfig.ENGINE_LOG:
+                return new LogInventoryRepository(config);
+            case DatabaseConfig.ENGINE_MEMORY:
+                return new InMemoryInventoryRepository();
+            default:
+                return new DatabaseHelper();
+        }
+    }
+
+    private static void run(String engine, InventoryRepository repository, int records) {
+        Random random = new Random(42);
+        int singles = Math.max(1, records / 10);
+
+        long start = System.nanoTime();
+        List<Computer> inserted = new ArrayList<>();
+        for (int i = 0; i < singles; i++) {
+            Computer computer = sample(i, random);
+            repository.insertComputer(computer);
+            inserted.add(computer);
+        }
+        report(engine, "Inserção individual", singles, start);
+
+        List<Computer> batch = new ArrayList<>();
+        for (int i = 0; i < records; i++) {
+            batch.add(sample(singles + i, random));
+        }
+        start = System.nanoTime();
+        repository.insertComputers(batch);
+        report(engine, "Inserção em lote", records, start);
+        inserted.addAll(batch);
+
+        start = System.nanoTime();
+        int conflicts = 0;
+        for (int i = 0; i < singles; i++) {
+            Computer computer = inserted.get(random.nextInt(inserted.size()));
+            computer.setObservation("Editado " + i);
+            if (repository.updateComputer(computer) != UpdateResult.UPDATED) {
+                conflicts++;
+            }
+        }
+        report(engine, "Edição individual", singles, start);
+        if (conflicts > 0) {
+            System.err.println(engine + ": " + conflicts + " edições não gravadas.");
+        }
+
+        start = System.nanoTime();
+        int loaded = repository.loadComputers().size();
+        report(engine, "Carga da lista (" + loaded + ")", loaded, start);
+
+        start = System.nanoTime();
+        for (String location : LOCATIONS) {
+            repository.countComputers(new ComputerFilter(false, location, "Ativo"));
+        }
+        report(engine, "Contagem filtrada", LOCATIONS.length, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            repository.searchComputerIds("TAG" + random.nextInt(records), 500);
+        }
+        report(engine, "Pesquisa", 10, start);
+    }
+
+    private static Computer sample(int i, Random random) {
+        return new Computer("TAG" + i, "Modelo " + random.nextInt(20), "Marca", "Bom", "usuario" + i, "SN" + i,
+                "Windows 11", "Office 365", "2021-03-15", LOCATIONS[random.nextInt(LOCATIONS.length)],
+                "Observação do computador " + i, "PC-" + i, "Setor " + random.nextInt(10), "PAT" + i,
+                random.nextInt(5) == 0 ? "Inativo" : "Ativo");
+    }
+
+    private static void report(String engine, String step, int operations, long startNanos) {
+        double millis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        double perSecond = millis > 0 ? operations / (millis / 1000.0) : 0;
+        System.out.printf("%-8s %-24s %10.1f %12.0f%n", engine, step, millis, perSecond);
+    }
+}
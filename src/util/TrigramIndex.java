@@ -0,0 +1,244 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classe TrigramIndex - Índice invertido para busca de substrings (sem
+ * diferenciar maiúsculas) em documentos identificados por números inteiros
+ * pequenos (0, 1, 2...).
+ *
+ * Cada documento é um conjunto de campos de texto. Para cada trigrama (três
+ * caracteres seguidos dentro de um campo) o índice guarda a lista ordenada dos
+ * documentos que o contêm. Uma consulta de 3 ou mais caracteres intersecta as
+ * listas dos seus trigramas, começando pela menor, e confirma cada candidato
+ * no texto guardado (os trigramas podem aparecer fora de ordem). Consultas de
+ * 1 ou 2 caracteres usam o índice de prefixos: as listas dos prefixos de 1 e 2
+ * caracteres de cada posição, que já são a resposta exata.
+ *
+ * Não é thread-safe.
+ */
+public final class TrigramIndex {
+
+    /** Separa os campos no texto guardado; nenhum n-grama o atravessa. */
+    private static final char SEPARATOR = '\u0000';
+    private static final int[] NONE = new int[0];
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    /** Texto (campos em minúsculas, separados) de cada documento; null se livre. */
+    private String[] texts = new String[16];
+    private int size;
+
+    /**
+     * Inclui o documento ou atualiza o seu texto (sem custo se os campos não
+     * mudaram).
+     *
+     * @param doc Número do documento (>= 0).
+     */
+    public void put(int doc, String... fields) {
+        if (doc < 0) {
+            throw new IllegalArgumentException("Documento inválido: " + doc);
+        }
+        String text = join(fields);
+        if (doc < texts.length && text.equals(texts[doc])) {
+            return;
+        }
+        remove(doc);
+        if (doc >= texts.length) {
+            texts = Arrays.copyOf(texts, Math.max(texts.length * 2, doc + 1));
+        }
+        texts[doc] = text;
+        size++;
+        for (long gram : grams(text)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(doc);
+        }
+    }
+
+    public void remove(int doc) {
+        if (doc < 0 || doc >= texts.length || texts[doc] == null) {
+            return;
+        }
+        for (long gram : grams(texts[doc])) {
+            Postings list = postings.get(gram);
+            list.remove(doc);
+            if (list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        texts[doc] = null;
+        size--;
+    }
+
+    /**
+     * @return Documentos (em ordem crescente) com o texto da consulta em algum
+     *         campo, sem diferenciar maiúsculas; todos, se a consulta for vazia.
+     */
+    public int[] search(String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return all();
+        }
+        if (q.indexOf(SEPARATOR) >= 0) {
+            return NONE;
+        }
+        if (q.length() < 3) {
+            Postings list = postings.get(gram(q, 0, q.length()));
+            return list != null ? Arrays.copyOf(list.docs, list.size) : NONE;
+        }
+
+        // Listas dos trigramas da consulta, da menor para a maior
+        long[] queryGrams = new long[q.length() - 2];
+        for (int i = 0; i < queryGrams.length; i++) {
+            queryGrams[i] = gram(q, i, 3);
+        }
+        Postings[] lists = new Postings[queryGrams.length];
+        for (int i = 0; i < queryGrams.length; i++) {
+            lists[i] = postings.get(queryGrams[i]);
+            if (lists[i] == null) {
+                return NONE;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                count = intersect(candidates, count, lists[i]);
+            }
+        }
+
+        if (q.length() == 3) {
+            return Arrays.copyOf(candidates, count); // um trigrama: resposta exata
+        }
+        // Confirma que os trigramas aparecem juntos e na ordem da consulta
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (texts[candidates[i]].contains(q)) {
+                candidates[found++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, found);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        postings.clear();
+        Arrays.fill(texts, null);
+        size = 0;
+    }
+
+    private int[] all() {
+        int[] docs = new int[size];
+        int count = 0;
+        for (int doc = 0; doc < texts.length && count < size; doc++) {
+            if (texts[doc] != null) {
+                docs[count++] = doc;
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Mantém em docs[0..count) apenas os documentos que estão na lista.
+     *
+     * @return Quantidade de documentos mantidos.
+     */
+    private static int intersect(int[] docs, int count, Postings list) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < list.size; i++) {
+            int position = Arrays.binarySearch(list.docs, from, list.size, docs[i]);
+            if (position >= 0) {
+                docs[kept++] = docs[i];
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+        return kept;
+    }
+
+    private static String join(String[] fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null && !field.isEmpty()) {
+                if (text.length() > 0) {
+                    text.append(SEPARATOR);
+                }
+                text.append(field.toLowerCase(Locale.ROOT).replace(SEPARATOR, ' '));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return N-gramas distintos do texto: os trigramas e os prefixos de 1 e 2
+     *         caracteres de cada posição, sem atravessar os separadores.
+     */
+    private static long[] grams(String text) {
+        long[] grams = new long[text.length() * 3];
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            for (int length = 1; length <= 3 && i + length <= text.length(); length++) {
+                if (text.charAt(i + length - 1) == SEPARATOR) {
+                    break;
+                }
+                grams[count++] = gram(text, i, length);
+            }
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[distinct - 1] != grams[i]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * @return Chave do n-grama: o tamanho e os (até 3) caracteres de 16 bits.
+     */
+    private static long gram(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = (key << 16) | text.charAt(start + i);
+        }
+        return key;
+    }
+
+    /** Lista ordenada de documentos de um n-grama. */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            // Documentos novos costumam ter o maior número: inclusão no fim
+            int position = size == 0 || docs[size - 1] < doc ? size
+                    : -Arrays.binarySearch(docs, 0, size, doc) - 1;
+            if (position < 0) {
+                return; // já estava na lista
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+}
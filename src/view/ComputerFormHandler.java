@@ -318,7 +318,12 @@ public class ComputerFormHandler {
                         patrimonyField.getText(),
                         currentStatus);
                 updatedComputer.setId(computer.getId()); // Garante o ID correto
-                controller.editComputer(computer, updatedComputer, currentUser);
+                try {
+                    controller.editComputer(computer, updatedComputer, currentUser);
+                } catch (IllegalStateException ex) {
+                    // Outra estação alterou o registro: nada foi gravado
+                    showAlert("Conflito de edição", ex.getMessage());
+                }
             }
             dialog.dispose();
         });
@@ -39,7 +39,10 @@ public class ComputerTableModel extends AbstractTableModel {
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Computer c = computers.get(rowIndex);
+        Computer c = getComputerAt(rowIndex);
+        if (c == null) {
+            return "";
+        }
         switch (columnIndex) {
             case 0:
                 return c.getTag();
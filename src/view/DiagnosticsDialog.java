@@ -0,0 +1,97 @@
+package view;
+
+import controller.LoginController;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Janela de diagnóstico do banco de dados (apenas administrador). O relatório
+ * inclui as medições de cada consulta e pode ser salvo em arquivo para o
+ * suporte.
+ */
+public class DiagnosticsDialog extends JDialog {
+    private final LoginController loginController;
+    private JTextArea reportArea;
+
+    public DiagnosticsDialog(Window owner, LoginController loginController) {
+        super(owner, "Diagnóstico do Banco de Dados", ModalityType.APPLICATION_MODAL);
+        this.loginController = loginController;
+
+        initComponents();
+        loadReport();
+    }
+
+    private void initComponents() {
+        setSize(800, 600);
+        setLocationRelativeTo(getParent());
+        setLayout(new BorderLayout());
+
+        reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        reportArea.setBorder(new EmptyBorder(10, 10, 10, 10));
+        add(new JScrollPane(reportArea), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+
+        JButton refreshButton = new JButton("Atualizar");
+        refreshButton.addActionListener(e -> loadReport());
+
+        JButton saveButton = new JButton("Salvar em arquivo...");
+        saveButton.addActionListener(e -> saveReport());
+
+        JButton closeButton = new JButton("Fechar");
+        closeButton.addActionListener(e -> dispose());
+
+        buttonPanel.add(saveButton);
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(closeButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+
+    private void loadReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : loginController.getDatabaseDiagnostics().entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        reportArea.setText(sb.toString());
+        reportArea.setCaretPosition(0);
+    }
+
+    // Grava o relatório exibido (com data e hora) em um arquivo de texto
+    private void saveReport() {
+        LocalDateTime now = LocalDateTime.now();
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Salvar Diagnóstico");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivo de texto (*.txt)", "txt"));
+        fileChooser.setSelectedFile(new File("diagnostico-inventario-"
+                + now.format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmm")) + ".txt"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".txt")) {
+            file = new File(file.getAbsolutePath() + ".txt");
+        }
+        String header = "Diagnóstico do banco de dados - "
+                + now.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")) + "\n\n";
+        try {
+            Files.writeString(file.toPath(), header + reportArea.getText(), StandardCharsets.UTF_8);
+            JOptionPane.showMessageDialog(this, "Diagnóstico salvo em " + file.getName(), "Sucesso",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao salvar o diagnóstico: " + e.getMessage(), "Erro",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
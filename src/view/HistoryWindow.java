@@ -2,6 +2,7 @@ package view;
 
 import controller.InventoryController;
 import model.HistoryEntry;
+import model.HistoryPage;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -10,7 +11,14 @@ import java.time.format.DateTimeFormatter;
 
 public class HistoryWindow {
 
+    private static final int PAGE_SIZE = 200;
+
     private final InventoryController controller;
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private DefaultTableModel tableModel;
+    private JButton loadMoreButton;
+    private HistoryPage.Cursor nextCursor;
 
     public HistoryWindow(InventoryController controller) {
         this.controller = controller;
@@ -23,22 +31,7 @@ public class HistoryWindow {
         historyFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
         String[] columnNames = { "Ação", "Usuário", "Data e Hora", "Descrição" };
-        DefaultTableModel tableModel = new DefaultTableModel(columnNames, 0);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-
-        // Recarrega o histórico do banco de dados para garantir dados atualizados
-        controller.refreshHistory();
-
-        // Obtém a lista e ordena por data (mais recente primeiro)
-        java.util.List<HistoryEntry> sortedList = new java.util.ArrayList<>(controller.getHistoryList());
-        sortedList.sort((h1, h2) -> h2.getTimestamp().compareTo(h1.getTimestamp()));
-
-        // Preencher o modelo com os dados do histórico
-        for (HistoryEntry entry : sortedList) {
-            String formattedTimestamp = entry.getTimestamp().format(formatter);
-            Object[] row = { entry.getAction(), entry.getUser(), formattedTimestamp, entry.getDescription() };
-            tableModel.addRow(row);
-        }
+        tableModel = new DefaultTableModel(columnNames, 0);
 
         JTable historyTable = new JTable(tableModel);
         historyTable.setFillsViewportHeight(true);
@@ -51,11 +44,36 @@ public class HistoryWindow {
 
         JScrollPane scrollPane = new JScrollPane(historyTable);
 
+        // Os registros vêm do banco já ordenados (mais recente primeiro), uma página
+        // por vez
+        loadMoreButton = new JButton("Carregar mais");
+        loadMoreButton.addActionListener(e -> loadNextPage());
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(loadMoreButton);
+
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        loadNextPage();
 
         historyFrame.getContentPane().add(panel);
         historyFrame.setVisible(true);
     }
+
+    private void loadNextPage() {
+        HistoryPage page = controller.loadHistoryPage(null, null, null, null, PAGE_SIZE, nextCursor);
+
+        // Preencher o modelo com os dados do histórico
+        for (HistoryEntry entry : page.getEntries()) {
+            String formattedTimestamp = entry.getTimestamp().format(formatter);
+            Object[] row = { entry.getAction(), entry.getUser(), formattedTimestamp, entry.getDescription() };
+            tableModel.addRow(row);
+        }
+
+        nextCursor = page.getNextCursor();
+        loadMoreButton.setEnabled(page.hasMore());
+    }
 }
@@ -2,13 +2,20 @@ package view;
 
 import controller.InventoryController;
 
+import model.BackupProgress;
 import model.Computer;
+import model.ComputerFilter;
+import model.InventoryStats;
 import javax.swing.*;
 
 import java.awt.*;
 import java.io.File;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableCellRenderer;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,7 +50,21 @@ public class InventoryPanel extends JPanel {
         List<Computer> initialList = (currentLocation.isEmpty()) ? controller.getComputerList()
                 : controller.getComputersByLocation(currentLocation);
         tableModel.setComputers(initialList);
-        updateStats(initialList); // Calcula e emite estatísticas
+        updateStats(); // Emite estatísticas
+
+        // Gravação adiada: alterações descartadas depois (conflito com outra
+        // estação ou erro) voltam à versão do banco e o usuário é avisado
+        controller.setDroppedWriteListener(() -> SwingUtilities.invokeLater(this::showDroppedWrites));
+    }
+
+    private void showDroppedWrites() {
+        List<String> messages = controller.takeDroppedWrites();
+        if (messages.isEmpty()) {
+            return;
+        }
+        filterList(lastQuery);
+        JOptionPane.showMessageDialog(this, String.join("\n\n", messages), "Alterações não gravadas",
+                JOptionPane.WARNING_MESSAGE);
     }
 
     private void initComponents() {
@@ -58,7 +79,9 @@ public class InventoryPanel extends JPanel {
 
         table = new JTable(tableModel);
         table.getTableHeader().setFont(table.getTableHeader().getFont().deriveFont(Font.BOLD)); // Cabeçalho em negrito
-        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Seleção de várias linhas (Ctrl/Shift) para excluir em lote; a edição usa a
+        // primeira selecionada
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         table.setAutoCreateRowSorter(true); // Habilita ordenação
 
         table.setFillsViewportHeight(true); // Ocupa altura disponível
@@ -137,6 +160,20 @@ public class InventoryPanel extends JPanel {
         handleExportAction(this);
     }
 
+    public void openBackupOptions() {
+        Object[] options = { "Criar backup", "Restaurar backup", "Cancelar" };
+        int choice = JOptionPane.showOptionDialog(this,
+                "O backup copia o banco inteiro (inventário, lixeira, histórico e usuários)\n"
+                        + "sem interromper o uso do sistema.",
+                "Backup do Banco", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options,
+                options[0]);
+        if (choice == 0) {
+            handleBackupAction();
+        } else if (choice == 1) {
+            handleRestoreAction();
+        }
+    }
+
     // Tornando público para acesso externo
     public void openRecycleBinWindow() {
         JDialog recycleBinDialog = new JDialog(mainApp, "Lixeira", true);
@@ -162,51 +199,44 @@ public class InventoryPanel extends JPanel {
     public void filterList(String query) {
         this.lastQuery = (query != null) ? query : "";
         // Implementação da busca vinda do TopBar
-        List<Computer> filteredList;
-        List<Computer> baseList = (currentLocation != null && !currentLocation.isEmpty())
-                ? controller.getComputersByLocation(currentLocation)
-                : controller.getComputerList();
+        boolean byLocation = currentLocation != null && !currentLocation.trim().isEmpty();
+        String location = byLocation ? currentLocation.trim() : "";
 
         if (query == null) {
             query = "";
         }
+        String trimmedQuery = query.trim();
+
+        // Com texto, o índice de trigramas do controlador já devolve só os
+        // computadores que o contêm; a localização é conferida nesse resultado
+        List<Computer> baseList;
+        if (!trimmedQuery.isEmpty()) {
+            baseList = controller.findComputersContaining(trimmedQuery);
+        } else if (byLocation) {
+            baseList = controller.getComputersByLocation(currentLocation);
+        } else {
+            baseList = controller.getComputerList();
+        }
+        boolean checkLocation = byLocation && !trimmedQuery.isEmpty();
 
-        String lowerQuery = query.toLowerCase().trim();
-
-        filteredList = baseList.stream()
-                // 1. Filter by Status
+        List<Computer> filteredList = baseList.stream()
+                // 1. Filter by Location
+                .filter(c -> !checkLocation
+                        || (c.getLocation() != null && c.getLocation().trim().equalsIgnoreCase(location)))
+                // 2. Filter by Status
                 .filter(c -> {
                     if (statusFilter.equals("ALL"))
                         return true;
                     // Normaliza para comparar (Assumindo "Ativo" e "Inativo" no Computer)
                     return c.getActivityStatus() != null && c.getActivityStatus().equalsIgnoreCase(statusFilter);
                 })
-                // 2. Filter by Search Query
-                .filter(c -> {
-                    if (lowerQuery.isEmpty())
-                        return true;
-                    return (c.getTag() != null && c.getTag().toLowerCase().contains(lowerQuery))
-                            || (c.getModel() != null && c.getModel().toLowerCase().contains(lowerQuery))
-                            || (c.getBrand() != null && c.getBrand().toLowerCase().contains(lowerQuery))
-                            || (c.getUserName() != null && c.getUserName().toLowerCase().contains(lowerQuery))
-                            || (c.getHostname() != null && c.getHostname().toLowerCase().contains(lowerQuery))
-                            || (c.getLocation() != null && c.getLocation().toLowerCase().contains(lowerQuery))
-                            || (c.getSector() != null && c.getSector().toLowerCase().contains(lowerQuery))
-                            || (c.getWindowsVersion() != null
-                                    && c.getWindowsVersion().toLowerCase().contains(lowerQuery))
-                            || (c.getOfficeVersion() != null && c.getOfficeVersion().toLowerCase().contains(lowerQuery))
-                            || (c.getSerialNumber() != null && c.getSerialNumber().toLowerCase().contains(lowerQuery))
-                            || (c.getPurchaseDate() != null && c.getPurchaseDate().toLowerCase().contains(lowerQuery))
-                            || (c.getPatrimony() != null && c.getPatrimony().toLowerCase().contains(lowerQuery))
-                            || (c.getObservation() != null && c.getObservation().toLowerCase().contains(lowerQuery));
-                })
                 .collect(Collectors.toList());
 
         tableModel.setComputers(filteredList);
 
-        // Update stats based on the BASE list (Location only), so buttons show total
-        // availability
-        updateStats(baseList);
+        // Estatísticas da localização (sem o filtro de texto/status), para os
+        // botões mostrarem o total disponível
+        updateStats();
     }
 
     public void setStatusFilter(String status) {
@@ -242,51 +272,55 @@ public class InventoryPanel extends JPanel {
     }
 
     private void handleDeleteAction() {
-        int selectedRowView = table.getSelectedRow();
-        if (selectedRowView >= 0) {
-            int selectedRowModel = table.convertRowIndexToModel(selectedRowView);
-            Computer selectedComputer = tableModel.getComputerAt(selectedRowModel);
-            if (selectedComputer != null) {
-                // Confirmação de exclusão
-                int option = JOptionPane.showConfirmDialog(this,
-                        "Tem certeza que deseja mover o computador " + selectedComputer.getTag()
-                                + " para a lixeira?",
-                        "Confirmar Exclusão",
-                        JOptionPane.YES_NO_OPTION);
-
-                if (option == JOptionPane.YES_OPTION) {
-                    controller.deleteComputer(selectedComputer, controller.getCurrentUser());
-                    controller.refreshComputers();
-                    filterList(""); // Re-aplica o filtro atual (ou limpa se não houver)
-                }
-            } else {
-                JOptionPane.showMessageDialog(this, "Não foi possível obter os dados do computador selecionado.",
-                        "Erro", JOptionPane.ERROR_MESSAGE);
-            }
-        } else {
+        int[] selectedRowsView = table.getSelectedRows();
+        if (selectedRowsView.length == 0) {
             JOptionPane.showMessageDialog(this, "Selecione um computador para excluir.", "Aviso",
                     JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        List<Computer> selectedComputers = new ArrayList<>();
+        for (int rowView : selectedRowsView) {
+            Computer computer = tableModel.getComputerAt(table.convertRowIndexToModel(rowView));
+            if (computer != null) {
+                selectedComputers.add(computer);
+            }
+        }
+        if (selectedComputers.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Não foi possível obter os dados do computador selecionado.",
+                    "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-    }
-
-    // Atualiza as estatísticas de contagem
-    private void updateStats(List<Computer> list) {
-        int total = list.size();
-        int active = 0;
-        int inactive = 0;
 
-        for (Computer c : list) {
-            if ("Inativo".equalsIgnoreCase(c.getActivityStatus())) {
-                inactive++;
+        // Confirmação de exclusão
+        String message = selectedComputers.size() == 1
+                ? "Tem certeza que deseja mover o computador " + selectedComputers.get(0).getTag()
+                        + " para a lixeira?"
+                : "Tem certeza que deseja mover os " + selectedComputers.size()
+                        + " computadores selecionados para a lixeira?";
+        int option = JOptionPane.showConfirmDialog(this, message, "Confirmar Exclusão", JOptionPane.YES_NO_OPTION);
+
+        if (option == JOptionPane.YES_OPTION) {
+            if (selectedComputers.size() == 1) {
+                controller.deleteComputer(selectedComputers.get(0), controller.getCurrentUser());
             } else {
-                active++;
+                // Uma única transação e um único registro de histórico
+                controller.deleteComputers(selectedComputers, controller.getCurrentUser());
             }
+            controller.refreshComputers();
+            filterList(""); // Re-aplica o filtro atual (ou limpa se não houver)
         }
+    }
 
-        // Notifica o listener externo (TopBarPanel)
-        if (statsListener != null) {
-            statsListener.onStatsChange(total, active, inactive);
+    // Atualiza as estatísticas de contagem da localização atual. As contagens
+    // vêm do cache do controller (uma consulta agrupada, refeita só quando o
+    // inventário muda), sem percorrer a lista
+    private void updateStats() {
+        if (statsListener == null) {
+            return;
         }
+        InventoryStats stats = controller.getStats();
+        statsListener.onStatsChange(stats.getTotal(currentLocation), stats.getActive(currentLocation),
+                stats.getInactive(currentLocation));
     }
 
     public void setStatsListener(StatsListener listener) {
@@ -300,11 +334,10 @@ public class InventoryPanel extends JPanel {
     public void setLocationFilter(String location) {
         this.currentLocation = (location != null) ? location.trim() : "";
         // searchField removido
-        controller.refreshComputers(); // Recarrega do DB
-        // Recalcula a lista filtrada (apenas por local) e atualiza
-        List<Computer> filteredList = controller.getComputersByLocation(currentLocation);
-        tableModel.setComputers(filteredList);
-        updateStats(filteredList); // Atualiza contagem com base no filtro de local
+        controller.refreshComputers(); // Traz só o que mudou no banco
+        // Reaplica a busca e o status atuais na nova localização (atualiza a
+        // tabela uma única vez) e as contagens
+        filterList(lastQuery);
     }
 
     // Mantém o handleExportAction original que chama controller.exportToCSV(path)
@@ -327,21 +360,18 @@ public class InventoryPanel extends JPanel {
             new SwingWorker<Void, Void>() {
                 @Override
                 protected Void doInBackground() throws Exception {
-                    // Obtém a lista correta para exportar
-                    List<Computer> listToExport;
-                    if (currentLocation != null && !currentLocation.equals("Todas")) {
-                        listToExport = controller.getComputersByLocation(currentLocation);
-                    } else {
-                        listToExport = controller.getComputerList();
-                    }
+                    // Exporta direto do banco (conexão de leitura), pela localização
+                    // selecionada, sem percorrer a lista que a interface pode estar
+                    // alterando
+                    String location = (currentLocation != null && !currentLocation.equals("Todas"))
+                            ? currentLocation
+                            : null;
 
-                    // Se houver texto na busca, filtra essa lista também (opcional, mas bom para
-                    // consistência)
                     // Assumindo sem filtro de texto no export por enquanto ou passando via
                     // parametro se necessário
                     // String query = searchField.getText();
 
-                    controller.exportToCSV(listToExport, finalFile.getAbsolutePath());
+                    controller.exportToCSV(new ComputerFilter(false, location, null), finalFile.getAbsolutePath());
                     return null;
                 }
 
@@ -412,7 +442,101 @@ public class InventoryPanel extends JPanel {
         }
     }
 
-    // Métodos handleBackupAction e handleRestoreAction foram REMOVIDOS
+    // Backup online do banco (API de backup do SQLite): a cópia roda em segundo
+    // plano e o sistema continua disponível
+    private void handleBackupAction() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Salvar Backup");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Backup do inventário (*.db)", "db"));
+        fileChooser.setSelectedFile(new File("inventario-backup-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmm")) + ".db"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".db")) {
+            file = new File(file.getAbsolutePath() + ".db");
+        }
+        File finalFile = file;
+        runBackupTask("Criando backup...", false,
+                progress -> controller.backupDatabase(finalFile.getAbsolutePath(), progress),
+                () -> JOptionPane.showMessageDialog(this, "Backup salvo em " + finalFile.getName(), "Sucesso",
+                        JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    // Restauração: o arquivo é verificado antes de substituir o banco; a janela
+    // fica bloqueada até o fim da cópia
+    private void handleRestoreAction() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Restaurar Backup");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Backup do inventário (*.db)", "db"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        int option = JOptionPane.showConfirmDialog(this,
+                "Todos os dados atuais serão substituídos pelos do backup " + file.getName()
+                        + ".\nDeseja continuar?",
+                "Confirmar Restauração", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (option != JOptionPane.YES_OPTION) {
+            return;
+        }
+        runBackupTask("Restaurando backup...", true,
+                progress -> controller.restoreDatabase(file.getAbsolutePath(), progress,
+                        controller.getCurrentUser()),
+                () -> {
+                    controller.reload();
+                    filterList("");
+                    JOptionPane.showMessageDialog(this, "Backup restaurado com sucesso.", "Sucesso",
+                            JOptionPane.INFORMATION_MESSAGE);
+                });
+    }
+
+    private interface BackupTask {
+        void run(BackupProgress progress) throws Exception;
+    }
+
+    // Executa o backup/restauração em um SwingWorker, mostrando o andamento em
+    // uma barra de progresso
+    private void runBackupTask(String title, boolean modal, BackupTask task, Runnable onSuccess) {
+        JDialog progressDialog = new JDialog(mainApp, title, modal);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        progressDialog.add(progressBar);
+        progressDialog.setSize(350, 90);
+        progressDialog.setLocationRelativeTo(mainApp);
+
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                task.run((copied, total) -> setProgress(total > 0 ? (int) (copied * 100L / total) : 0));
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                try {
+                    get(); // Verifica se houve exceção
+                    onSuccess.run();
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(InventoryPanel.this, cause.getMessage(), "Erro",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                progressBar.setValue((Integer) evt.getNewValue());
+            }
+        });
+        worker.execute();
+        // Se modal, bloqueia até done() fechar a janela
+        progressDialog.setVisible(true);
+    }
 
     // Mantém os métodos originais para abrir janelas auxiliares (usando JFrame)
     // Método privado original renomeado/mantido para implementação
@@ -510,7 +634,9 @@ public class InventoryPanel extends JPanel {
         dialog.setLocationRelativeTo(this);
         dialog.setLayout(new BorderLayout());
 
-        JTextArea textArea = new JTextArea(computer.getObservation());
+        // Observações longas não vêm com a lista: são lidas agora
+        String storedObservation = controller.loadObservation(computer);
+        JTextArea textArea = new JTextArea(storedObservation);
         textArea.setLineWrap(true);
         textArea.setWrapStyleWord(true);
         JScrollPane scrollPane = new JScrollPane(textArea);
@@ -519,7 +645,7 @@ public class InventoryPanel extends JPanel {
         JButton saveButton = new JButton("Salvar");
         saveButton.addActionListener(e -> {
             String newObservation = textArea.getText();
-            String currentObservation = computer.getObservation();
+            String currentObservation = storedObservation;
 
             // Verifica se houve alteração, tratando null como vazio
             String safeCurrent = (currentObservation == null) ? "" : currentObservation;
@@ -530,7 +656,17 @@ public class InventoryPanel extends JPanel {
             }
 
             computer.setObservation(newObservation);
-            if (controller.updateComputer(computer, controller.getCurrentUser())) {
+            boolean saved;
+            try {
+                saved = controller.updateComputer(computer, controller.getCurrentUser());
+            } catch (IllegalStateException ex) {
+                JOptionPane.showMessageDialog(dialog, ex.getMessage(), "Conflito de edição",
+                        JOptionPane.WARNING_MESSAGE);
+                dialog.dispose();
+                filterList(lastQuery); // A lista já foi atualizada com a versão do banco
+                return;
+            }
+            if (saved) {
                 // Atualiza na tabela visualmente (embora o modelo já tenha o objeto atualizado)
                 JOptionPane.showMessageDialog(dialog, "Observação salva com sucesso!", "Sucesso",
                         JOptionPane.INFORMATION_MESSAGE);
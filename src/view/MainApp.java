@@ -2,6 +2,8 @@ package view;
 
 import controller.InventoryController;
 import controller.LoginController;
+import model.DatabaseConfig;
+import model.InventoryRepository;
 import javax.swing.*;
 import java.awt.*;
 
@@ -32,8 +34,12 @@ public class MainApp extends JFrame {
     }
 
     private void initControllers() {
-        loginController = new LoginController();
-        inventoryController = new InventoryController();
+        // Os dois controladores compartilham o armazenamento configurado
+        // (storage.engine)
+        InventoryRepository repository = InventoryRepository.open(DatabaseConfig.get());
+        Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+        loginController = new LoginController(repository);
+        inventoryController = new InventoryController(repository);
     }
 
     private void initComponents() {
@@ -102,6 +108,9 @@ public class MainApp extends JFrame {
         UIManager.put("Panel.background", new Color(240, 242, 245));
         UIManager.put("Table.background", Color.WHITE);
 
+        // Fecha as conexões persistentes do banco ao encerrar
+        Runtime.getRuntime().addShutdownHook(new Thread(model.DatabaseHelper::shutdown));
+
         SwingUtilities.invokeLater(() -> {
             MainApp app = new MainApp();
             app.setVisible(true);
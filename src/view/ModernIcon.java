@@ -6,7 +6,7 @@ import java.awt.geom.Path2D;
 
 public class ModernIcon implements Icon {
     public enum IconType {
-        ADD, EDIT, DELETE, EXPORT, HISTORY, RECYCLE_BIN, EXIT, USERS, EYE
+        ADD, EDIT, DELETE, EXPORT, HISTORY, RECYCLE_BIN, EXIT, USERS, EYE, DATABASE
     }
 
     private final IconType type;
@@ -57,6 +57,9 @@ public class ModernIcon implements Icon {
             case EYE:
                 drawEye(g2);
                 break;
+            case DATABASE:
+                drawDatabase(g2);
+                break;
         }
 
         g2.dispose();
@@ -105,6 +108,18 @@ public class ModernIcon implements Icon {
         g2.drawLine(pad, size / 2 + 2, size - pad, size / 2 + 2);
     }
 
+    private void drawDatabase(Graphics2D g2) {
+        // Cylinder
+        int pad = size / 5;
+        int width = size - 2 * pad;
+        int ellipse = size / 5;
+        g2.drawOval(pad, pad, width, ellipse); // Top
+        g2.drawLine(pad, pad + ellipse / 2, pad, size - pad - ellipse / 2);
+        g2.drawLine(size - pad, pad + ellipse / 2, size - pad, size - pad - ellipse / 2);
+        g2.drawArc(pad, size / 2 - ellipse / 2, width, ellipse, 180, 180); // Middle
+        g2.drawArc(pad, size - pad - ellipse, width, ellipse, 180, 180); // Bottom
+    }
+
     private void drawHistory(Graphics2D g2) {
         // Clock
         int pad = size / 6;
@@ -0,0 +1,111 @@
+package view;
+
+import controller.InventoryController;
+import model.Computer;
+import model.ComputerFilter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variante do ComputerTableModel que não mantém a tabela inteira em memória:
+ * as linhas são buscadas no banco em páginas, conforme a tabela pede (ao
+ * rolar), e apenas as páginas usadas mais recentemente ficam em cache.
+ *
+ * As páginas são carregadas por chave (id > último id da página anterior). O
+ * último id de cada página carregada é memorizado para que a próxima página
+ * possa ser buscada diretamente.
+ */
+public class PagedComputerTableModel extends ComputerTableModel {
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int DEFAULT_MAX_CACHED_PAGES = 10;
+
+    private final InventoryController controller;
+    private final ComputerFilter filter;
+    private final int pageSize;
+    private final Map<Integer, List<Computer>> pages;
+    private final Map<Integer, Integer> lastIdByPage = new HashMap<>();
+    private int rowCount;
+
+    public PagedComputerTableModel(InventoryController controller, ComputerFilter filter) {
+        this(controller, filter, DEFAULT_PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    public PagedComputerTableModel(InventoryController controller, ComputerFilter filter, int pageSize,
+            int maxCachedPages) {
+        super(null);
+        this.controller = controller;
+        this.filter = filter;
+        this.pageSize = Math.max(1, pageSize);
+        int maxPages = Math.max(1, maxCachedPages);
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Computer>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        this.rowCount = controller.countComputers(filter);
+    }
+
+    /**
+     * Descarta as páginas em cache e recarrega a contagem (após restaurar,
+     * excluir ou editar registros).
+     */
+    public void refresh() {
+        pages.clear();
+        lastIdByPage.clear();
+        rowCount = controller.countComputers(filter);
+        fireTableDataChanged();
+    }
+
+    @Override
+    public void setComputers(List<Computer> computers) {
+        // Os dados vêm do banco; uma nova lista apenas força o recarregamento
+        refresh();
+    }
+
+    @Override
+    public Computer getComputerAt(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            return null;
+        }
+        List<Computer> page = getPage(rowIndex / pageSize);
+        int offset = rowIndex % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private List<Computer> getPage(int pageIndex) {
+        List<Computer> page = pages.get(pageIndex);
+        if (page == null) {
+            page = controller.loadComputerPage(afterIdFor(pageIndex), pageSize, filter);
+            pages.put(pageIndex, page);
+            if (!page.isEmpty()) {
+                lastIdByPage.put(pageIndex, page.get(page.size() - 1).getId());
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Retorna o último id da página anterior. Se ela ainda não foi carregada
+     * (salto com a barra de rolagem), consulta o id nessa posição no índice.
+     */
+    private int afterIdFor(int pageIndex) {
+        if (pageIndex == 0) {
+            return 0;
+        }
+        Integer known = lastIdByPage.get(pageIndex - 1);
+        if (known != null) {
+            return known;
+        }
+        int id = controller.findComputerIdAt(filter, pageIndex * pageSize - 1);
+        return Math.max(id, 0);
+    }
+}
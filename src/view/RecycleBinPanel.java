@@ -2,14 +2,17 @@ package view;
 
 import controller.InventoryController;
 import model.Computer;
+import model.ComputerFilter;
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RecycleBinPanel extends JPanel {
 
     private InventoryController controller;
     private JTable recycleBinTable;
-    private ComputerTableModel recycleBinModel;
+    private PagedComputerTableModel recycleBinModel;
 
     public RecycleBinPanel(MainApp mainApp, InventoryController controller) {
 
@@ -20,12 +23,13 @@ public class RecycleBinPanel extends JPanel {
     private void initComponents() {
         setLayout(new BorderLayout());
 
-        // Modelo da tabela para a lixeira (sem edição)
-        recycleBinModel = new ComputerTableModel(controller.getDeletedComputers());
+        // Modelo da tabela para a lixeira (sem edição), carregado em páginas
+        // conforme a rolagem. Sem ordenação por coluna: ela exigiria ler todas as
+        // páginas; os registros aparecem em ordem de cadastro.
+        recycleBinModel = new PagedComputerTableModel(controller, ComputerFilter.recycleBin());
         recycleBinTable = new JTable(recycleBinModel);
         recycleBinTable.getTableHeader().setFont(recycleBinTable.getTableHeader().getFont().deriveFont(Font.BOLD));
-        recycleBinTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        recycleBinTable.setAutoCreateRowSorter(true);
+        recycleBinTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         recycleBinTable.setShowGrid(true);
         recycleBinTable.setShowVerticalLines(true);
         recycleBinTable.setShowHorizontalLines(true);
@@ -52,22 +56,37 @@ public class RecycleBinPanel extends JPanel {
     }
 
     private void restoreSelectedComputer() {
-        int selectedRowView = recycleBinTable.getSelectedRow();
-        if (selectedRowView >= 0) {
-            int selectedRowModel = recycleBinTable.convertRowIndexToModel(selectedRowView);
-            Computer selectedComputer = recycleBinModel.getComputerAt(selectedRowModel);
-            if (selectedComputer != null) {
-                controller.restoreComputer(selectedComputer, controller.getCurrentUser());
-
-                // Atualiza a tabela da lixeira
-                recycleBinModel.setComputers(controller.getDeletedComputers());
-
-                JOptionPane.showMessageDialog(this, "Computador restaurado com sucesso!", "Sucesso",
-                        JOptionPane.INFORMATION_MESSAGE);
-            }
-        } else {
+        int[] selectedRowsView = recycleBinTable.getSelectedRows();
+        if (selectedRowsView.length == 0) {
             JOptionPane.showMessageDialog(this, "Selecione um computador para restaurar.", "Aviso",
                     JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        List<Computer> selectedComputers = new ArrayList<>();
+        for (int rowView : selectedRowsView) {
+            Computer computer = recycleBinModel.getComputerAt(rowView);
+            if (computer != null) {
+                selectedComputers.add(computer);
+            }
+        }
+        if (selectedComputers.isEmpty()) {
+            return;
+        }
+
+        // Uma única transação e um único registro de histórico
+        int restored = controller.restoreComputers(selectedComputers, controller.getCurrentUser());
+
+        // Atualiza a tabela da lixeira
+        recycleBinModel.refresh();
+
+        if (restored == 0) {
+            JOptionPane.showMessageDialog(this, "Não foi possível restaurar os computadores selecionados.", "Erro",
+                    JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this,
+                    restored == 1 ? "Computador restaurado com sucesso!"
+                            : restored + " computadores restaurados com sucesso!",
+                    "Sucesso", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 }
@@ -41,6 +41,10 @@ public class SidebarPanel extends JPanel {
                 Color.WHITE);
         add(Box.createVerticalStrut(15));
 
+        addButton(ModernIcon.IconType.DATABASE, "Backup", "Backup e Restauração do Banco",
+                e -> inventoryPanel.openBackupOptions(), Color.WHITE);
+        add(Box.createVerticalStrut(15));
+
         // Spacer
         add(Box.createVerticalGlue());
 
@@ -24,7 +24,7 @@ public class UserManagementDialog extends JDialog {
     }
 
     private void initComponents() {
-        setSize(400, 500);
+        setSize(500, 500);
         setLocationRelativeTo(getParent());
         setLayout(new BorderLayout());
 
@@ -67,12 +67,17 @@ public class UserManagementDialog extends JDialog {
         styleButton(deleteButton, new Color(220, 53, 69)); // Red
         deleteButton.addActionListener(e -> deleteSelectedUser());
 
+        JButton diagnosticsButton = new JButton("Diagnóstico");
+        styleButton(diagnosticsButton, new Color(0, 123, 255)); // Blue
+        diagnosticsButton.addActionListener(e -> new DiagnosticsDialog(this, loginController).setVisible(true));
+
         JButton closeButton = new JButton("Fechar");
         styleButton(closeButton, new Color(108, 117, 125)); // Grey
         closeButton.addActionListener(e -> dispose());
 
         buttonPanel.add(addButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(diagnosticsButton);
         buttonPanel.add(closeButton);
 
         add(buttonPanel, BorderLayout.SOUTH);